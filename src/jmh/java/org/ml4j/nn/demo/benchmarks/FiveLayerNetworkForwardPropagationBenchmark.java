@@ -0,0 +1,62 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks forward propagation of the pretrained five-layer network with a convolutional layer, for a
+ * range of batch sizes.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FiveLayerNetworkForwardPropagationBenchmark {
+
+	@Param({ MatrixFactoryBackend.JBLAS, MatrixFactoryBackend.ND4J })
+	public String backend;
+
+	@Param({ "1", "8", "64", "1000" })
+	public int batchSize;
+
+	private LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private LayeredFeedForwardNeuralNetworkContext context;
+	private NeuronsActivation batch;
+
+	@Setup
+	public void setUp() {
+		DefaultSession session = new QuickstartSessionFactory(MatrixFactoryBackend.createMatrixFactory(backend), false)
+				.createSession();
+		neuralNetwork = PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer(session,
+				new PretrainedMnistWeights(session.getMatrixFactory()));
+		context = session.createLayeredSupervisedFeedForwardNeuralNetworkContext();
+		batch = MnistData.getExamples().createFeatureActivation(session.getMatrixFactory(), 1000, 1000 + batchSize);
+	}
+
+	@Benchmark
+	public NeuronsActivation forwardPropagate() {
+		return neuralNetwork.forwardPropagate(batch, context).getOutput();
+	}
+}
@@ -0,0 +1,72 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.nn.demo.kernels.InferencePlan;
+import org.ml4j.nn.demo.kernels.InferenceWorkspace;
+import org.ml4j.nn.demo.kernels.WeightsPrecision;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks forward propagation of the pretrained five-layer network through an InferencePlan, at each
+ * WeightsPrecision and with and without fusing the convolutional and max pooling layers, for comparison
+ * with FiveLayerNetworkForwardPropagationBenchmark. Run with "-prof gc" to confirm that
+ * gc.alloc.rate.norm is zero bytes per operation once warmed up.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InferencePlanForwardPropagationBenchmark {
+
+	@Param({ "FLOAT32", "FLOAT16", "INT8" })
+	public WeightsPrecision precision;
+
+	@Param({ "true", "false" })
+	public boolean fuseOperations;
+
+	@Param({ "1", "8", "64", "1000" })
+	public int batchSize;
+
+	private InferenceWorkspace workspace;
+	private int[] predictions;
+
+	@Setup
+	public void setUp() {
+		MnistExamples examples = MnistData.getExamples();
+		WeightsBundle bundle = WeightsBundle.load(InferencePlanForwardPropagationBenchmark.class.getClassLoader(),
+				PretrainedMnistWeights.WEIGHTS_BUNDLE_RESOURCE);
+		workspace = InferencePlan.forPretrainedFiveLayerNetwork(bundle, precision, fuseOperations)
+				.createWorkspace(batchSize);
+		workspace.setInputs(examples, 1000, batchSize);
+		predictions = new int[batchSize];
+	}
+
+	@Benchmark
+	public float[] forwardPropagate() {
+		return workspace.forwardPropagate(batchSize);
+	}
+
+	@Benchmark
+	public int[] classify() {
+		workspace.classify(batchSize, predictions);
+		return predictions;
+	}
+}
@@ -0,0 +1,26 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.demo.util.MatrixBackend;
+
+/**
+ * The MatrixFactory implementations benchmarked, selected by the "backend" benchmark parameter.
+ *
+ */
+final class MatrixFactoryBackend {
+
+	static final String JBLAS = "jblas";
+	static final String ND4J = "nd4j";
+
+	static {
+		// Quieten Logging for JBlas
+		org.jblas.util.Logger.getLogger().setLevel(org.jblas.util.Logger.ERROR);
+	}
+
+	private MatrixFactoryBackend() {
+	}
+
+	static MatrixFactory createMatrixFactory(String backend) {
+		return MatrixBackend.forName(backend).createMatrixFactory();
+	}
+}
@@ -0,0 +1,62 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.demo.util.MnistCsvParser;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing the Mnist CSV file, and creating the training set activations from the parsed
+ * examples. Run with "-prof gc" to report allocation rates.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MnistDataBenchmark {
+
+	private static final String MNIST_CSV_RESOURCE = "trainisfirst1000_testisnext1000.csv";
+
+	@Param({ MatrixFactoryBackend.JBLAS, MatrixFactoryBackend.ND4J })
+	public String backend;
+
+	private MatrixFactory matrixFactory;
+	private MnistExamples examples;
+
+	@Setup
+	public void setUp() {
+		matrixFactory = MatrixFactoryBackend.createMatrixFactory(backend);
+		examples = MnistCsvParser.parse(MnistDataBenchmark.class.getClassLoader(), MNIST_CSV_RESOURCE);
+	}
+
+	@Benchmark
+	public MnistExamples parseCsv() {
+		return MnistCsvParser.parse(MnistDataBenchmark.class.getClassLoader(), MNIST_CSV_RESOURCE);
+	}
+
+	@Benchmark
+	public NeuronsActivation createTrainingDataActivation() {
+		return examples.createFeatureActivation(matrixFactory, 0, 1000);
+	}
+
+	@Benchmark
+	public NeuronsActivation createTrainingLabelActivation() {
+		return examples.createLabelActivation(matrixFactory, 0, 1000);
+	}
+}
@@ -0,0 +1,55 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks loading every weights matrix and bias vector of the pretrained five-layer network.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PretrainedMnistWeightsBenchmark {
+
+	@Param({ MatrixFactoryBackend.JBLAS, MatrixFactoryBackend.ND4J })
+	public String backend;
+
+	private MatrixFactory matrixFactory;
+
+	@Setup
+	public void setUp() {
+		matrixFactory = MatrixFactoryBackend.createMatrixFactory(backend);
+	}
+
+	@Benchmark
+	public void loadPretrainedWeights(Blackhole blackhole) {
+		// Weights are loaded lazily, so access each of them
+		PretrainedMnistWeights weights = new PretrainedMnistWeights(matrixFactory);
+		blackhole.consume(weights.getLayer1Weights());
+		blackhole.consume(weights.getLayer1Biases());
+		blackhole.consume(weights.getLayer3Weights());
+		blackhole.consume(weights.getLayer3Biases());
+		blackhole.consume(weights.getLayer4Weights());
+		blackhole.consume(weights.getLayer4Biases());
+		blackhole.consume(weights.getLayer5Weights());
+		blackhole.consume(weights.getLayer5Biases());
+	}
+}
@@ -0,0 +1,72 @@
+package org.ml4j.nn.demo.benchmarks;
+
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SIGMOID;
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SOFTMAX;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks one training epoch of the simple two-layer network over the 1000 example training set.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TwoLayerNetworkTrainingBenchmark {
+
+	@Param({ MatrixFactoryBackend.JBLAS, MatrixFactoryBackend.ND4J })
+	public String backend;
+
+	private LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private LayeredFeedForwardNeuralNetworkContext trainingContext;
+	private NeuronsActivation trainingDataActivations;
+	private NeuronsActivation trainingLabelActivations;
+
+	@Setup
+	public void setUp() {
+		DefaultSession session = new QuickstartSessionFactory(MatrixFactoryBackend.createMatrixFactory(backend), false)
+				.createSession();
+		neuralNetwork = session.buildLayeredSupervisedNeuralNetwork("simpleTwoLayerNetwork")
+				.withFullyConnectedLayer("firstLayer")
+					.withInputNeurons(new Neurons(784, true))
+					.withOutputNeurons(new Neurons(400, false))
+					.withActivationFunction(SIGMOID)
+				.withFullyConnectedLayer("secondLayer")
+					.withInputNeurons(new Neurons(400, true))
+					.withOutputNeurons(new Neurons(10, false))
+					.withActivationFunction(SOFTMAX)
+				.build();
+		trainingContext = session.createLayeredSupervisedFeedForwardNeuralNetworkContext().asTrainingContext();
+		trainingContext.setTrainingEpochs(1);
+		trainingContext.setTrainingLearningRate(0.1f);
+		trainingDataActivations = MnistData.loadTrainingData(session.getMatrixFactory());
+		trainingLabelActivations = MnistData.loadTrainingLabels(session.getMatrixFactory());
+	}
+
+	@Benchmark
+	public void trainOneEpoch() {
+		neuralNetwork.train(trainingDataActivations, trainingLabelActivations, trainingContext);
+	}
+}
@@ -0,0 +1,93 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * Elastic distortion, as described by Simard, Steinkraus and Platt for Mnist - each pixel is displaced by
+ * a random field, uniform in [-1, 1] per pixel, smoothed by a Gaussian of standard deviation sigma and
+ * scaled by alpha, and the image is resampled with bilinear interpolation.
+ *
+ * The Gaussian is applied separably, so smoothing costs O(sigma) rather than O(sigma^2) per pixel.
+ *
+ */
+public class ElasticDistortion implements ImageTransform {
+
+	private final float alpha;
+	private final float[] kernel;
+
+	/**
+	 * @param alpha The scale of the displacements, in pixels - eg. 34 for Mnist.
+	 * @param sigma The standard deviation of the Gaussian smoothing, in pixels - eg. 4 for Mnist.
+	 */
+	public ElasticDistortion(float alpha, float sigma) {
+		if (sigma <= 0) {
+			throw new IllegalArgumentException("Sigma must be positive");
+		}
+		this.alpha = alpha;
+		int radius = (int) Math.ceil(3 * sigma);
+		this.kernel = new float[2 * radius + 1];
+		float sum = 0;
+		for (int i = -radius; i <= radius; i++) {
+			kernel[i + radius] = (float) Math.exp(-(i * i) / (2.0 * sigma * sigma));
+			sum += kernel[i + radius];
+		}
+		for (int i = 0; i < kernel.length; i++) {
+			kernel[i] /= sum;
+		}
+	}
+
+	/**
+	 * @return Three image-sized buffers - the horizontal and vertical displacement fields, and a buffer for
+	 *         the intermediate pass of the separable smoothing.
+	 */
+	@Override
+	public int getScratchSize(int width, int height) {
+		return 3 * width * height;
+	}
+
+	@Override
+	public void apply(float[] source, float[] target, int width, int height, float[] scratch, Random random) {
+		int pixelCount = width * height;
+		int displacementXOffset = 0;
+		int displacementYOffset = pixelCount;
+		int smoothingOffset = 2 * pixelCount;
+		for (int p = 0; p < 2 * pixelCount; p++) {
+			scratch[p] = 2 * random.nextFloat() - 1;
+		}
+		smooth(scratch, displacementXOffset, smoothingOffset, width, height);
+		smooth(scratch, displacementYOffset, smoothingOffset, width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int p = y * width + x;
+				target[p] = ImageSampling.sample(source, width, height, x + alpha * scratch[displacementXOffset + p],
+						y + alpha * scratch[displacementYOffset + p]);
+			}
+		}
+	}
+
+	/**
+	 * Smooths the field at fieldOffset in place, horizontally into the buffer at smoothingOffset and then
+	 * vertically back, treating values outside the field as 0.
+	 */
+	private void smooth(float[] scratch, int fieldOffset, int smoothingOffset, int width, int height) {
+		int radius = kernel.length / 2;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0;
+				for (int i = Math.max(-radius, -x); i <= Math.min(radius, width - 1 - x); i++) {
+					sum += kernel[i + radius] * scratch[fieldOffset + y * width + x + i];
+				}
+				scratch[smoothingOffset + y * width + x] = sum;
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0;
+				for (int i = Math.max(-radius, -y); i <= Math.min(radius, height - 1 - y); i++) {
+					sum += kernel[i + radius] * scratch[smoothingOffset + (y + i) * width + x];
+				}
+				scratch[fieldOffset + y * width + x] = sum;
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * Adds approximately Gaussian noise to each pixel, clamping intensities to [0, 1].
+ *
+ * Each sample is the scaled sum of four uniform values ( an Irwin-Hall approximation, bounded at four
+ * standard deviations ), as Random.nextGaussian costs a logarithm and a square root per pixel.
+ *
+ */
+public class GaussianNoise implements ImageTransform {
+
+	/**
+	 * Scales the sum of four uniform values, of variance 1/3, to unit variance.
+	 */
+	private static final float IRWIN_HALL_SCALE = (float) Math.sqrt(3);
+
+	private final float standardDeviation;
+
+	/**
+	 * @param standardDeviation The standard deviation of the noise.
+	 */
+	public GaussianNoise(float standardDeviation) {
+		if (standardDeviation < 0) {
+			throw new IllegalArgumentException("Standard deviation must not be negative");
+		}
+		this.standardDeviation = standardDeviation;
+	}
+
+	@Override
+	public void apply(float[] source, float[] target, int width, int height, float[] scratch, Random random) {
+		int pixelCount = width * height;
+		for (int p = 0; p < pixelCount; p++) {
+			float sum = random.nextFloat() + random.nextFloat() + random.nextFloat() + random.nextFloat();
+			float value = source[p] + standardDeviation * IRWIN_HALL_SCALE * (sum - 2);
+			target[p] = Math.min(1, Math.max(0, value));
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.ml4j.nn.demo.util.MiniBatchTransform;
+
+/**
+ * A MiniBatchTransform applying a sequence of random ImageTransforms to each example of a mini-batch of
+ * image features, in place in the feature-by-example batch buffer.
+ *
+ * Examples are augmented in parallel, in blocks of EXAMPLE_BLOCK_SIZE examples - each block is gathered
+ * from the batch buffer into per-thread image buffers ( reading EXAMPLE_BLOCK_SIZE consecutive values
+ * per pixel rather than one value per cache line ), transformed, and scattered back. The image and
+ * scratch buffers are allocated once per thread and reused for every mini-batch. The randomness of each
+ * example is derived only from the mini-batch seed and the example's position, so the result does not
+ * depend on how examples are scheduled across threads.
+ *
+ */
+public class ImageAugmenter implements MiniBatchTransform {
+
+	/**
+	 * Number of examples gathered from the batch buffer and transformed together.
+	 */
+	private static final int EXAMPLE_BLOCK_SIZE = 16;
+
+	private final int width;
+	private final int height;
+	private final ImageTransform[] transforms;
+	private final ThreadLocal<Workspace> workspaces;
+
+	/**
+	 * @param width      The image width.
+	 * @param height     The image height.
+	 * @param transforms The transforms to apply to each image, in order.
+	 */
+	public ImageAugmenter(int width, int height, ImageTransform... transforms) {
+		this.width = width;
+		this.height = height;
+		this.transforms = transforms.clone();
+		int scratchSize = 0;
+		for (ImageTransform transform : transforms) {
+			scratchSize = Math.max(scratchSize, transform.getScratchSize(width, height));
+		}
+		int workspaceScratchSize = scratchSize;
+		this.workspaces = ThreadLocal.withInitial(() -> new Workspace(width * height, workspaceScratchSize));
+	}
+
+	/**
+	 * @return An augmenter for Mnist images, applying a random shift of up to 2 pixels, a random rotation of
+	 *         up to 10 degrees, an elastic distortion and a little noise.
+	 */
+	public static ImageAugmenter forMnist() {
+		return new ImageAugmenter(28, 28, new RandomShift(2), new RandomRotation(10), new ElasticDistortion(34, 4),
+				new GaussianNoise(0.05f));
+	}
+
+	@Override
+	public void transform(float[] features, int exampleCount, long seed) {
+		if (width * height * exampleCount > features.length) {
+			throw new IllegalArgumentException("Expected " + width * height + " features for each of " + exampleCount
+					+ " examples");
+		}
+		int blockCount = (exampleCount + EXAMPLE_BLOCK_SIZE - 1) / EXAMPLE_BLOCK_SIZE;
+		IntStream.range(0, blockCount).parallel().forEach(block -> transformBlock(features, exampleCount, seed,
+				block * EXAMPLE_BLOCK_SIZE, Math.min((block + 1) * EXAMPLE_BLOCK_SIZE, exampleCount)));
+	}
+
+	private void transformBlock(float[] features, int exampleCount, long seed, int blockStart, int blockEnd) {
+		Workspace workspace = workspaces.get();
+		int pixelCount = width * height;
+		int blockSize = blockEnd - blockStart;
+		for (int p = 0; p < pixelCount; p++) {
+			int rowOffset = p * exampleCount + blockStart;
+			for (int e = 0; e < blockSize; e++) {
+				workspace.images[e][p] = features[rowOffset + e];
+			}
+		}
+		for (int e = 0; e < blockSize; e++) {
+			workspace.random.setSeed(seed * 0x9E3779B97F4A7C15L + blockStart + e);
+			float[] source = workspace.images[e];
+			float[] target = workspace.transformedImage;
+			for (ImageTransform transform : transforms) {
+				transform.apply(source, target, width, height, workspace.scratch, workspace.random);
+				float[] swap = source;
+				source = target;
+				target = swap;
+			}
+			// The transformed image is in source - keep it in the block's buffers.
+			workspace.transformedImage = target;
+			workspace.images[e] = source;
+		}
+		for (int p = 0; p < pixelCount; p++) {
+			int rowOffset = p * exampleCount + blockStart;
+			for (int e = 0; e < blockSize; e++) {
+				features[rowOffset + e] = workspace.images[e][p];
+			}
+		}
+	}
+
+	/**
+	 * The buffers of one thread - one image per example of a block, one spare image to transform into, and
+	 * the scratch buffer shared by the transforms.
+	 */
+	private static class Workspace {
+
+		private final float[][] images;
+		private float[] transformedImage;
+		private final float[] scratch;
+		private final Random random = new XorShiftRandom();
+
+		Workspace(int pixelCount, int scratchSize) {
+			this.images = new float[EXAMPLE_BLOCK_SIZE][pixelCount];
+			this.transformedImage = new float[pixelCount];
+			this.scratch = new float[scratchSize];
+		}
+	}
+
+}
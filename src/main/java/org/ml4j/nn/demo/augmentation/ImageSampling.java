@@ -0,0 +1,33 @@
+package org.ml4j.nn.demo.augmentation;
+
+/**
+ * Bilinear sampling of row by row images, treating pixels outside the image as 0.
+ *
+ */
+final class ImageSampling {
+
+	private ImageSampling() {
+	}
+
+	/**
+	 * @param image  The image.
+	 * @param width  The image width.
+	 * @param height The image height.
+	 * @param x      The horizontal coordinate, in pixels.
+	 * @param y      The vertical coordinate, in pixels.
+	 * @return The bilinearly interpolated intensity at ( x, y ).
+	 */
+	static float sample(float[] image, int width, int height, float x, float y) {
+		int x0 = (int) Math.floor(x);
+		int y0 = (int) Math.floor(y);
+		float fx = x - x0;
+		float fy = y - y0;
+		float top = (1 - fx) * get(image, width, height, x0, y0) + fx * get(image, width, height, x0 + 1, y0);
+		float bottom = (1 - fx) * get(image, width, height, x0, y0 + 1) + fx * get(image, width, height, x0 + 1, y0 + 1);
+		return (1 - fy) * top + fy * bottom;
+	}
+
+	private static float get(float[] image, int width, int height, int x, int y) {
+		return x < 0 || y < 0 || x >= width || y >= height ? 0 : image[y * width + x];
+	}
+}
@@ -0,0 +1,35 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * A random, label-preserving transform of a single greyscale image, held row by row as float pixel
+ * intensities - pixel ( x, y ) at index y * width + x, as in the default image format of Mnist feature
+ * activations.
+ *
+ * Implementations are immutable, and must not allocate - a transform needing temporary storage declares
+ * a scratch size, and is given a preallocated scratch buffer.
+ *
+ */
+public interface ImageTransform {
+
+	/**
+	 * @param width  The image width.
+	 * @param height The image height.
+	 * @return The size of the scratch buffer required to transform an image of the specified size.
+	 */
+	default int getScratchSize(int width, int height) {
+		return 0;
+	}
+
+	/**
+	 * @param source  The image to transform.
+	 * @param target  The buffer to write the transformed image to, distinct from source.
+	 * @param width   The image width.
+	 * @param height  The image height.
+	 * @param scratch A buffer of at least getScratchSize(width, height) values, whose contents are undefined
+	 *                before and after the call.
+	 * @param random  The source of randomness.
+	 */
+	void apply(float[] source, float[] target, int width, int height, float[] scratch, Random random);
+}
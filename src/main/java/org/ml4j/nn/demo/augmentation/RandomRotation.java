@@ -0,0 +1,41 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * Rotates an image about its centre by an angle chosen uniformly in [-maxDegrees, maxDegrees], with
+ * bilinear interpolation.
+ *
+ */
+public class RandomRotation implements ImageTransform {
+
+	private final double maxRadians;
+
+	/**
+	 * @param maxDegrees The maximum rotation in either direction, in degrees.
+	 */
+	public RandomRotation(double maxDegrees) {
+		if (maxDegrees < 0) {
+			throw new IllegalArgumentException("Maximum rotation must not be negative");
+		}
+		this.maxRadians = Math.toRadians(maxDegrees);
+	}
+
+	@Override
+	public void apply(float[] source, float[] target, int width, int height, float[] scratch, Random random) {
+		double angle = (2 * random.nextDouble() - 1) * maxRadians;
+		float cos = (float) Math.cos(angle);
+		float sin = (float) Math.sin(angle);
+		float centreX = (width - 1) / 2f;
+		float centreY = (height - 1) / 2f;
+		for (int y = 0; y < height; y++) {
+			float dy = y - centreY;
+			for (int x = 0; x < width; x++) {
+				float dx = x - centreX;
+				// Sample the source at the inverse rotation of the target pixel.
+				target[y * width + x] = ImageSampling.sample(source, width, height, centreX + cos * dx + sin * dy,
+						centreY - sin * dx + cos * dy);
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * Shifts an image by a whole number of pixels, chosen uniformly in [-maxShift, maxShift] in each
+ * direction, filling uncovered pixels with 0.
+ *
+ */
+public class RandomShift implements ImageTransform {
+
+	private final int maxShift;
+
+	/**
+	 * @param maxShift The maximum shift in each direction, in pixels.
+	 */
+	public RandomShift(int maxShift) {
+		if (maxShift < 0) {
+			throw new IllegalArgumentException("Maximum shift must not be negative");
+		}
+		this.maxShift = maxShift;
+	}
+
+	@Override
+	public void apply(float[] source, float[] target, int width, int height, float[] scratch, Random random) {
+		int shiftX = random.nextInt(2 * maxShift + 1) - maxShift;
+		int shiftY = random.nextInt(2 * maxShift + 1) - maxShift;
+		for (int y = 0; y < height; y++) {
+			int sourceY = y - shiftY;
+			for (int x = 0; x < width; x++) {
+				int sourceX = x - shiftX;
+				target[y * width + x] = sourceX < 0 || sourceY < 0 || sourceX >= width || sourceY >= height ? 0
+						: source[sourceY * width + sourceX];
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package org.ml4j.nn.demo.augmentation;
+
+import java.util.Random;
+
+/**
+ * A Random generating values with an unsynchronised xorshift64* generator, for the per-pixel randomness of
+ * augmentation - java.util.Random updates its seed atomically on every call, which dominates the cost of
+ * transforms drawing a value per pixel. Instances must only be used by one thread at a time.
+ *
+ */
+final class XorShiftRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private long state;
+
+	XorShiftRandom() {
+		super(0);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		// Reset the cached Gaussian of the superclass, so that reseeding fully determines the sequence.
+		super.setSeed(seed);
+		// Scramble the seed with the SplitMix64 finaliser, as xorshift requires a non-zero state and mixes
+		// similar seeds slowly.
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		state = z == 0 ? 0x9E3779B97F4A7C15L : z;
+	}
+
+	@Override
+	protected int next(int bits) {
+		long x = state;
+		x ^= x >>> 12;
+		x ^= x << 25;
+		x ^= x >>> 27;
+		state = x;
+		return (int) ((x * 0x2545F4914F6CDD1DL) >>> (64 - bits));
+	}
+}
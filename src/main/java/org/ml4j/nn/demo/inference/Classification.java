@@ -0,0 +1,39 @@
+package org.ml4j.nn.demo.inference;
+
+import java.util.Arrays;
+
+/**
+ * The result of classifying a single Mnist image - the predicted digit and the softmax probability of
+ * each digit class.
+ *
+ */
+public class Classification {
+
+	private final int digit;
+	private final float[] probabilities;
+
+	public Classification(int digit, float[] probabilities) {
+		this.digit = digit;
+		this.probabilities = probabilities;
+	}
+
+	public int getDigit() {
+		return digit;
+	}
+
+	public float getProbability() {
+		return probabilities[digit];
+	}
+
+	/**
+	 * @return A copy of the softmax probabilities, indexed by digit.
+	 */
+	public float[] getProbabilities() {
+		return Arrays.copyOf(probabilities, probabilities.length);
+	}
+
+	@Override
+	public String toString() {
+		return "Classification [digit=" + digit + ", probability=" + getProbability() + "]";
+	}
+}
@@ -0,0 +1,194 @@
+package org.ml4j.nn.demo.inference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.ml4j.nn.demo.util.MnistExamples;
+
+/**
+ * Coalesces single-image classification requests into micro-batches, so that each forward pass runs
+ * matrix-matrix rather than matrix-vector operations.
+ *
+ * Each dispatcher thread waits for a request, then collects further requests until either
+ * maxBatchSize requests have been collected or maxDelayMicros have elapsed since the first, stacks
+ * them into one activation, runs a single forward pass and completes each request's future. A larger
+ * batch size increases throughput; a smaller delay bounds the latency added under light load.
+ *
+ * At most maxPendingRequests requests wait for a dispatcher - further requests are rejected by failing
+ * their future, rather than queueing without bound when requests arrive faster than they are classified.
+ *
+ * Instances should be closed to stop their dispatcher threads - pending requests are then failed.
+ *
+ */
+public class MicroBatchingClassifier implements AutoCloseable {
+
+	private final Function<float[][], Classification[]> batchClassifier;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final int maxPendingRequests;
+	private final BlockingQueue<PendingRequest> requests;
+	private final List<Thread> dispatcherThreads = new ArrayList<>();
+
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong requestCount = new AtomicLong();
+
+	private volatile boolean closed;
+
+	/**
+	 * @param classificationService The classification service running the forward passes.
+	 * @param maxBatchSize          The maximum number of requests in a micro-batch.
+	 * @param maxDelayMicros        The maximum time to wait for further requests after the first request
+	 *                              of a micro-batch.
+	 * @param dispatcherCount       The number of dispatcher threads, ie. the maximum number of micro-batches
+	 *                              classified concurrently.
+	 * @param maxPendingRequests    The maximum number of requests waiting for a dispatcher.
+	 */
+	public MicroBatchingClassifier(MnistClassificationService classificationService, int maxBatchSize,
+			long maxDelayMicros, int dispatcherCount, int maxPendingRequests) {
+		this(images -> classificationService.classify(
+				MnistClassificationService.createImageActivation(classificationService.getMatrixFactory(), images)),
+				maxBatchSize, maxDelayMicros, dispatcherCount, maxPendingRequests);
+	}
+
+	/**
+	 * @param batchClassifier Classifies a micro-batch of images in a single forward pass.
+	 */
+	MicroBatchingClassifier(Function<float[][], Classification[]> batchClassifier, int maxBatchSize,
+			long maxDelayMicros, int dispatcherCount, int maxPendingRequests) {
+		if (maxBatchSize <= 0 || maxDelayMicros < 0 || dispatcherCount <= 0 || maxPendingRequests <= 0) {
+			throw new IllegalArgumentException("Invalid micro-batching configuration");
+		}
+		this.batchClassifier = batchClassifier;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+		this.maxPendingRequests = maxPendingRequests;
+		this.requests = new LinkedBlockingQueue<>(maxPendingRequests);
+		for (int i = 0; i < dispatcherCount; i++) {
+			Thread thread = new Thread(this::dispatch, "micro-batch-dispatcher-" + (i + 1));
+			thread.setDaemon(true);
+			dispatcherThreads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * @param image The PIXEL_COUNT pixel features of the image.
+	 * @return The future classification of the image, failed with an IllegalStateException if the
+	 *         classifier is closed or maxPendingRequests requests are already waiting.
+	 */
+	public CompletableFuture<Classification> classify(float[] image) {
+		if (image.length != MnistExamples.PIXEL_COUNT) {
+			throw new IllegalArgumentException("Expected " + MnistExamples.PIXEL_COUNT + " pixels but found " + image.length);
+		}
+		CompletableFuture<Classification> future = new CompletableFuture<>();
+		if (closed) {
+			future.completeExceptionally(new IllegalStateException("Micro-batching classifier is closed"));
+			return future;
+		}
+		PendingRequest request = new PendingRequest(image, future);
+		if (!requests.offer(request)) {
+			future.completeExceptionally(new IllegalStateException("Too many pending requests:" + maxPendingRequests));
+			return future;
+		}
+		if (closed && requests.remove(request)) {
+			// Closed after the check above, possibly after close() drained the queue
+			future.completeExceptionally(new IllegalStateException("Micro-batching classifier is closed"));
+		}
+		return future;
+	}
+
+	/**
+	 * @return The number of micro-batches classified.
+	 */
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * @return The average number of requests per micro-batch.
+	 */
+	public double getAverageBatchSize() {
+		long batches = batchCount.get();
+		return batches == 0 ? 0 : (double) requestCount.get() / batches;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (Thread thread : dispatcherThreads) {
+			thread.interrupt();
+		}
+		PendingRequest request;
+		while ((request = requests.poll()) != null) {
+			request.future.completeExceptionally(new IllegalStateException("Micro-batching classifier is closed"));
+		}
+	}
+
+	private void dispatch() {
+		List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+		while (!closed) {
+			try {
+				batch.add(requests.take());
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (batch.size() < maxBatchSize) {
+					// Take whatever is already queued without waiting
+					if (requests.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					PendingRequest request = remaining > 0 ? requests.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (request == null) {
+						break;
+					}
+					batch.add(request);
+				}
+			} catch (InterruptedException e) {
+				fail(batch, new IllegalStateException("Micro-batching classifier is closed"));
+				return;
+			}
+			classify(batch);
+			batch.clear();
+		}
+	}
+
+	private void classify(List<PendingRequest> batch) {
+		float[][] images = new float[batch.size()][];
+		for (int i = 0; i < images.length; i++) {
+			images[i] = batch.get(i).image;
+		}
+		try {
+			Classification[] classifications = batchClassifier.apply(images);
+			batchCount.incrementAndGet();
+			requestCount.addAndGet(images.length);
+			for (int i = 0; i < classifications.length; i++) {
+				batch.get(i).future.complete(classifications[i]);
+			}
+		} catch (Throwable e) {
+			// Including Errors such as OutOfMemoryError - the batch fails, and this dispatcher serves the next
+			fail(batch, e);
+		}
+	}
+
+	private static void fail(List<PendingRequest> batch, Throwable cause) {
+		for (PendingRequest request : batch) {
+			request.future.completeExceptionally(cause);
+		}
+	}
+
+	private static class PendingRequest {
+
+		private final float[] image;
+		private final CompletableFuture<Classification> future;
+
+		PendingRequest(float[] image, CompletableFuture<Classification> future) {
+			this.image = image;
+			this.future = future;
+		}
+	}
+}
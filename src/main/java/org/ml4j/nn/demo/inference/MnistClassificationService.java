@@ -0,0 +1,165 @@
+package org.ml4j.nn.demo.inference;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
+import org.ml4j.nn.demo.util.PretrainedWeightsRegistry;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationImpl;
+import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Serves concurrent Mnist classification requests against a single, shared network.
+ *
+ * Thread-safety contract: the network is built once and is never trained, so it is only read by
+ * forward propagation. All per-call state lives in a LayeredFeedForwardNeuralNetworkContext, and this
+ * service keeps a fixed pool of contexts, each used by at most one thread at a time. Any number of
+ * platform or virtual threads may call the classify methods concurrently - when more calls are in
+ * progress than there are pooled contexts, callers wait for a context to be returned to the pool.
+ *
+ * This contract rests on an assumption about ml4j - that forward propagation through a network which is
+ * not being trained keeps no shared mutable state outside the context. MnistClassificationServiceConcurrencyTest
+ * checks it for the pretrained network, by classifying the Mnist test set from many threads at once.
+ *
+ */
+public class MnistClassificationService {
+
+	private final LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private final MatrixFactory matrixFactory;
+	private final BlockingQueue<LayeredFeedForwardNeuralNetworkContext> contextPool;
+
+	/**
+	 * @param session         The session the network was built with.
+	 * @param neuralNetwork   The network, which must not be trained while in use by this service.
+	 * @param contextPoolSize The number of contexts, ie. the maximum number of concurrent forward passes.
+	 */
+	public MnistClassificationService(DefaultSession session, LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork,
+			int contextPoolSize) {
+		if (contextPoolSize <= 0) {
+			throw new IllegalArgumentException("Context pool size must be positive");
+		}
+		this.neuralNetwork = neuralNetwork;
+		this.matrixFactory = session.getMatrixFactory();
+		this.contextPool = new ArrayBlockingQueue<>(contextPoolSize);
+		for (int i = 0; i < contextPoolSize; i++) {
+			contextPool.add(session.createLayeredSupervisedFeedForwardNeuralNetworkContext());
+		}
+	}
+
+	/**
+	 * Creates a service for the pretrained five-layer network with a convolutional layer, with one context
+	 * per available processor.
+	 *
+	 * @param sessionFactory The session factory.
+	 * @return The service.
+	 */
+	public static MnistClassificationService forPretrainedFiveLayerNetwork(QuickstartSessionFactory sessionFactory) {
+		DefaultSession session = sessionFactory.createSession();
+		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer(
+				session, PretrainedWeightsRegistry.getInstance().getPretrainedMnistWeights(session.getMatrixFactory()));
+		return new MnistClassificationService(session, neuralNetwork, Runtime.getRuntime().availableProcessors());
+	}
+
+	public MatrixFactory getMatrixFactory() {
+		return matrixFactory;
+	}
+
+	/**
+	 * @param image The PIXEL_COUNT pixel features of the image.
+	 * @return The classification of the image.
+	 */
+	public Classification classify(float[] image) {
+		return classify(createImageActivation(matrixFactory, new float[][] { image }))[0];
+	}
+
+	/**
+	 * @param images The PIXEL_COUNT pixel features of each image.
+	 * @return The classification of each image, computed in a single forward pass.
+	 */
+	public Classification[] classify(List<float[]> images) {
+		return classify(createImageActivation(matrixFactory, images.toArray(new float[images.size()][])));
+	}
+
+	/**
+	 * @param image    The PIXEL_COUNT pixel features of the image.
+	 * @param executor The executor to classify the image on.
+	 * @return The future classification of the image.
+	 */
+	public CompletableFuture<Classification> classifyAsync(float[] image, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> classify(image), executor);
+	}
+
+	/**
+	 * @param imageActivations The image activations, one column per image.
+	 * @return The classification of each image.
+	 */
+	public Classification[] classify(NeuronsActivation imageActivations) {
+		LayeredFeedForwardNeuralNetworkContext context = borrowContext();
+		float[] outputs;
+		int exampleCount;
+		try {
+			NeuronsActivation output = neuralNetwork.forwardPropagate(imageActivations, context).getOutput();
+			exampleCount = output.getActivations(matrixFactory).getColumns();
+			outputs = output.getActivations(matrixFactory).getRowByRowArray();
+		} finally {
+			contextPool.add(context);
+		}
+		Classification[] classifications = new Classification[exampleCount];
+		for (int e = 0; e < exampleCount; e++) {
+			float[] probabilities = new float[MnistExamples.LABEL_COUNT];
+			int digit = 0;
+			for (int c = 0; c < probabilities.length; c++) {
+				probabilities[c] = outputs[c * exampleCount + e];
+				if (probabilities[c] > probabilities[digit]) {
+					digit = c;
+				}
+			}
+			classifications[e] = new Classification(digit, probabilities);
+		}
+		return classifications;
+	}
+
+	/**
+	 * Stacks images into a single activation, one column per image.
+	 *
+	 * @param matrixFactory The matrix factory.
+	 * @param images        The PIXEL_COUNT pixel features of each image.
+	 * @return The image activations.
+	 */
+	public static NeuronsActivation createImageActivation(MatrixFactory matrixFactory, float[][] images) {
+		int count = images.length;
+		float[] data = new float[MnistExamples.PIXEL_COUNT * count];
+		for (int e = 0; e < count; e++) {
+			float[] image = images[e];
+			if (image.length != MnistExamples.PIXEL_COUNT) {
+				throw new IllegalArgumentException("Expected " + MnistExamples.PIXEL_COUNT + " pixels but found " + image.length);
+			}
+			for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+				data[p * count + e] = image[p];
+			}
+		}
+		return new NeuronsActivationImpl(new Neurons(MnistExamples.PIXEL_COUNT, false),
+				matrixFactory.createMatrixFromRowsByRowsArray(MnistExamples.PIXEL_COUNT, count, data),
+				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, true);
+	}
+
+	private LayeredFeedForwardNeuralNetworkContext borrowContext() {
+		try {
+			return contextPool.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for a network context", e);
+		}
+	}
+}
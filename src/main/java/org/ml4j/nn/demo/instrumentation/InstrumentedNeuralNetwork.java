@@ -0,0 +1,101 @@
+package org.ml4j.nn.demo.instrumentation;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.layers.FeedForwardLayer;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Wraps a LayeredSupervisedFeedForwardNeuralNetwork to record per-layer metrics.
+ *
+ * Forward propagation is performed layer by layer through each layer's own context, recording the wall
+ * time, bytes allocated and matrix shapes of each named layer. Training is recorded as a whole under the
+ * name "train", as the backward pass is not exposed per layer by the network.
+ *
+ * This deviates from instrumentation enabled on a LayeredFeedForwardNeuralNetworkContext: the context has
+ * no hook for observing layers, so metrics are only recorded for calls made through this wrapper - calls
+ * made directly on the wrapped network, including those of MiniBatchTrainer, are not recorded - and the
+ * train metrics do not break the backward pass down by layer.
+ *
+ */
+public class InstrumentedNeuralNetwork {
+
+	public static final String TRAIN = "train";
+
+	private final LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private final MatrixFactory matrixFactory;
+	private final String[] layerNames;
+	private final LayerMetricsRecorder recorder;
+
+	/**
+	 * @param neuralNetwork The network to instrument.
+	 * @param matrixFactory The matrix factory, used to obtain activation shapes.
+	 * @param layerNames    The name to record for each layer, in layer order.
+	 * @param recorder      The recorder.
+	 */
+	public InstrumentedNeuralNetwork(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork,
+			MatrixFactory matrixFactory, String[] layerNames, LayerMetricsRecorder recorder) {
+		if (layerNames.length != neuralNetwork.getNumberOfLayers()) {
+			throw new IllegalArgumentException("Expected " + neuralNetwork.getNumberOfLayers() + " layer names");
+		}
+		this.neuralNetwork = neuralNetwork;
+		this.matrixFactory = matrixFactory;
+		this.layerNames = layerNames.clone();
+		this.recorder = recorder;
+	}
+
+	public LayeredSupervisedFeedForwardNeuralNetwork getNeuralNetwork() {
+		return neuralNetwork;
+	}
+
+	public LayerMetricsRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Forward propagates the input through each layer in turn, recording the metrics of each layer.
+	 *
+	 * @param input   The input activations.
+	 * @param context The network context.
+	 * @return The output activations of the final layer.
+	 */
+	public NeuronsActivation forwardPropagate(NeuronsActivation input, LayeredFeedForwardNeuralNetworkContext context) {
+		NeuronsActivation activation = input;
+		String inputShape = shape(activation);
+		for (int i = 0; i < layerNames.length; i++) {
+			FeedForwardLayer<?, ?> layer = neuralNetwork.getLayer(i);
+			long startAllocatedBytes = recorder.currentThreadAllocatedBytes();
+			long startNanos = System.nanoTime();
+			activation = layer.forwardPropagate(activation, context.getLayerContext(i)).getOutput();
+			long nanos = System.nanoTime() - startNanos;
+			long bytes = startAllocatedBytes < 0 ? -1 : recorder.currentThreadAllocatedBytes() - startAllocatedBytes;
+			// Shapes are obtained outside of the measured region
+			String outputShape = shape(activation);
+			recorder.getMetrics(layerNames[i]).record(nanos, bytes, inputShape, outputShape);
+			inputShape = outputShape;
+		}
+		return activation;
+	}
+
+	/**
+	 * Trains the network, recording the metrics of the train call as a whole.
+	 *
+	 * @param trainingData    The training data activations.
+	 * @param trainingLabels  The training label activations.
+	 * @param trainingContext The training context.
+	 */
+	public void train(NeuronsActivation trainingData, NeuronsActivation trainingLabels,
+			LayeredFeedForwardNeuralNetworkContext trainingContext) {
+		String inputShape = shape(trainingData);
+		String outputShape = shape(trainingLabels);
+		long startAllocatedBytes = recorder.currentThreadAllocatedBytes();
+		long startNanos = System.nanoTime();
+		neuralNetwork.train(trainingData, trainingLabels, trainingContext);
+		recorder.record(TRAIN, startNanos, startAllocatedBytes, inputShape, outputShape);
+	}
+
+	private String shape(NeuronsActivation activation) {
+		return activation.getActivations(matrixFactory).getRows() + "x" + activation.getActivations(matrixFactory).getColumns();
+	}
+}
@@ -0,0 +1,80 @@
+package org.ml4j.nn.demo.instrumentation;
+
+/**
+ * Metrics recorded for one layer ( or operation ) of an instrumented network - invocation count, wall
+ * time, bytes allocated by the invoking thread, and the most recent input and output matrix shapes.
+ *
+ */
+public class LayerMetrics implements LayerMetricsMXBean {
+
+	private final String name;
+
+	private long invocations;
+	private long totalNanos;
+	private long maxNanos;
+	private long allocatedBytes;
+	private String inputShape = "";
+	private String outputShape = "";
+
+	public LayerMetrics(String name) {
+		this.name = name;
+	}
+
+	synchronized void record(long nanos, long bytes, String inputShape, String outputShape) {
+		invocations++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+		if (bytes > 0) {
+			allocatedBytes += bytes;
+		}
+		this.inputShape = inputShape;
+		this.outputShape = outputShape;
+	}
+
+	synchronized void reset() {
+		invocations = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+		allocatedBytes = 0;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized long getInvocations() {
+		return invocations;
+	}
+
+	@Override
+	public synchronized double getTotalMillis() {
+		return totalNanos / 1e6;
+	}
+
+	@Override
+	public synchronized double getMeanMicros() {
+		return invocations == 0 ? 0 : totalNanos / 1e3 / invocations;
+	}
+
+	@Override
+	public synchronized double getMaxMicros() {
+		return maxNanos / 1e3;
+	}
+
+	@Override
+	public synchronized long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	@Override
+	public synchronized String getInputShape() {
+		return inputShape;
+	}
+
+	@Override
+	public synchronized String getOutputShape() {
+		return outputShape;
+	}
+}
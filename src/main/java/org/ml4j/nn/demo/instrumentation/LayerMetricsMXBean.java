@@ -0,0 +1,24 @@
+package org.ml4j.nn.demo.instrumentation;
+
+/**
+ * JMX view of the metrics recorded for one layer ( or operation ) of an instrumented network.
+ *
+ */
+public interface LayerMetricsMXBean {
+
+	String getName();
+
+	long getInvocations();
+
+	double getTotalMillis();
+
+	double getMeanMicros();
+
+	double getMaxMicros();
+
+	long getAllocatedBytes();
+
+	String getInputShape();
+
+	String getOutputShape();
+}
@@ -0,0 +1,116 @@
+package org.ml4j.nn.demo.instrumentation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records per-layer metrics for instrumented networks, and exports them as a summary table or as JMX
+ * MXBeans ( one per layer, under the domain "org.ml4j.nn.demo" ).
+ *
+ */
+public class LayerMetricsRecorder {
+
+	private static final String JMX_DOMAIN = "org.ml4j.nn.demo";
+
+	private final String networkName;
+	private final Map<String, LayerMetrics> metricsByName = new ConcurrentHashMap<>();
+	private final List<String> names = new ArrayList<>();
+	private final com.sun.management.ThreadMXBean allocationMXBean;
+
+	public LayerMetricsRecorder(String networkName) {
+		this.networkName = networkName;
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+			this.allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		} else {
+			this.allocationMXBean = null;
+		}
+	}
+
+	public String getNetworkName() {
+		return networkName;
+	}
+
+	/**
+	 * @param name The layer or operation name.
+	 * @return The metrics for the name, created if not yet recorded.
+	 */
+	public LayerMetrics getMetrics(String name) {
+		return metricsByName.computeIfAbsent(name, n -> {
+			synchronized (names) {
+				names.add(n);
+			}
+			return new LayerMetrics(n);
+		});
+	}
+
+	/**
+	 * @return The number of bytes allocated by the current thread so far, or -1 if not supported.
+	 */
+	long currentThreadAllocatedBytes() {
+		return allocationMXBean == null ? -1 : allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	void record(String name, long startNanos, long startAllocatedBytes, String inputShape, String outputShape) {
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = startAllocatedBytes < 0 ? -1 : currentThreadAllocatedBytes() - startAllocatedBytes;
+		getMetrics(name).record(nanos, bytes, inputShape, outputShape);
+	}
+
+	public void reset() {
+		for (LayerMetrics metrics : metricsByName.values()) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * Registers an MXBean for each layer recorded so far, named
+	 * org.ml4j.nn.demo:type=LayerMetrics,network=networkName,layer=layerName.
+	 */
+	public void registerMBeans() {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (String name : getNames()) {
+			try {
+				ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=LayerMetrics,network="
+						+ ObjectName.quote(networkName) + ",layer=" + ObjectName.quote(name));
+				if (!mbeanServer.isRegistered(objectName)) {
+					mbeanServer.registerMBean(metricsByName.get(name), objectName);
+				}
+			} catch (JMException e) {
+				throw new IllegalStateException("Unable to register layer metrics MBean for " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * @return A summary table of the metrics recorded for each layer, in the order first recorded.
+	 */
+	public String toSummaryTable() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-24s %10s %12s %12s %12s %16s %16s %16s%n", "Layer", "Calls", "Total ms",
+				"Mean us", "Max us", "Allocated bytes", "Input shape", "Output shape"));
+		for (String name : getNames()) {
+			LayerMetrics metrics = metricsByName.get(name);
+			table.append(String.format("%-24s %10d %12.3f %12.1f %12.1f %16d %16s %16s%n", name,
+					metrics.getInvocations(), metrics.getTotalMillis(), metrics.getMeanMicros(),
+					metrics.getMaxMicros(), metrics.getAllocatedBytes(), metrics.getInputShape(),
+					metrics.getOutputShape()));
+		}
+		return table.toString();
+	}
+
+	private List<String> getNames() {
+		synchronized (names) {
+			return new ArrayList<>(names);
+		}
+	}
+}
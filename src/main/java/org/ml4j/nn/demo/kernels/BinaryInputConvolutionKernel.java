@@ -0,0 +1,84 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Convolutional BinaryInputKernel for single-channel images, with stride 1 and no padding.
+ *
+ * Rather than sliding each filter over every output position, each set pixel scatters its filter weights
+ * to the output positions whose receptive field contains it, so the work is proportional to the number
+ * of set pixels. Outputs are written depth first - filter, then output row, then output column - matching
+ * the layout of Neurons3D activations.
+ *
+ */
+public class BinaryInputConvolutionKernel implements BinaryInputKernel {
+
+	private final int inputWidth;
+	private final int filterHeight;
+	private final int filterWidth;
+	private final int filterCount;
+	private final int outputHeight;
+	private final int outputWidth;
+	private final float[] weights;
+	private final float[] biases;
+
+	/**
+	 * @param weights      The filter weights, one row per filter and one column per filter position ( row then
+	 *                     column ), row by row.
+	 * @param biases       The bias of each filter.
+	 * @param inputHeight  The input image height.
+	 * @param inputWidth   The input image width.
+	 * @param filterHeight The filter height.
+	 * @param filterWidth  The filter width.
+	 */
+	public BinaryInputConvolutionKernel(float[] weights, float[] biases, int inputHeight, int inputWidth,
+			int filterHeight, int filterWidth) {
+		this.filterCount = biases.length;
+		if (weights.length != filterCount * filterHeight * filterWidth) {
+			throw new IllegalArgumentException("Weights do not match " + filterCount + " filters of " + filterHeight
+					+ "x" + filterWidth);
+		}
+		this.inputWidth = inputWidth;
+		this.filterHeight = filterHeight;
+		this.filterWidth = filterWidth;
+		this.outputHeight = inputHeight - filterHeight + 1;
+		this.outputWidth = inputWidth - filterWidth + 1;
+		this.weights = weights.clone();
+		this.biases = biases.clone();
+	}
+
+	@Override
+	public int getOutputCount() {
+		return filterCount * outputHeight * outputWidth;
+	}
+
+	@Override
+	public void computeWeightedSums(int[] setPixelIndices, int setPixelCount, float[] output, int outputOffset) {
+		int outputsPerFilter = outputHeight * outputWidth;
+		int filterSize = filterHeight * filterWidth;
+		for (int f = 0; f < filterCount; f++) {
+			int filterOutputOffset = outputOffset + f * outputsPerFilter;
+			for (int i = 0; i < outputsPerFilter; i++) {
+				output[filterOutputOffset + i] = biases[f];
+			}
+		}
+		for (int s = 0; s < setPixelCount; s++) {
+			int pixelRow = setPixelIndices[s] / inputWidth;
+			int pixelColumn = setPixelIndices[s] % inputWidth;
+			// The filter positions for which this pixel lies within an output's receptive field
+			int firstFilterRow = Math.max(0, pixelRow - outputHeight + 1);
+			int lastFilterRow = Math.min(filterHeight - 1, pixelRow);
+			int firstFilterColumn = Math.max(0, pixelColumn - outputWidth + 1);
+			int lastFilterColumn = Math.min(filterWidth - 1, pixelColumn);
+			for (int f = 0; f < filterCount; f++) {
+				int filterOutputOffset = outputOffset + f * outputsPerFilter;
+				int filterWeightsOffset = f * filterSize;
+				for (int ky = firstFilterRow; ky <= lastFilterRow; ky++) {
+					int outputRowOffset = filterOutputOffset + (pixelRow - ky) * outputWidth + pixelColumn;
+					int weightsRowOffset = filterWeightsOffset + ky * filterWidth;
+					for (int kx = firstFilterColumn; kx <= lastFilterColumn; kx++) {
+						output[outputRowOffset - kx] += weights[weightsRowOffset + kx];
+					}
+				}
+			}
+		}
+	}
+}
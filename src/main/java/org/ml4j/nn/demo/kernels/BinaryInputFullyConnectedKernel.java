@@ -0,0 +1,51 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Fully connected BinaryInputKernel.
+ *
+ * The weights are held transposed ( one row per input ), so that each set pixel adds one contiguous row
+ * of weights to the outputs.
+ *
+ */
+public class BinaryInputFullyConnectedKernel implements BinaryInputKernel {
+
+	private final int outputCount;
+	private final float[] weightsByInput;
+	private final float[] biases;
+
+	/**
+	 * @param weights     The weights, one row per output and one column per input, row by row.
+	 * @param outputCount The number of outputs.
+	 * @param inputCount  The number of inputs.
+	 * @param biases      The bias of each output.
+	 */
+	public BinaryInputFullyConnectedKernel(float[] weights, int outputCount, int inputCount, float[] biases) {
+		if (weights.length != outputCount * inputCount || biases.length != outputCount) {
+			throw new IllegalArgumentException("Weights and biases do not match " + outputCount + "x" + inputCount);
+		}
+		this.outputCount = outputCount;
+		this.biases = biases.clone();
+		this.weightsByInput = new float[weights.length];
+		for (int o = 0; o < outputCount; o++) {
+			for (int i = 0; i < inputCount; i++) {
+				weightsByInput[i * outputCount + o] = weights[o * inputCount + i];
+			}
+		}
+	}
+
+	@Override
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	@Override
+	public void computeWeightedSums(int[] setPixelIndices, int setPixelCount, float[] output, int outputOffset) {
+		System.arraycopy(biases, 0, output, outputOffset, outputCount);
+		for (int s = 0; s < setPixelCount; s++) {
+			int weightsOffset = setPixelIndices[s] * outputCount;
+			for (int o = 0; o < outputCount; o++) {
+				output[outputOffset + o] += weightsByInput[weightsOffset + o];
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * A first-layer kernel over bit-packed binary images, computing each output's weighted sum by adding the
+ * weights of the set pixels only - no multiplications are required as every input is either 0 or 1.
+ *
+ */
+public interface BinaryInputKernel {
+
+	/**
+	 * @return The number of outputs per image.
+	 */
+	int getOutputCount();
+
+	/**
+	 * Computes the weighted sums ( including biases ) of one image.
+	 *
+	 * @param setPixelIndices The indices of the set pixels of the image.
+	 * @param setPixelCount   The number of set pixels.
+	 * @param output          The buffer to write the getOutputCount() weighted sums to.
+	 * @param outputOffset    The offset in the output buffer of the first weighted sum.
+	 */
+	void computeWeightedSums(int[] setPixelIndices, int setPixelCount, float[] output, int outputOffset);
+}
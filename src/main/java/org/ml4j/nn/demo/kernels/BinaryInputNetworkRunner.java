@@ -0,0 +1,147 @@
+package org.ml4j.nn.demo.kernels;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.axons.WeightsMatrixOrientation;
+import org.ml4j.nn.demo.training.NetworkWeights;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationImpl;
+import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
+import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Forward propagates bit-packed binary images through a network whose first layer has a sigmoid
+ * activation, computing the first layer with a BinaryInputKernel and the remaining layers with the
+ * network's own layers.
+ *
+ */
+public class BinaryInputNetworkRunner {
+
+	private final LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private final BinaryInputKernel firstLayerKernel;
+	private final Neurons firstLayerOutputNeurons;
+	private final NeuronsActivationFormat<?> firstLayerOutputFormat;
+	private final MatrixFactory matrixFactory;
+
+	/**
+	 * @param neuralNetwork           The network.
+	 * @param firstLayerKernel        The kernel equivalent to the first layer's axons.
+	 * @param firstLayerOutputNeurons The output neurons of the first layer, without bias unit.
+	 * @param firstLayerOutputFormat  The format of the first layer's output activations.
+	 * @param matrixFactory           The matrix factory.
+	 */
+	public BinaryInputNetworkRunner(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork,
+			BinaryInputKernel firstLayerKernel, Neurons firstLayerOutputNeurons,
+			NeuronsActivationFormat<?> firstLayerOutputFormat, MatrixFactory matrixFactory) {
+		if (firstLayerOutputNeurons.getNeuronCountExcludingBias() != firstLayerKernel.getOutputCount()) {
+			throw new IllegalArgumentException("First layer kernel does not match the output neurons");
+		}
+		this.neuralNetwork = neuralNetwork;
+		this.firstLayerKernel = firstLayerKernel;
+		this.firstLayerOutputNeurons = firstLayerOutputNeurons;
+		this.firstLayerOutputFormat = firstLayerOutputFormat;
+		this.matrixFactory = matrixFactory;
+	}
+
+	/**
+	 * Creates a runner for a network of the pretrained five-layer architecture, with a convolutional first
+	 * layer. The first layer weights and biases are read from the network, as they are when the runner is
+	 * created - the runner does not see later changes, such as further training.
+	 *
+	 * @param neuralNetwork The network.
+	 * @param matrixFactory The matrix factory.
+	 * @return The runner.
+	 */
+	public static BinaryInputNetworkRunner forPretrainedFiveLayerNetwork(
+			LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork, MatrixFactory matrixFactory) {
+		NetworkWeights networkWeights = NetworkWeights.read(neuralNetwork);
+		BinaryInputKernel kernel = new BinaryInputConvolutionKernel(getFirstLayerWeightsByOutput(networkWeights),
+				networkWeights.getBiases(0), 28, 28, 9, 9);
+		return new BinaryInputNetworkRunner(neuralNetwork, kernel, new Neurons3D(20, 20, 6, false),
+				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, matrixFactory);
+	}
+
+	/**
+	 * Creates a runner for a network with a fully connected first layer over the image pixels, such as the
+	 * simple two-layer network.
+	 *
+	 * @param neuralNetwork The network.
+	 * @param weights       The first layer weights, one row per output and one column per pixel, row by row.
+	 * @param biases        The first layer biases.
+	 * @param matrixFactory The matrix factory.
+	 * @return The runner.
+	 */
+	public static BinaryInputNetworkRunner forFullyConnectedFirstLayer(
+			LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork, float[] weights, float[] biases,
+			MatrixFactory matrixFactory) {
+		BinaryInputKernel kernel = new BinaryInputFullyConnectedKernel(weights, biases.length, MnistExamples.PIXEL_COUNT,
+				biases);
+		return new BinaryInputNetworkRunner(neuralNetwork, kernel, new Neurons(biases.length, false),
+				NeuronsActivationFormat.ROWS_SPAN_FEATURE_SET, matrixFactory);
+	}
+
+	/**
+	 * @param images The bit-packed images.
+	 * @return The sigmoid output activations of the first layer, one column per image.
+	 */
+	public NeuronsActivation forwardPropagateFirstLayer(BitPackedImages images) {
+		int count = images.getExampleCount();
+		int outputCount = firstLayerKernel.getOutputCount();
+		int[] setPixelIndices = new int[MnistExamples.PIXEL_COUNT];
+		float[] weightedSums = new float[outputCount];
+		float[] data = new float[outputCount * count];
+		for (int e = 0; e < count; e++) {
+			int setPixelCount = images.getSetPixelIndices(e, setPixelIndices);
+			firstLayerKernel.computeWeightedSums(setPixelIndices, setPixelCount, weightedSums, 0);
+			for (int o = 0; o < outputCount; o++) {
+				data[o * count + e] = sigmoid(weightedSums[o]);
+			}
+		}
+		return new NeuronsActivationImpl(firstLayerOutputNeurons,
+				matrixFactory.createMatrixFromRowsByRowsArray(outputCount, count, data), firstLayerOutputFormat, true);
+	}
+
+	/**
+	 * @param images  The bit-packed images.
+	 * @param context The network context.
+	 * @return The output activations of the network, one column per image.
+	 */
+	public NeuronsActivation forwardPropagate(BitPackedImages images, LayeredFeedForwardNeuralNetworkContext context) {
+		NeuronsActivation activation = forwardPropagateFirstLayer(images);
+		for (int i = 1; i < neuralNetwork.getNumberOfLayers(); i++) {
+			activation = neuralNetwork.getLayer(i).forwardPropagate(activation, context.getLayerContext(i)).getOutput();
+		}
+		return activation;
+	}
+
+	/**
+	 * @param networkWeights The network's parameters.
+	 * @return The first layer weights, one row per output, row by row.
+	 */
+	private static float[] getFirstLayerWeightsByOutput(NetworkWeights networkWeights) {
+		float[] weights = networkWeights.getWeights(0);
+		if (weights == null) {
+			throw new IllegalArgumentException("First layer has no connection weights");
+		}
+		if (networkWeights.getWeightsOrientation(0) != WeightsMatrixOrientation.COLUMNS_SPAN_OUTPUT_DIMENSIONS) {
+			return weights;
+		}
+		int rows = networkWeights.getWeightsRows(0);
+		int columns = networkWeights.getWeightsColumns(0);
+		float[] transposed = new float[weights.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				transposed[c * rows + r] = weights[r * columns + c];
+			}
+		}
+		return transposed;
+	}
+
+	private static float sigmoid(float x) {
+		return (float) (1 / (1 + Math.exp(-x)));
+	}
+}
@@ -0,0 +1,95 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.nio.ByteBuffer;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * Binary Mnist images packed one bit per pixel, in the bit-packed pixel layout of MnistExamples -
+ * BIT_PACKED_BYTES_PER_EXAMPLE bytes per image, least significant bit first.
+ *
+ * A set bit corresponds to a pixel feature of 1 in the binarised encoding of
+ * KagglePixelFeaturesMatrixCsvDataExtractor, so 32 times less memory is needed than for float features.
+ * Images of bit-packed MnistExamples, such as a memory-mapped bit-packed binary file, are read in place.
+ *
+ */
+public class BitPackedImages {
+
+	private final ByteBuffer pixels;
+	private final int exampleCount;
+
+	/**
+	 * @param pixels       The bit-packed pixels, BIT_PACKED_BYTES_PER_EXAMPLE bytes per image, starting at index
+	 *                     0 of the buffer.
+	 * @param exampleCount The number of images.
+	 */
+	public BitPackedImages(ByteBuffer pixels, int exampleCount) {
+		if (pixels.limit() < (long) exampleCount * MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE) {
+			throw new IllegalArgumentException("Insufficient pixel data for " + exampleCount + " images");
+		}
+		this.pixels = pixels;
+		this.exampleCount = exampleCount;
+	}
+
+	/**
+	 * @param examples     The examples.
+	 * @param startExample The first example, inclusive.
+	 * @param endExample   The last example, exclusive.
+	 * @return The bit-packed images of the examples in the range - a view of the examples' pixels if they
+	 *         are bit-packed.
+	 */
+	public static BitPackedImages fromExamples(MnistExamples examples, int startExample, int endExample) {
+		return new BitPackedImages(examples.getBitPackedPixels(startExample, endExample), endExample - startExample);
+	}
+
+	/**
+	 * @param activation    Pixel feature activations, one column per image.
+	 * @param matrixFactory The matrix factory.
+	 * @return The bit-packed images, with a bit set for each non-zero feature.
+	 */
+	public static BitPackedImages fromActivation(NeuronsActivation activation, MatrixFactory matrixFactory) {
+		int count = activation.getActivations(matrixFactory).getColumns();
+		float[] features = activation.getActivations(matrixFactory).getRowByRowArray();
+		byte[] bytes = new byte[count * MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE];
+		for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+			int rowOffset = p * count;
+			for (int e = 0; e < count; e++) {
+				if (features[rowOffset + e] != 0) {
+					bytes[e * MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE + (p >>> 3)] |= 1 << (p & 7);
+				}
+			}
+		}
+		return new BitPackedImages(ByteBuffer.wrap(bytes), count);
+	}
+
+	public int getExampleCount() {
+		return exampleCount;
+	}
+
+	public boolean isPixelSet(int exampleIndex, int pixelIndex) {
+		return (pixels.get(exampleIndex * MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE + (pixelIndex >>> 3))
+				& (1 << (pixelIndex & 7))) != 0;
+	}
+
+	/**
+	 * Writes the indices of the set pixels of an image.
+	 *
+	 * @param exampleIndex The example index.
+	 * @param pixelIndices A buffer of at least PIXEL_COUNT ints to write the set pixel indices to.
+	 * @return The number of set pixels.
+	 */
+	public int getSetPixelIndices(int exampleIndex, int[] pixelIndices) {
+		int count = 0;
+		int offset = exampleIndex * MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE;
+		for (int b = 0; b < MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE; b++) {
+			int bits = pixels.get(offset + b) & 0xFF;
+			while (bits != 0) {
+				pixelIndices[count++] = (b << 3) + Integer.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+			}
+		}
+		return count;
+	}
+}
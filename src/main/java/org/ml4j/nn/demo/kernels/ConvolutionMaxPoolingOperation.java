@@ -0,0 +1,171 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * A ConvolutionOperation followed by a MaxPoolingOperation, fused into a single InferenceOperation that
+ * writes only the pooled output.
+ *
+ * The convolution's weighted sums are computed one filter and a few rows of pooling windows at a time,
+ * into a scratch block of around BLOCK_SIZE floats ( for large batches, a single row of pooling windows -
+ * 2 x 20 x exampleCount floats for the pretrained network's first layer, rather than the
+ * 6 x 20 x 20 x exampleCount of the unfused convolution's output ) - so the full convolution output is
+ * never written to memory and read back. As the activation function is non-decreasing, the maximum of the
+ * activations of a window is the activation of its maximum weighted sum, so the activation is applied
+ * once per pooled output rather than once per convolution output. The weighted sums are accumulated in
+ * the same order as by ConvolutionOperation, so the outputs are identical to those of the unfused
+ * operations.
+ *
+ */
+public class ConvolutionMaxPoolingOperation implements InferenceOperation {
+
+	/**
+	 * The target size of the scratch block, in floats - small enough to stay in a typical L2 cache.
+	 */
+	private static final int BLOCK_SIZE = 16384;
+
+	private final ConvolutionOperation convolutionOperation;
+	private final MaxPoolingOperation maxPoolingOperation;
+	private final int outputHeight;
+	private final int outputWidth;
+	private final float scale;
+
+	/**
+	 * @param convolutionOperation The convolution operation, with a LINEAR or SIGMOID activation function.
+	 * @param maxPoolingOperation  The max pooling operation, pooling the convolution's output.
+	 */
+	public ConvolutionMaxPoolingOperation(ConvolutionOperation convolutionOperation,
+			MaxPoolingOperation maxPoolingOperation) {
+		if (!canFuse(convolutionOperation, maxPoolingOperation)) {
+			throw new IllegalArgumentException("Unable to fuse a convolution with a " + convolutionOperation.getActivationFunction()
+					+ " activation function and a max pooling operation of a different shape");
+		}
+		this.convolutionOperation = convolutionOperation;
+		this.maxPoolingOperation = maxPoolingOperation;
+		this.outputHeight = convolutionOperation.getOutputHeight() / maxPoolingOperation.getWindowHeight();
+		this.outputWidth = convolutionOperation.getOutputWidth() / maxPoolingOperation.getWindowWidth();
+		this.scale = maxPoolingOperation.isScaleOutputs()
+				? maxPoolingOperation.getWindowHeight() * maxPoolingOperation.getWindowWidth()
+				: 1;
+	}
+
+	/**
+	 * @param convolutionOperation The convolution operation.
+	 * @param maxPoolingOperation  The max pooling operation.
+	 * @return Whether the max pooling operation pools the output of the convolution operation, and the
+	 *         convolution's activation function is non-decreasing.
+	 */
+	public static boolean canFuse(ConvolutionOperation convolutionOperation, MaxPoolingOperation maxPoolingOperation) {
+		return (convolutionOperation.getActivationFunction() == InferenceActivationFunction.LINEAR
+				|| convolutionOperation.getActivationFunction() == InferenceActivationFunction.SIGMOID)
+				&& convolutionOperation.getFilterCount() == maxPoolingOperation.getDepth()
+				&& convolutionOperation.getOutputHeight() == maxPoolingOperation.getInputHeight()
+				&& convolutionOperation.getOutputWidth() == maxPoolingOperation.getInputWidth();
+	}
+
+	public ConvolutionOperation getConvolutionOperation() {
+		return convolutionOperation;
+	}
+
+	public MaxPoolingOperation getMaxPoolingOperation() {
+		return maxPoolingOperation;
+	}
+
+	@Override
+	public int getInputCount() {
+		return convolutionOperation.getInputCount();
+	}
+
+	@Override
+	public int getOutputCount() {
+		return maxPoolingOperation.getOutputCount();
+	}
+
+	@Override
+	public int getScratchSize(int exampleCount) {
+		int rowLength = convolutionOperation.getOutputWidth() * exampleCount;
+		return Math.min(convolutionOperation.getOutputHeight() * rowLength,
+				Math.max(BLOCK_SIZE, maxPoolingOperation.getWindowHeight() * rowLength));
+	}
+
+	/**
+	 * Forward propagates with a newly allocated scratch buffer - an InferenceWorkspace supplies a
+	 * preallocated one instead.
+	 */
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		forwardPropagate(input, output, new float[getScratchSize(exampleCount)], exampleCount);
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, float[] scratch, int exampleCount) {
+		int windowHeight = maxPoolingOperation.getWindowHeight();
+		int blockOutputRows = Math.max(1,
+				BLOCK_SIZE / (windowHeight * convolutionOperation.getOutputWidth() * exampleCount));
+		for (int f = 0; f < convolutionOperation.getFilterCount(); f++) {
+			for (int py = 0; py < outputHeight; py += blockOutputRows) {
+				int outputRows = Math.min(blockOutputRows, outputHeight - py);
+				computeWeightedSums(input, scratch, exampleCount, f, py * windowHeight, outputRows * windowHeight);
+				pool(scratch, output, exampleCount, f, py, outputRows);
+			}
+		}
+	}
+
+	/**
+	 * Writes the convolution's weighted sums for one filter and blockRows convolution output rows to the
+	 * block, in the layout of the convolution's output rows.
+	 */
+	private void computeWeightedSums(float[] input, float[] block, int exampleCount, int filter, int firstRow,
+			int blockRows) {
+		float[] weights = convolutionOperation.getWeights();
+		int inputDepth = convolutionOperation.getInputDepth();
+		int inputHeight = convolutionOperation.getInputHeight();
+		int inputWidth = convolutionOperation.getInputWidth();
+		int filterHeight = convolutionOperation.getFilterHeight();
+		int filterWidth = convolutionOperation.getFilterWidth();
+		int blockRowLength = convolutionOperation.getOutputWidth() * exampleCount;
+		float bias = convolutionOperation.getBias(filter);
+		for (int i = 0; i < blockRows * blockRowLength; i++) {
+			block[i] = bias;
+		}
+		for (int c = 0; c < inputDepth; c++) {
+			for (int ky = 0; ky < filterHeight; ky++) {
+				for (int kx = 0; kx < filterWidth; kx++) {
+					float weight = weights[convolutionOperation.getWeightIndex(filter, c, ky, kx)];
+					for (int r = 0; r < blockRows; r++) {
+						int blockOffset = r * blockRowLength;
+						int inputOffset = ((c * inputHeight + firstRow + r + ky) * inputWidth + kx) * exampleCount;
+						for (int i = 0; i < blockRowLength; i++) {
+							block[blockOffset + i] += weight * input[inputOffset + i];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the activated, scaled maximum of each pooling window of outputRows rows of pooling windows in
+	 * the block to the output.
+	 */
+	private void pool(float[] block, float[] output, int exampleCount, int filter, int firstOutputRow,
+			int outputRows) {
+		int windowHeight = maxPoolingOperation.getWindowHeight();
+		int windowWidth = maxPoolingOperation.getWindowWidth();
+		int blockRowLength = convolutionOperation.getOutputWidth() * exampleCount;
+		boolean sigmoid = convolutionOperation.getActivationFunction() == InferenceActivationFunction.SIGMOID;
+		for (int py = 0; py < outputRows; py++) {
+			for (int px = 0; px < outputWidth; px++) {
+				int outputOffset = ((filter * outputHeight + firstOutputRow + py) * outputWidth + px) * exampleCount;
+				int windowOffset = py * windowHeight * blockRowLength + px * windowWidth * exampleCount;
+				for (int e = 0; e < exampleCount; e++) {
+					float max = Float.NEGATIVE_INFINITY;
+					for (int wy = 0; wy < windowHeight; wy++) {
+						for (int wx = 0; wx < windowWidth; wx++) {
+							max = Math.max(max, block[windowOffset + wy * blockRowLength + wx * exampleCount + e]);
+						}
+					}
+					output[outputOffset + e] = (sigmoid ? InferenceActivationFunction.sigmoid(max) : max) * scale;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Convolutional InferenceOperation, with stride 1 and no padding.
+ *
+ * Activations are depth first - channel, then row, then column - matching the layout of Neurons3D
+ * activations. As each example's features are interleaved with the other examples of the batch, the
+ * outputs of a row of output positions and the inputs they read for a given filter position are both
+ * contiguous, so each filter weight is applied with a single pass over outputWidth * exampleCount values.
+ *
+ */
+public class ConvolutionOperation implements InferenceOperation {
+
+	private final int inputDepth;
+	private final int inputHeight;
+	private final int inputWidth;
+	private final int filterHeight;
+	private final int filterWidth;
+	private final int filterCount;
+	private final int outputHeight;
+	private final int outputWidth;
+	private final float[] weights;
+	private final float[] biases;
+	private final InferenceActivationFunction activationFunction;
+
+	/**
+	 * @param weights            The filter weights, one row per filter and one column per filter position
+	 *                           ( channel, then row, then column ), row by row.
+	 * @param biases             The bias of each filter.
+	 * @param inputDepth         The number of input channels.
+	 * @param inputHeight        The input height.
+	 * @param inputWidth         The input width.
+	 * @param filterHeight       The filter height.
+	 * @param filterWidth        The filter width.
+	 * @param activationFunction The activation function.
+	 */
+	public ConvolutionOperation(float[] weights, float[] biases, int inputDepth, int inputHeight, int inputWidth,
+			int filterHeight, int filterWidth, InferenceActivationFunction activationFunction) {
+		this.filterCount = biases.length;
+		if (weights.length != filterCount * inputDepth * filterHeight * filterWidth) {
+			throw new IllegalArgumentException("Weights do not match " + filterCount + " filters of " + inputDepth + "x"
+					+ filterHeight + "x" + filterWidth);
+		}
+		this.inputDepth = inputDepth;
+		this.inputHeight = inputHeight;
+		this.inputWidth = inputWidth;
+		this.filterHeight = filterHeight;
+		this.filterWidth = filterWidth;
+		this.outputHeight = inputHeight - filterHeight + 1;
+		this.outputWidth = inputWidth - filterWidth + 1;
+		this.weights = weights.clone();
+		this.biases = biases.clone();
+		this.activationFunction = activationFunction;
+	}
+
+	@Override
+	public int getInputCount() {
+		return inputDepth * inputHeight * inputWidth;
+	}
+
+	@Override
+	public int getOutputCount() {
+		return filterCount * outputHeight * outputWidth;
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		int outputRowLength = outputWidth * exampleCount;
+		for (int f = 0; f < filterCount; f++) {
+			int filterOutputOffset = f * outputHeight * outputRowLength;
+			float bias = biases[f];
+			for (int i = 0; i < outputHeight * outputRowLength; i++) {
+				output[filterOutputOffset + i] = bias;
+			}
+			for (int c = 0; c < inputDepth; c++) {
+				for (int ky = 0; ky < filterHeight; ky++) {
+					for (int kx = 0; kx < filterWidth; kx++) {
+						float weight = weights[getWeightIndex(f, c, ky, kx)];
+						for (int oy = 0; oy < outputHeight; oy++) {
+							int outputOffset = filterOutputOffset + oy * outputRowLength;
+							int inputOffset = ((c * inputHeight + oy + ky) * inputWidth + kx) * exampleCount;
+							for (int i = 0; i < outputRowLength; i++) {
+								output[outputOffset + i] += weight * input[inputOffset + i];
+							}
+						}
+					}
+				}
+			}
+		}
+		activationFunction.activate(output, getOutputCount(), exampleCount);
+	}
+
+	public int getInputDepth() {
+		return inputDepth;
+	}
+
+	public int getInputHeight() {
+		return inputHeight;
+	}
+
+	public int getInputWidth() {
+		return inputWidth;
+	}
+
+	public int getFilterHeight() {
+		return filterHeight;
+	}
+
+	public int getFilterWidth() {
+		return filterWidth;
+	}
+
+	public int getFilterCount() {
+		return filterCount;
+	}
+
+	public int getOutputHeight() {
+		return outputHeight;
+	}
+
+	public int getOutputWidth() {
+		return outputWidth;
+	}
+
+	public InferenceActivationFunction getActivationFunction() {
+		return activationFunction;
+	}
+
+	int getWeightIndex(int filter, int channel, int filterY, int filterX) {
+		return ((filter * inputDepth + channel) * filterHeight + filterY) * filterWidth + filterX;
+	}
+
+	/**
+	 * @return The filter weights, indexed by getWeightIndex, which must not be modified.
+	 */
+	float[] getWeights() {
+		return weights;
+	}
+
+	float getBias(int filter) {
+		return biases[filter];
+	}
+
+	/**
+	 * @return The bias of each filter, which must not be modified.
+	 */
+	float[] getBiases() {
+		return biases;
+	}
+}
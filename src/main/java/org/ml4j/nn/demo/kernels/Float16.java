@@ -0,0 +1,87 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Conversions between floats and IEEE 754 half-precision values held in shorts.
+ *
+ */
+final class Float16 {
+
+	/**
+	 * The float value of every half-precision bit pattern, so that decoding is a single table lookup.
+	 */
+	private static final float[] FLOAT_VALUES = new float[1 << 16];
+
+	static {
+		for (int i = 0; i < FLOAT_VALUES.length; i++) {
+			FLOAT_VALUES[i] = decode((short) i);
+		}
+	}
+
+	private Float16() {
+	}
+
+	/**
+	 * @param value The float value.
+	 * @return The nearest half-precision value, rounding half to even.
+	 */
+	static short fromFloat(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xFF;
+		int mantissa = bits & 0x7FFFFF;
+		if (exponent == 0xFF) {
+			// Infinity or NaN
+			return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+		}
+		int halfExponent = exponent - 127 + 15;
+		if (halfExponent >= 0x1F) {
+			// Overflow to infinity
+			return (short) (sign | 0x7C00);
+		}
+		if (halfExponent <= 0) {
+			if (halfExponent < -10) {
+				// Underflow to zero
+				return (short) sign;
+			}
+			// Subnormal
+			mantissa |= 0x800000;
+			int shift = 14 - halfExponent;
+			int halfMantissa = mantissa >>> shift;
+			int remainder = mantissa & ((1 << shift) - 1);
+			int halfway = 1 << (shift - 1);
+			if (remainder > halfway || (remainder == halfway && (halfMantissa & 1) != 0)) {
+				halfMantissa++;
+			}
+			return (short) (sign | halfMantissa);
+		}
+		int half = sign | (halfExponent << 10) | (mantissa >>> 13);
+		int remainder = mantissa & 0x1FFF;
+		if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+			// Rounding may carry into the exponent, which correctly rounds up to the next binade or infinity
+			half++;
+		}
+		return (short) half;
+	}
+
+	/**
+	 * @param value The half-precision value.
+	 * @return The float value.
+	 */
+	static float toFloat(short value) {
+		return FLOAT_VALUES[value & 0xFFFF];
+	}
+
+	private static float decode(short value) {
+		int sign = (value & 0x8000) << 16;
+		int exponent = (value >>> 10) & 0x1F;
+		int mantissa = value & 0x3FF;
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+		if (exponent == 0) {
+			float magnitude = mantissa * 0x1p-24f;
+			return sign == 0 ? magnitude : -magnitude;
+		}
+		return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+	}
+}
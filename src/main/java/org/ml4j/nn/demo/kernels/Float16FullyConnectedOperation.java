@@ -0,0 +1,113 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Fully connected InferenceOperation with weights held as IEEE 754 half-precision values, read at half
+ * the memory bandwidth of FullyConnectedOperation. Inputs, accumulation and biases remain in float.
+ *
+ */
+public class Float16FullyConnectedOperation implements InferenceOperation {
+
+	private final int inputCount;
+	private final int outputCount;
+	private final short[] weights;
+	private final float[] biases;
+	private final InferenceActivationFunction activationFunction;
+
+	/**
+	 * @param weights            The float weights to convert, one row per output and one column per input,
+	 *                           row by row.
+	 * @param biases             The bias of each output.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 */
+	public Float16FullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction) {
+		this(toFloat16(weights), biases.clone(), inputCount, activationFunction);
+	}
+
+	/**
+	 * @param weights            The half-precision weights, one row per output, row by row, which are not
+	 *                           copied.
+	 * @param biases             The bias of each output, which are not copied.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 */
+	Float16FullyConnectedOperation(short[] weights, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction) {
+		this.outputCount = biases.length;
+		if (weights.length != outputCount * inputCount) {
+			throw new IllegalArgumentException("Weights do not match " + outputCount + "x" + inputCount);
+		}
+		this.inputCount = inputCount;
+		this.weights = weights;
+		this.biases = biases;
+		this.activationFunction = activationFunction;
+	}
+
+	private static short[] toFloat16(float[] weights) {
+		short[] halfPrecisionWeights = new short[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			halfPrecisionWeights[i] = Float16.fromFloat(weights[i]);
+		}
+		return halfPrecisionWeights;
+	}
+
+	@Override
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	@Override
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		if (exampleCount == 1) {
+			for (int o = 0; o < outputCount; o++) {
+				int weightsOffset = o * inputCount;
+				float sum = biases[o];
+				for (int i = 0; i < inputCount; i++) {
+					sum += Float16.toFloat(weights[weightsOffset + i]) * input[i];
+				}
+				output[o] = sum;
+			}
+		} else {
+			for (int o = 0; o < outputCount; o++) {
+				int outputOffset = o * exampleCount;
+				int weightsOffset = o * inputCount;
+				float bias = biases[o];
+				for (int e = 0; e < exampleCount; e++) {
+					output[outputOffset + e] = bias;
+				}
+				for (int i = 0; i < inputCount; i++) {
+					float weight = Float16.toFloat(weights[weightsOffset + i]);
+					int inputOffset = i * exampleCount;
+					for (int e = 0; e < exampleCount; e++) {
+						output[outputOffset + e] += weight * input[inputOffset + e];
+					}
+				}
+			}
+		}
+		activationFunction.activate(output, outputCount, exampleCount);
+	}
+
+	public InferenceActivationFunction getActivationFunction() {
+		return activationFunction;
+	}
+
+	/**
+	 * @return The half-precision weights, one row per output, row by row, which must not be modified.
+	 */
+	short[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * @return The bias of each output, which must not be modified.
+	 */
+	float[] getBiases() {
+		return biases;
+	}
+}
@@ -0,0 +1,92 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Fully connected InferenceOperation, computing activation(weights * input + biases).
+ *
+ */
+public class FullyConnectedOperation implements InferenceOperation {
+
+	private final int inputCount;
+	private final int outputCount;
+	private final float[] weights;
+	private final float[] biases;
+	private final InferenceActivationFunction activationFunction;
+
+	/**
+	 * @param weights            The weights, one row per output and one column per input, row by row.
+	 * @param biases             The bias of each output.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 */
+	public FullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction) {
+		this.outputCount = biases.length;
+		if (weights.length != outputCount * inputCount) {
+			throw new IllegalArgumentException("Weights do not match " + outputCount + "x" + inputCount);
+		}
+		this.inputCount = inputCount;
+		this.weights = weights.clone();
+		this.biases = biases.clone();
+		this.activationFunction = activationFunction;
+	}
+
+	@Override
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	@Override
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		if (exampleCount == 1) {
+			for (int o = 0; o < outputCount; o++) {
+				int weightsOffset = o * inputCount;
+				float sum = biases[o];
+				for (int i = 0; i < inputCount; i++) {
+					sum += weights[weightsOffset + i] * input[i];
+				}
+				output[o] = sum;
+			}
+		} else {
+			// Accumulate one contiguous row of outputs per weight, so the inner loop runs across examples
+			for (int o = 0; o < outputCount; o++) {
+				int outputOffset = o * exampleCount;
+				int weightsOffset = o * inputCount;
+				float bias = biases[o];
+				for (int e = 0; e < exampleCount; e++) {
+					output[outputOffset + e] = bias;
+				}
+				for (int i = 0; i < inputCount; i++) {
+					float weight = weights[weightsOffset + i];
+					int inputOffset = i * exampleCount;
+					for (int e = 0; e < exampleCount; e++) {
+						output[outputOffset + e] += weight * input[inputOffset + e];
+					}
+				}
+			}
+		}
+		activationFunction.activate(output, outputCount, exampleCount);
+	}
+
+	public InferenceActivationFunction getActivationFunction() {
+		return activationFunction;
+	}
+
+	/**
+	 * @return The weights, one row per output, row by row, which must not be modified.
+	 */
+	float[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * @return The bias of each output, which must not be modified.
+	 */
+	float[] getBiases() {
+		return biases;
+	}
+}
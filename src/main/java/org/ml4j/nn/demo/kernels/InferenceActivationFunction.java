@@ -0,0 +1,56 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Activation functions applied in place to feature by example activation buffers.
+ *
+ */
+public enum InferenceActivationFunction {
+
+	LINEAR {
+		@Override
+		public void activate(float[] activations, int featureCount, int exampleCount) {
+		}
+	},
+
+	SIGMOID {
+		@Override
+		public void activate(float[] activations, int featureCount, int exampleCount) {
+			int length = featureCount * exampleCount;
+			for (int i = 0; i < length; i++) {
+				activations[i] = sigmoid(activations[i]);
+			}
+		}
+	},
+
+	SOFTMAX {
+		@Override
+		public void activate(float[] activations, int featureCount, int exampleCount) {
+			for (int e = 0; e < exampleCount; e++) {
+				float max = Float.NEGATIVE_INFINITY;
+				for (int f = 0; f < featureCount; f++) {
+					max = Math.max(max, activations[f * exampleCount + e]);
+				}
+				float sum = 0;
+				for (int f = 0; f < featureCount; f++) {
+					float exp = (float) Math.exp(activations[f * exampleCount + e] - max);
+					activations[f * exampleCount + e] = exp;
+					sum += exp;
+				}
+				for (int f = 0; f < featureCount; f++) {
+					activations[f * exampleCount + e] /= sum;
+				}
+			}
+		}
+	};
+
+	/**
+	 * @param activations  The weighted sums, replaced by the activations.
+	 * @param featureCount The number of features.
+	 * @param exampleCount The number of examples.
+	 */
+	public abstract void activate(float[] activations, int featureCount, int exampleCount);
+
+	static float sigmoid(float x) {
+		return (float) (1 / (1 + Math.exp(-x)));
+	}
+}
@@ -0,0 +1,50 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * A single step of an InferencePlan, reading one preallocated activation buffer and writing another.
+ *
+ * Activations are held feature by example, as in a NeuronsActivation - the value of feature f for
+ * example e of a batch of n examples is at index f * n + e. Implementations must not allocate - an
+ * operation needing temporary storage declares a scratch size, and is given a preallocated scratch buffer.
+ *
+ */
+public interface InferenceOperation {
+
+	/**
+	 * @return The number of input features per example.
+	 */
+	int getInputCount();
+
+	/**
+	 * @return The number of output features per example.
+	 */
+	int getOutputCount();
+
+	/**
+	 * @param input        The input activations, getInputCount() features by exampleCount examples.
+	 * @param output       The buffer to write the getOutputCount() by exampleCount output activations to.
+	 * @param exampleCount The number of examples.
+	 */
+	void forwardPropagate(float[] input, float[] output, int exampleCount);
+
+	/**
+	 * @param exampleCount The number of examples.
+	 * @return The size of the scratch buffer required to forward propagate exampleCount examples.
+	 */
+	default int getScratchSize(int exampleCount) {
+		return 0;
+	}
+
+	/**
+	 * Forward propagates with a scratch buffer, for operations with a non-zero scratch size.
+	 *
+	 * @param input        The input activations, getInputCount() features by exampleCount examples.
+	 * @param output       The buffer to write the getOutputCount() by exampleCount output activations to.
+	 * @param scratch      A buffer of at least getScratchSize(exampleCount) values, whose contents are
+	 *                     undefined before and after the call.
+	 * @param exampleCount The number of examples.
+	 */
+	default void forwardPropagate(float[] input, float[] output, float[] scratch, int exampleCount) {
+		forwardPropagate(input, output, exampleCount);
+	}
+}
@@ -0,0 +1,158 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.ml4j.nn.demo.util.WeightsBundle;
+
+/**
+ * An immutable sequence of InferenceOperations equivalent to the forward propagation of a network, run
+ * against the preallocated buffers of an InferenceWorkspace.
+ *
+ * A plan may be shared between threads, each with its own workspace. Adjacent operations may be replaced
+ * by equivalent fused operations with fuseOperations(), which the pretrained network's plans do by default.
+ *
+ */
+public class InferencePlan {
+
+	private final List<InferenceOperation> operations;
+
+	/**
+	 * @param operations The operations, in order, the output count of each matching the input count of the
+	 *                   next.
+	 */
+	public InferencePlan(List<InferenceOperation> operations) {
+		if (operations.isEmpty()) {
+			throw new IllegalArgumentException("An inference plan requires at least one operation");
+		}
+		for (int i = 1; i < operations.size(); i++) {
+			if (operations.get(i - 1).getOutputCount() != operations.get(i).getInputCount()) {
+				throw new IllegalArgumentException("Operation " + i + " expects " + operations.get(i).getInputCount()
+						+ " inputs but the previous operation has " + operations.get(i - 1).getOutputCount() + " outputs");
+			}
+		}
+		this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+	}
+
+	/**
+	 * Creates a plan for the pretrained five-layer network with a convolutional layer, equivalent to the
+	 * network built by PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer.
+	 *
+	 * @param bundle The pretrained weights bundle.
+	 * @return The plan.
+	 */
+	public static InferencePlan forPretrainedFiveLayerNetwork(WeightsBundle bundle) {
+		return forPretrainedFiveLayerNetwork(bundle, WeightsPrecision.FLOAT32);
+	}
+
+	/**
+	 * Creates a plan for the pretrained five-layer network with a convolutional layer, with the weights of
+	 * the fully connected layers held in the specified precision. The convolutional layer's weights are a
+	 * negligible fraction of the total, so remain in float.
+	 *
+	 * @param bundle    The pretrained weights bundle.
+	 * @param precision The precision of the fully connected layers' weights.
+	 * @return The plan.
+	 */
+	public static InferencePlan forPretrainedFiveLayerNetwork(WeightsBundle bundle, WeightsPrecision precision) {
+		return forPretrainedFiveLayerNetwork(bundle, precision, true);
+	}
+
+	/**
+	 * Creates a plan for the pretrained five-layer network with a convolutional layer, with the weights of
+	 * the fully connected layers held in the specified precision, and optionally without fusing the
+	 * convolutional and max pooling layers.
+	 *
+	 * @param bundle         The pretrained weights bundle.
+	 * @param precision      The precision of the fully connected layers' weights.
+	 * @param fuseOperations Whether to fuse operations, as by fuseOperations().
+	 * @return The plan.
+	 */
+	public static InferencePlan forPretrainedFiveLayerNetwork(WeightsBundle bundle, WeightsPrecision precision,
+			boolean fuseOperations) {
+		List<InferenceOperation> operations = new ArrayList<>();
+		operations.add(new ConvolutionOperation(bundle.getRowByRowArray("layer1Weights"),
+				bundle.getRowByRowArray("layer1Biases"), 1, 28, 28, 9, 9, InferenceActivationFunction.SIGMOID));
+		operations.add(new MaxPoolingOperation(6, 20, 20, 2, 2, true));
+		operations.add(precision.createFullyConnectedOperation(bundle.getRowByRowArray("layer3Weights"),
+				bundle.getRowByRowArray("layer3Biases"), 600, InferenceActivationFunction.SIGMOID));
+		operations.add(precision.createFullyConnectedOperation(bundle.getRowByRowArray("layer4Weights"),
+				bundle.getRowByRowArray("layer4Biases"), 400, InferenceActivationFunction.SIGMOID));
+		operations.add(precision.createFullyConnectedOperation(bundle.getRowByRowArray("layer5Weights"),
+				bundle.getRowByRowArray("layer5Biases"), 100, InferenceActivationFunction.SOFTMAX));
+		InferencePlan plan = new InferencePlan(operations);
+		return fuseOperations ? plan.fuseOperations() : plan;
+	}
+
+	/**
+	 * Creates a plan for the pretrained five-layer network, loading the weights from the bundled pretrained
+	 * weights.
+	 *
+	 * @return The plan.
+	 */
+	public static InferencePlan forPretrainedFiveLayerNetwork() {
+		return forPretrainedFiveLayerNetwork(WeightsPrecision.FLOAT32);
+	}
+
+	/**
+	 * Creates a plan for the pretrained five-layer network, loading the weights from the bundled pretrained
+	 * weights and holding the fully connected layers' weights in the specified precision.
+	 *
+	 * @param precision The precision of the fully connected layers' weights.
+	 * @return The plan.
+	 */
+	public static InferencePlan forPretrainedFiveLayerNetwork(WeightsPrecision precision) {
+		return forPretrainedFiveLayerNetwork(WeightsBundle.load(InferencePlan.class.getClassLoader(),
+				PretrainedMnistWeights.WEIGHTS_BUNDLE_RESOURCE), precision);
+	}
+
+	/**
+	 * Creates an equivalent plan in which each ConvolutionOperation followed by a MaxPoolingOperation over
+	 * its output is replaced by a ConvolutionMaxPoolingOperation, which does not write the convolution's
+	 * output to memory.
+	 *
+	 * @return The fused plan, or this plan if no operations can be fused.
+	 */
+	public InferencePlan fuseOperations() {
+		List<InferenceOperation> fusedOperations = new ArrayList<>();
+		for (int i = 0; i < operations.size(); i++) {
+			InferenceOperation operation = operations.get(i);
+			InferenceOperation nextOperation = i + 1 < operations.size() ? operations.get(i + 1) : null;
+			if (operation instanceof ConvolutionOperation && nextOperation instanceof MaxPoolingOperation
+					&& ConvolutionMaxPoolingOperation.canFuse((ConvolutionOperation) operation,
+							(MaxPoolingOperation) nextOperation)) {
+				fusedOperations.add(new ConvolutionMaxPoolingOperation((ConvolutionOperation) operation,
+						(MaxPoolingOperation) nextOperation));
+				i++;
+			} else {
+				fusedOperations.add(operation);
+			}
+		}
+		return fusedOperations.size() == operations.size() ? this : new InferencePlan(fusedOperations);
+	}
+
+	public List<InferenceOperation> getOperations() {
+		return operations;
+	}
+
+	public int getInputCount() {
+		return operations.get(0).getInputCount();
+	}
+
+	public int getOutputCount() {
+		return operations.get(operations.size() - 1).getOutputCount();
+	}
+
+	/**
+	 * Allocates a workspace for running this plan on batches of up to maxBatchSize examples. All buffers are
+	 * allocated here, so forward propagation through the workspace does not allocate.
+	 *
+	 * @param maxBatchSize The maximum number of examples per forward propagation.
+	 * @return The workspace, for use by one thread at a time.
+	 */
+	public InferenceWorkspace createWorkspace(int maxBatchSize) {
+		return new InferenceWorkspace(this, maxBatchSize);
+	}
+}
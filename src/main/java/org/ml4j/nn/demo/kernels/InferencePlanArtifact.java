@@ -0,0 +1,337 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes an InferencePlan - its operations, their shapes and their weights - as a single
+ * self-contained artifact, from which the plan is rebuilt without a session, a network builder or the
+ * pretrained weights resources.
+ *
+ * Reading an artifact uses only this package and the JDK, and constructs each operation directly, without
+ * reflection or Java serialization - so the classes involved are few enough to be archived by Class Data
+ * Sharing, and a GraalVM native image needs no reflection configuration. Weights are stored in the
+ * precision of their operation, so a plan with FLOAT16 or INT8 weights is rebuilt exactly, without
+ * requantising.
+ *
+ * All values are big-endian, as written by DataOutputStream:
+ *
+ * <pre>
+ * magic (int) | version (int) | operationCount (int)
+ * operationCount * [ operationType (byte) | operation fields ]
+ * crc32 (int) of all the preceding bytes
+ * </pre>
+ *
+ * Arrays are written as their length (int) followed by their values, and activation functions as their
+ * name (UTF).
+ *
+ */
+public class InferencePlanArtifact {
+
+	public static final int MAGIC = 0x4D4C3450; // "ML4P"
+	public static final int VERSION = 1;
+
+	private static final byte FULLY_CONNECTED = 1;
+	private static final byte FLOAT16_FULLY_CONNECTED = 2;
+	private static final byte INT8_FULLY_CONNECTED = 3;
+	private static final byte CONVOLUTION = 4;
+	private static final byte MAX_POOLING = 5;
+	private static final byte CONVOLUTION_MAX_POOLING = 6;
+
+	private InferencePlanArtifact() {
+	}
+
+	/**
+	 * Writes the plan to a file, replacing any existing file atomically.
+	 *
+	 * @param plan The plan.
+	 * @param path The path of the artifact.
+	 */
+	public static void write(InferencePlan plan, Path path) {
+		Path temporaryFile = null;
+		try {
+			Path directory = path.toAbsolutePath().getParent();
+			temporaryFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+			try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+				write(plan, outputStream);
+			}
+			Files.move(temporaryFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write inference plan artifact:" + path, e);
+		} finally {
+			if (temporaryFile != null) {
+				// Only still present if the write or move failed
+				try {
+					Files.deleteIfExists(temporaryFile);
+				} catch (IOException e) {
+					// Leave the temporary file, rather than mask the original failure
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the plan to the output stream. The stream is not closed.
+	 *
+	 * @param plan         The plan.
+	 * @param outputStream The output stream.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public static void write(InferencePlan plan, OutputStream outputStream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(plan.getOperations().size());
+		for (InferenceOperation operation : plan.getOperations()) {
+			writeOperation(operation, out);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray(), 0, bytes.size());
+		out.writeInt((int) crc.getValue());
+		OutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, 1 << 16);
+		bytes.writeTo(bufferedOutputStream);
+		bufferedOutputStream.flush();
+	}
+
+	/**
+	 * @param path The path of the artifact.
+	 * @return The plan.
+	 */
+	public static InferencePlan read(Path path) {
+		try {
+			return read(Files.readAllBytes(path));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read inference plan artifact:" + path, e);
+		}
+	}
+
+	/**
+	 * @param classLoader  The class loader to load the resource from.
+	 * @param resourceName The name of the artifact resource.
+	 * @return The plan.
+	 */
+	public static InferencePlan load(ClassLoader classLoader, String resourceName) {
+		InputStream inputStream = classLoader.getResourceAsStream(resourceName);
+		if (inputStream == null) {
+			throw new IllegalArgumentException("Unable to find resource:" + resourceName);
+		}
+		try (InputStream in = inputStream) {
+			return read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read resource:" + resourceName, e);
+		}
+	}
+
+	/**
+	 * Reads a plan from the input stream. The stream is not closed.
+	 *
+	 * @param inputStream The input stream.
+	 * @return The plan.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public static InferencePlan read(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+		byte[] chunk = new byte[1 << 16];
+		int read;
+		while ((read = inputStream.read(chunk)) != -1) {
+			bytes.write(chunk, 0, read);
+		}
+		return read(bytes.toByteArray());
+	}
+
+	private static InferencePlan read(byte[] bytes) {
+		if (bytes.length < 16) {
+			throw new IllegalArgumentException("Not an inference plan artifact");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Not an inference plan artifact");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported inference plan artifact version:" + version);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		if ((int) crc.getValue() != buffer.getInt(bytes.length - 4)) {
+			throw new IllegalArgumentException("Corrupt inference plan artifact - checksum mismatch");
+		}
+		buffer.limit(bytes.length - 4);
+		int operationCount = buffer.getInt();
+		List<InferenceOperation> operations = new ArrayList<>(operationCount);
+		for (int i = 0; i < operationCount; i++) {
+			operations.add(readOperation(buffer));
+		}
+		if (buffer.hasRemaining()) {
+			throw new IllegalArgumentException("Unexpected data after the last operation of the artifact");
+		}
+		return new InferencePlan(operations);
+	}
+
+	private static void writeOperation(InferenceOperation operation, DataOutputStream out) throws IOException {
+		if (operation instanceof FullyConnectedOperation) {
+			FullyConnectedOperation fullyConnectedOperation = (FullyConnectedOperation) operation;
+			out.writeByte(FULLY_CONNECTED);
+			out.writeInt(fullyConnectedOperation.getInputCount());
+			out.writeUTF(fullyConnectedOperation.getActivationFunction().name());
+			writeArray(fullyConnectedOperation.getWeights(), out);
+			writeArray(fullyConnectedOperation.getBiases(), out);
+		} else if (operation instanceof Float16FullyConnectedOperation) {
+			Float16FullyConnectedOperation fullyConnectedOperation = (Float16FullyConnectedOperation) operation;
+			out.writeByte(FLOAT16_FULLY_CONNECTED);
+			out.writeInt(fullyConnectedOperation.getInputCount());
+			out.writeUTF(fullyConnectedOperation.getActivationFunction().name());
+			out.writeInt(fullyConnectedOperation.getWeights().length);
+			for (short weight : fullyConnectedOperation.getWeights()) {
+				out.writeShort(weight);
+			}
+			writeArray(fullyConnectedOperation.getBiases(), out);
+		} else if (operation instanceof Int8FullyConnectedOperation) {
+			Int8FullyConnectedOperation fullyConnectedOperation = (Int8FullyConnectedOperation) operation;
+			out.writeByte(INT8_FULLY_CONNECTED);
+			out.writeInt(fullyConnectedOperation.getInputCount());
+			out.writeUTF(fullyConnectedOperation.getActivationFunction().name());
+			out.writeInt(fullyConnectedOperation.getWeights().length);
+			out.write(fullyConnectedOperation.getWeights());
+			writeArray(fullyConnectedOperation.getScales(), out);
+			writeArray(fullyConnectedOperation.getBiases(), out);
+		} else if (operation instanceof ConvolutionOperation) {
+			out.writeByte(CONVOLUTION);
+			writeConvolution((ConvolutionOperation) operation, out);
+		} else if (operation instanceof MaxPoolingOperation) {
+			out.writeByte(MAX_POOLING);
+			writeMaxPooling((MaxPoolingOperation) operation, out);
+		} else if (operation instanceof ConvolutionMaxPoolingOperation) {
+			ConvolutionMaxPoolingOperation fusedOperation = (ConvolutionMaxPoolingOperation) operation;
+			out.writeByte(CONVOLUTION_MAX_POOLING);
+			writeConvolution(fusedOperation.getConvolutionOperation(), out);
+			writeMaxPooling(fusedOperation.getMaxPoolingOperation(), out);
+		} else {
+			throw new IllegalArgumentException("Unable to write an operation of type " + operation.getClass().getName());
+		}
+	}
+
+	private static InferenceOperation readOperation(ByteBuffer buffer) {
+		byte operationType = buffer.get();
+		switch (operationType) {
+		case FULLY_CONNECTED: {
+			int inputCount = buffer.getInt();
+			InferenceActivationFunction activationFunction = readActivationFunction(buffer);
+			return new FullyConnectedOperation(readFloatArray(buffer), readFloatArray(buffer), inputCount,
+					activationFunction);
+		}
+		case FLOAT16_FULLY_CONNECTED: {
+			int inputCount = buffer.getInt();
+			InferenceActivationFunction activationFunction = readActivationFunction(buffer);
+			short[] weights = new short[readLength(buffer, Short.BYTES)];
+			buffer.asShortBuffer().get(weights);
+			buffer.position(buffer.position() + weights.length * Short.BYTES);
+			return new Float16FullyConnectedOperation(weights, readFloatArray(buffer), inputCount, activationFunction);
+		}
+		case INT8_FULLY_CONNECTED: {
+			int inputCount = buffer.getInt();
+			InferenceActivationFunction activationFunction = readActivationFunction(buffer);
+			byte[] weights = new byte[readLength(buffer, 1)];
+			buffer.get(weights);
+			return new Int8FullyConnectedOperation(weights, readFloatArray(buffer), readFloatArray(buffer), inputCount,
+					activationFunction);
+		}
+		case CONVOLUTION:
+			return readConvolution(buffer);
+		case MAX_POOLING:
+			return readMaxPooling(buffer);
+		case CONVOLUTION_MAX_POOLING:
+			return new ConvolutionMaxPoolingOperation(readConvolution(buffer), readMaxPooling(buffer));
+		default:
+			throw new IllegalArgumentException("Unknown operation type " + operationType + " in artifact");
+		}
+	}
+
+	private static void writeConvolution(ConvolutionOperation operation, DataOutputStream out) throws IOException {
+		out.writeInt(operation.getInputDepth());
+		out.writeInt(operation.getInputHeight());
+		out.writeInt(operation.getInputWidth());
+		out.writeInt(operation.getFilterHeight());
+		out.writeInt(operation.getFilterWidth());
+		out.writeUTF(operation.getActivationFunction().name());
+		writeArray(operation.getWeights(), out);
+		writeArray(operation.getBiases(), out);
+	}
+
+	private static ConvolutionOperation readConvolution(ByteBuffer buffer) {
+		int inputDepth = buffer.getInt();
+		int inputHeight = buffer.getInt();
+		int inputWidth = buffer.getInt();
+		int filterHeight = buffer.getInt();
+		int filterWidth = buffer.getInt();
+		InferenceActivationFunction activationFunction = readActivationFunction(buffer);
+		return new ConvolutionOperation(readFloatArray(buffer), readFloatArray(buffer), inputDepth, inputHeight,
+				inputWidth, filterHeight, filterWidth, activationFunction);
+	}
+
+	private static void writeMaxPooling(MaxPoolingOperation operation, DataOutputStream out) throws IOException {
+		out.writeInt(operation.getDepth());
+		out.writeInt(operation.getInputHeight());
+		out.writeInt(operation.getInputWidth());
+		out.writeInt(operation.getWindowHeight());
+		out.writeInt(operation.getWindowWidth());
+		out.writeBoolean(operation.isScaleOutputs());
+	}
+
+	private static MaxPoolingOperation readMaxPooling(ByteBuffer buffer) {
+		return new MaxPoolingOperation(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+				buffer.getInt(), buffer.get() != 0);
+	}
+
+	private static void writeArray(float[] values, DataOutputStream out) throws IOException {
+		out.writeInt(values.length);
+		for (float value : values) {
+			out.writeFloat(value);
+		}
+	}
+
+	private static float[] readFloatArray(ByteBuffer buffer) {
+		float[] values = new float[readLength(buffer, Float.BYTES)];
+		buffer.asFloatBuffer().get(values);
+		buffer.position(buffer.position() + values.length * Float.BYTES);
+		return values;
+	}
+
+	private static int readLength(ByteBuffer buffer, int elementSize) {
+		int length = buffer.getInt();
+		if (length < 0 || (long) length * elementSize > buffer.remaining()) {
+			throw new IllegalArgumentException("Truncated inference plan artifact");
+		}
+		return length;
+	}
+
+	/**
+	 * Looks up the activation function by name without Enum.valueOf, which is reflective.
+	 */
+	private static InferenceActivationFunction readActivationFunction(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] encodedName = new byte[length];
+		buffer.get(encodedName);
+		String name = new String(encodedName, StandardCharsets.UTF_8);
+		for (InferenceActivationFunction activationFunction : InferenceActivationFunction.values()) {
+			if (activationFunction.name().equals(name)) {
+				return activationFunction;
+			}
+		}
+		throw new IllegalArgumentException("Unknown activation function " + name + " in artifact");
+	}
+}
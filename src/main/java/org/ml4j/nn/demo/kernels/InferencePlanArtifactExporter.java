@@ -0,0 +1,79 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.ml4j.nn.demo.training.NetworkWeights;
+import org.ml4j.nn.demo.util.MatrixBackend;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
+import org.ml4j.nn.demo.util.PretrainedWeightsRegistry;
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Freezes a built network of the pretrained five-layer architecture ( see
+ * PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer ) - such as the pretrained network itself,
+ * or one trained or fine-tuned from it - into an InferencePlanArtifact.
+ *
+ * Usage: InferencePlanArtifactExporter &lt;outputFile&gt; [FLOAT32|FLOAT16|INT8]
+ *
+ * exports the pretrained network, with the fully connected layers' weights in the given precision
+ * ( FLOAT32 by default ).
+ *
+ */
+public class InferencePlanArtifactExporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InferencePlanArtifactExporter.class);
+
+	private InferencePlanArtifactExporter() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("Usage: InferencePlanArtifactExporter <outputFile> [FLOAT32|FLOAT16|INT8]");
+		}
+		Path outputPath = Paths.get(args[0]);
+		WeightsPrecision precision = args.length > 1 ? WeightsPrecision.valueOf(args[1]) : WeightsPrecision.FLOAT32;
+
+		DefaultSession session = MatrixBackend.JBLAS.createSessionFactory().createSession();
+		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer(
+				session, PretrainedWeightsRegistry.getInstance().getPretrainedMnistWeights(session.getMatrixFactory()));
+		export(neuralNetwork, precision, outputPath);
+
+		LOGGER.info("Exported the pretrained five-layer network at {} precision to {}", precision, outputPath);
+	}
+
+	/**
+	 * @param neuralNetwork The network, of the pretrained five-layer architecture.
+	 * @param precision     The precision of the fully connected layers' weights.
+	 * @param outputPath    The path of the artifact.
+	 */
+	public static void export(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork, WeightsPrecision precision,
+			Path outputPath) {
+		InferencePlanArtifact.write(createPlan(neuralNetwork, precision), outputPath);
+	}
+
+	/**
+	 * @param neuralNetwork The network, of the pretrained five-layer architecture.
+	 * @param precision     The precision of the fully connected layers' weights.
+	 * @return A fused plan computing the same forward propagation as the network, from a copy of its
+	 *         current parameters.
+	 */
+	public static InferencePlan createPlan(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork,
+			WeightsPrecision precision) {
+		if (neuralNetwork.getNumberOfLayers() != PretrainedMnistNetworks.FIVE_LAYER_NETWORK_LAYER_NAMES.length) {
+			throw new IllegalArgumentException("Expected a network of the pretrained five-layer architecture but found "
+					+ neuralNetwork.getNumberOfLayers() + " layers");
+		}
+		WeightsBundle bundle = NetworkWeights.read(neuralNetwork).toWeightsBundle().toBundle();
+		for (String name : bundle.getTensorNames()) {
+			if (bundle.getEntry(name).getOrientation() != WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS) {
+				throw new IllegalArgumentException("Expected the rows of tensor " + name + " to span the output dimensions");
+			}
+		}
+		return InferencePlan.forPretrainedFiveLayerNetwork(bundle, precision);
+	}
+}
@@ -0,0 +1,194 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.util.Arrays;
+
+import org.ml4j.nn.demo.util.MnistExamples;
+
+/**
+ * The preallocated activation buffers for running an InferencePlan on batches of up to a maximum size -
+ * one input buffer, plus one output buffer per operation sized for that operation's output shape, and a
+ * scratch buffer shared by any operations that need one.
+ *
+ * Once created, loading inputs, forward propagating and classifying write into these buffers in place,
+ * so a steady-state inference loop performs no heap allocation. A workspace must only be used by one
+ * thread at a time - create one workspace per thread, or pool them as MnistClassificationService pools
+ * network contexts.
+ *
+ */
+public class InferenceWorkspace {
+
+	/**
+	 * The maximum number of examples per forward propagation when warming up.
+	 */
+	private static final int WARMUP_BATCH_SIZE = 8;
+
+	private final InferenceOperation[] operations;
+	private final int maxBatchSize;
+	private final float[] input;
+	private final float[][] outputs;
+	private final float[] scratch;
+
+	InferenceWorkspace(InferencePlan plan, int maxBatchSize) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("Maximum batch size must be positive");
+		}
+		this.operations = plan.getOperations().toArray(new InferenceOperation[0]);
+		this.maxBatchSize = maxBatchSize;
+		this.input = new float[plan.getInputCount() * maxBatchSize];
+		this.outputs = new float[operations.length][];
+		int scratchSize = 0;
+		for (int i = 0; i < operations.length; i++) {
+			outputs[i] = new float[operations[i].getOutputCount() * maxBatchSize];
+			scratchSize = Math.max(scratchSize, operations[i].getScratchSize(maxBatchSize));
+		}
+		this.scratch = new float[scratchSize];
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * @return The input buffer, to be filled with the input activations of a batch feature by example -
+	 *         feature f of example e of a batch of n examples at index f * n + e.
+	 */
+	public float[] getInputBuffer() {
+		return input;
+	}
+
+	/**
+	 * Copies the features of one example into the input buffer.
+	 *
+	 * @param exampleIndex The index of the example within the batch.
+	 * @param exampleCount The number of examples in the batch.
+	 * @param features     The input features of the example.
+	 */
+	public void setInput(int exampleIndex, int exampleCount, float[] features) {
+		checkBatchSize(exampleCount);
+		int featureCount = operations[0].getInputCount();
+		if (features.length != featureCount) {
+			throw new IllegalArgumentException("Expected " + featureCount + " features but found " + features.length);
+		}
+		for (int f = 0; f < featureCount; f++) {
+			input[f * exampleCount + exampleIndex] = features[f];
+		}
+	}
+
+	/**
+	 * Loads binarised pixel features from raw pixel intensities into the input buffer - a non-zero intensity
+	 * is a feature of 1, as for MnistExamples.createFeatureActivation. Unlike setInputs over MnistExamples,
+	 * this only uses the JDK and the kernels.
+	 *
+	 * @param pixels       The pixel intensities, example by example, in the order of the plan's inputs - ie.
+	 *                     the layout of the Mnist files.
+	 * @param exampleCount The number of examples.
+	 */
+	public void setInputs(byte[] pixels, int exampleCount) {
+		checkBatchSize(exampleCount);
+		int featureCount = operations[0].getInputCount();
+		if (pixels.length < featureCount * exampleCount) {
+			throw new IllegalArgumentException("Expected " + featureCount * exampleCount + " pixels but found "
+					+ pixels.length);
+		}
+		for (int e = 0; e < exampleCount; e++) {
+			int exampleOffset = e * featureCount;
+			for (int f = 0; f < featureCount; f++) {
+				input[f * exampleCount + e] = pixels[exampleOffset + f] == 0 ? 0 : 1;
+			}
+		}
+	}
+
+	/**
+	 * Loads the binarised pixel features of a range of Mnist examples into the input buffer, in the same
+	 * encoding as MnistExamples.createFeatureActivation.
+	 *
+	 * @param examples     The examples.
+	 * @param startExample The first example, inclusive.
+	 * @param exampleCount The number of examples.
+	 */
+	public void setInputs(MnistExamples examples, int startExample, int exampleCount) {
+		checkBatchSize(exampleCount);
+		if (operations[0].getInputCount() != MnistExamples.PIXEL_COUNT) {
+			throw new IllegalStateException("The plan does not take Mnist pixel features as input");
+		}
+		for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+			int rowOffset = p * exampleCount;
+			for (int e = 0; e < exampleCount; e++) {
+				input[rowOffset + e] = examples.isPixelSet(startExample + e, p) ? 1 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Forward propagates the batch in the input buffer through every operation of the plan.
+	 *
+	 * @param exampleCount The number of examples in the batch.
+	 * @return The output buffer of the final operation, holding its outputs feature by example. The buffer
+	 *         is owned by this workspace and is overwritten by the next forward propagation.
+	 */
+	public float[] forwardPropagate(int exampleCount) {
+		checkBatchSize(exampleCount);
+		float[] activations = input;
+		for (int i = 0; i < operations.length; i++) {
+			operations[i].forwardPropagate(activations, outputs[i], scratch, exampleCount);
+			activations = outputs[i];
+		}
+		return activations;
+	}
+
+	/**
+	 * Forward propagates zero inputs through the plan, both as a single example and as a small batch, so that
+	 * the classes and code paths of both are loaded, and increasingly compiled, before the first real
+	 * request. Batches are capped at WARMUP_BATCH_SIZE examples, as the batched code paths are the same at
+	 * any batch size, and large batches are slow to run before they are compiled. The input buffer is
+	 * cleared, so inputs must be set after warming up.
+	 *
+	 * @param iterations The number of forward propagations of each batch size.
+	 */
+	public void warmUp(int iterations) {
+		Arrays.fill(input, 0);
+		int batchSize = Math.min(maxBatchSize, WARMUP_BATCH_SIZE);
+		for (int i = 0; i < iterations; i++) {
+			forwardPropagate(1);
+			if (batchSize > 1) {
+				forwardPropagate(batchSize);
+			}
+		}
+	}
+
+	/**
+	 * Forward propagates the batch in the input buffer, and writes the index of the maximum output of each
+	 * example ( ie. the predicted digit ) to the supplied array.
+	 *
+	 * @param exampleCount The number of examples in the batch.
+	 * @param predictions  The array to write the prediction of each example to.
+	 */
+	public void classify(int exampleCount, int[] predictions) {
+		float[] output = forwardPropagate(exampleCount);
+		int outputCount = operations[operations.length - 1].getOutputCount();
+		for (int e = 0; e < exampleCount; e++) {
+			int prediction = 0;
+			for (int o = 1; o < outputCount; o++) {
+				if (output[o * exampleCount + e] > output[prediction * exampleCount + e]) {
+					prediction = o;
+				}
+			}
+			predictions[e] = prediction;
+		}
+	}
+
+	/**
+	 * @param operationIndex The index of the operation in the plan.
+	 * @return The output buffer of the operation, as written by the last forward propagation.
+	 */
+	public float[] getOutputBuffer(int operationIndex) {
+		return outputs[operationIndex];
+	}
+
+	private void checkBatchSize(int exampleCount) {
+		if (exampleCount <= 0 || exampleCount > maxBatchSize) {
+			throw new IllegalArgumentException(
+					"Batch size " + exampleCount + " is not in the range [1, " + maxBatchSize + "]");
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Fully connected InferenceOperation with weights quantised to int8, with one scale per output row.
+ *
+ * Each row of weights is scaled so that its largest magnitude maps to 127. Inputs, accumulation and
+ * biases remain in float - the weighted sum of each output is accumulated from the integer weights and
+ * multiplied by the row scale once, so the weights are read at a quarter of the memory bandwidth of
+ * FullyConnectedOperation.
+ *
+ */
+public class Int8FullyConnectedOperation implements InferenceOperation {
+
+	private final int inputCount;
+	private final int outputCount;
+	private final byte[] weights;
+	private final float[] scales;
+	private final float[] biases;
+	private final InferenceActivationFunction activationFunction;
+
+	/**
+	 * @param weights            The float weights to quantise, one row per output and one column per input,
+	 *                           row by row.
+	 * @param biases             The bias of each output.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 */
+	public Int8FullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction) {
+		this.outputCount = biases.length;
+		if (weights.length != outputCount * inputCount) {
+			throw new IllegalArgumentException("Weights do not match " + outputCount + "x" + inputCount);
+		}
+		this.inputCount = inputCount;
+		this.weights = new byte[weights.length];
+		this.scales = new float[outputCount];
+		for (int o = 0; o < outputCount; o++) {
+			int weightsOffset = o * inputCount;
+			float maxMagnitude = 0;
+			for (int i = 0; i < inputCount; i++) {
+				maxMagnitude = Math.max(maxMagnitude, Math.abs(weights[weightsOffset + i]));
+			}
+			float scale = maxMagnitude == 0 ? 1 : maxMagnitude / 127;
+			scales[o] = scale;
+			for (int i = 0; i < inputCount; i++) {
+				this.weights[weightsOffset + i] = (byte) Math.round(weights[weightsOffset + i] / scale);
+			}
+		}
+		this.biases = biases.clone();
+		this.activationFunction = activationFunction;
+	}
+
+	/**
+	 * @param weights            The quantised weights, one row per output, row by row, which are not copied.
+	 * @param scales             The scale of each row of weights, which are not copied.
+	 * @param biases             The bias of each output, which are not copied.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 */
+	Int8FullyConnectedOperation(byte[] weights, float[] scales, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction) {
+		this.outputCount = biases.length;
+		if (weights.length != outputCount * inputCount || scales.length != outputCount) {
+			throw new IllegalArgumentException("Weights do not match " + outputCount + "x" + inputCount);
+		}
+		this.inputCount = inputCount;
+		this.weights = weights;
+		this.scales = scales;
+		this.biases = biases;
+		this.activationFunction = activationFunction;
+	}
+
+	@Override
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	@Override
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		if (exampleCount == 1) {
+			for (int o = 0; o < outputCount; o++) {
+				int weightsOffset = o * inputCount;
+				float sum = 0;
+				for (int i = 0; i < inputCount; i++) {
+					sum += weights[weightsOffset + i] * input[i];
+				}
+				output[o] = sum * scales[o] + biases[o];
+			}
+		} else {
+			for (int o = 0; o < outputCount; o++) {
+				int outputOffset = o * exampleCount;
+				int weightsOffset = o * inputCount;
+				for (int e = 0; e < exampleCount; e++) {
+					output[outputOffset + e] = 0;
+				}
+				for (int i = 0; i < inputCount; i++) {
+					float weight = weights[weightsOffset + i];
+					int inputOffset = i * exampleCount;
+					for (int e = 0; e < exampleCount; e++) {
+						output[outputOffset + e] += weight * input[inputOffset + e];
+					}
+				}
+				float scale = scales[o];
+				float bias = biases[o];
+				for (int e = 0; e < exampleCount; e++) {
+					output[outputOffset + e] = output[outputOffset + e] * scale + bias;
+				}
+			}
+		}
+		activationFunction.activate(output, outputCount, exampleCount);
+	}
+
+	public InferenceActivationFunction getActivationFunction() {
+		return activationFunction;
+	}
+
+	/**
+	 * @return The quantised weights, one row per output, row by row, which must not be modified.
+	 */
+	byte[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * @return The bias of each output, which must not be modified.
+	 */
+	float[] getBiases() {
+		return biases;
+	}
+
+	/**
+	 * @return The scale of each row of weights, which must not be modified.
+	 */
+	float[] getScales() {
+		return scales;
+	}
+}
@@ -0,0 +1,106 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * Max pooling InferenceOperation over non-overlapping windows, ie. with stride equal to the window size.
+ *
+ */
+public class MaxPoolingOperation implements InferenceOperation {
+
+	private final int depth;
+	private final int inputHeight;
+	private final int inputWidth;
+	private final int windowHeight;
+	private final int windowWidth;
+	private final int outputHeight;
+	private final int outputWidth;
+	private final boolean scaleOutputs;
+	private final float scale;
+
+	/**
+	 * @param depth        The number of channels.
+	 * @param inputHeight  The input height.
+	 * @param inputWidth   The input width.
+	 * @param windowHeight The pooling window height, and vertical stride.
+	 * @param windowWidth  The pooling window width, and horizontal stride.
+	 * @param scaleOutputs Whether outputs are scaled by the ratio of input to output neurons, as for max
+	 *                     pooling layers built withScaleOutputs().
+	 */
+	public MaxPoolingOperation(int depth, int inputHeight, int inputWidth, int windowHeight, int windowWidth,
+			boolean scaleOutputs) {
+		if (inputHeight % windowHeight != 0 || inputWidth % windowWidth != 0) {
+			throw new IllegalArgumentException("Input of " + inputHeight + "x" + inputWidth
+					+ " is not divisible into windows of " + windowHeight + "x" + windowWidth);
+		}
+		this.depth = depth;
+		this.inputHeight = inputHeight;
+		this.inputWidth = inputWidth;
+		this.windowHeight = windowHeight;
+		this.windowWidth = windowWidth;
+		this.outputHeight = inputHeight / windowHeight;
+		this.outputWidth = inputWidth / windowWidth;
+		this.scaleOutputs = scaleOutputs;
+		this.scale = scaleOutputs ? windowHeight * windowWidth : 1;
+	}
+
+	@Override
+	public int getInputCount() {
+		return depth * inputHeight * inputWidth;
+	}
+
+	@Override
+	public int getOutputCount() {
+		return depth * outputHeight * outputWidth;
+	}
+
+	@Override
+	public void forwardPropagate(float[] input, float[] output, int exampleCount) {
+		for (int c = 0; c < depth; c++) {
+			for (int oy = 0; oy < outputHeight; oy++) {
+				for (int ox = 0; ox < outputWidth; ox++) {
+					int outputOffset = ((c * outputHeight + oy) * outputWidth + ox) * exampleCount;
+					int inputOffset = ((c * inputHeight + oy * windowHeight) * inputWidth + ox * windowWidth) * exampleCount;
+					for (int e = 0; e < exampleCount; e++) {
+						output[outputOffset + e] = input[inputOffset + e];
+					}
+					for (int wy = 0; wy < windowHeight; wy++) {
+						for (int wx = 0; wx < windowWidth; wx++) {
+							int windowOffset = inputOffset + (wy * inputWidth + wx) * exampleCount;
+							for (int e = 0; e < exampleCount; e++) {
+								output[outputOffset + e] = Math.max(output[outputOffset + e], input[windowOffset + e]);
+							}
+						}
+					}
+					if (scale != 1) {
+						for (int e = 0; e < exampleCount; e++) {
+							output[outputOffset + e] *= scale;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getInputHeight() {
+		return inputHeight;
+	}
+
+	public int getInputWidth() {
+		return inputWidth;
+	}
+
+	public int getWindowHeight() {
+		return windowHeight;
+	}
+
+	public int getWindowWidth() {
+		return windowWidth;
+	}
+
+	public boolean isScaleOutputs() {
+		return scaleOutputs;
+	}
+}
@@ -0,0 +1,121 @@
+package org.ml4j.nn.demo.kernels;
+
+import java.util.logging.LogManager;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the accuracy of the pretrained five-layer network on the Mnist test set when run as an
+ * InferencePlan at each WeightsPrecision, against the float network built by
+ * PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer, together with the size of the weights at
+ * each precision.
+ *
+ */
+public class QuantisationAccuracyReport {
+
+	static {
+		// Quieten Logging for JBlas
+		org.jblas.util.Logger.getLogger().setLevel(org.jblas.util.Logger.ERROR);
+		LogManager.getLogManager().reset();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(QuantisationAccuracyReport.class);
+
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_SIZE = 1000;
+
+	private static final String[] FULLY_CONNECTED_WEIGHTS = { "layer3Weights", "layer4Weights", "layer5Weights" };
+
+	public static void main(String[] args) {
+		MatrixFactory matrixFactory = new JBlasRowMajorMatrixFactoryOptimised();
+		DefaultSession session = new QuickstartSessionFactory(matrixFactory, false).createSession();
+		WeightsBundle bundle = WeightsBundle.load(QuantisationAccuracyReport.class.getClassLoader(),
+				PretrainedMnistWeights.WEIGHTS_BUNDLE_RESOURCE);
+
+		// Reference outputs from the float network
+		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = PretrainedMnistNetworks
+				.createFiveLayerNetworkWithConvLayer(session, new PretrainedMnistWeights(matrixFactory, bundle));
+		NeuronsActivation testSetOutput = neuralNetwork.forwardPropagate(MnistData.loadTestSetData(matrixFactory),
+				session.createLayeredSupervisedFeedForwardNeuralNetworkContext()).getOutput();
+		float[] referenceOutputs = testSetOutput.getActivations(matrixFactory).getRowByRowArray();
+
+		MnistExamples examples = MnistData.getExamples();
+		int[] labels = new int[TEST_SET_SIZE];
+		for (int e = 0; e < TEST_SET_SIZE; e++) {
+			labels[e] = examples.getLabel(TEST_SET_START + e);
+		}
+		int[] referencePredictions = argmax(referenceOutputs);
+
+		LOGGER.info(String.format("%-10s %10s %10s %12s %14s", "Precision", "Accuracy", "Agreement", "Max Delta",
+				"Weights Bytes"));
+		LOGGER.info(String.format("%-10s %10.4f %10s %12s %14d", "Network", accuracy(referencePredictions, labels), "-",
+				"-", getWeightsSizeInBytes(bundle, WeightsPrecision.FLOAT32)));
+		for (WeightsPrecision precision : WeightsPrecision.values()) {
+			InferenceWorkspace workspace = InferencePlan.forPretrainedFiveLayerNetwork(bundle, precision)
+					.createWorkspace(TEST_SET_SIZE);
+			workspace.setInputs(examples, TEST_SET_START, TEST_SET_SIZE);
+			float[] outputs = workspace.forwardPropagate(TEST_SET_SIZE);
+			int[] predictions = argmax(outputs);
+			int agreements = 0;
+			for (int e = 0; e < TEST_SET_SIZE; e++) {
+				if (predictions[e] == referencePredictions[e]) {
+					agreements++;
+				}
+			}
+			float maxDelta = 0;
+			for (int i = 0; i < referenceOutputs.length; i++) {
+				maxDelta = Math.max(maxDelta, Math.abs(outputs[i] - referenceOutputs[i]));
+			}
+			LOGGER.info(String.format("%-10s %10.4f %10.4f %12.6f %14d", precision, accuracy(predictions, labels),
+					(float) agreements / TEST_SET_SIZE, maxDelta, getWeightsSizeInBytes(bundle, precision)));
+		}
+	}
+
+	private static long getWeightsSizeInBytes(WeightsBundle bundle, WeightsPrecision precision) {
+		long size = 0;
+		for (String name : bundle.getTensorNames()) {
+			WeightsBundle.Entry entry = bundle.getEntry(name);
+			boolean fullyConnectedWeights = false;
+			for (String fullyConnectedWeightsName : FULLY_CONNECTED_WEIGHTS) {
+				fullyConnectedWeights |= fullyConnectedWeightsName.equals(name);
+			}
+			size += fullyConnectedWeights ? precision.getWeightsSizeInBytes(entry.getRows(), entry.getColumns())
+					: (long) entry.getRows() * entry.getColumns() * Float.BYTES;
+		}
+		return size;
+	}
+
+	private static int[] argmax(float[] outputs) {
+		int[] predictions = new int[TEST_SET_SIZE];
+		for (int e = 0; e < TEST_SET_SIZE; e++) {
+			for (int c = 1; c < MnistExamples.LABEL_COUNT; c++) {
+				if (outputs[c * TEST_SET_SIZE + e] > outputs[predictions[e] * TEST_SET_SIZE + e]) {
+					predictions[e] = c;
+				}
+			}
+		}
+		return predictions;
+	}
+
+	private static float accuracy(int[] predictions, int[] labels) {
+		int correct = 0;
+		for (int e = 0; e < predictions.length; e++) {
+			if (predictions[e] == labels[e]) {
+				correct++;
+			}
+		}
+		return (float) correct / predictions.length;
+	}
+}
@@ -0,0 +1,65 @@
+package org.ml4j.nn.demo.kernels;
+
+/**
+ * The precision in which the weights of fully connected operations are held by an InferencePlan.
+ *
+ */
+public enum WeightsPrecision {
+
+	FLOAT32 {
+		@Override
+		public InferenceOperation createFullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+				InferenceActivationFunction activationFunction) {
+			return new FullyConnectedOperation(weights, biases, inputCount, activationFunction);
+		}
+
+		@Override
+		public long getWeightsSizeInBytes(int outputCount, int inputCount) {
+			return (long) outputCount * inputCount * Float.BYTES;
+		}
+	},
+
+	FLOAT16 {
+		@Override
+		public InferenceOperation createFullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+				InferenceActivationFunction activationFunction) {
+			return new Float16FullyConnectedOperation(weights, biases, inputCount, activationFunction);
+		}
+
+		@Override
+		public long getWeightsSizeInBytes(int outputCount, int inputCount) {
+			return (long) outputCount * inputCount * Short.BYTES;
+		}
+	},
+
+	INT8 {
+		@Override
+		public InferenceOperation createFullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+				InferenceActivationFunction activationFunction) {
+			return new Int8FullyConnectedOperation(weights, biases, inputCount, activationFunction);
+		}
+
+		@Override
+		public long getWeightsSizeInBytes(int outputCount, int inputCount) {
+			// One byte per weight, plus one float scale per row
+			return (long) outputCount * inputCount + (long) outputCount * Float.BYTES;
+		}
+	};
+
+	/**
+	 * @param weights            The float weights, one row per output and one column per input, row by row.
+	 * @param biases             The bias of each output.
+	 * @param inputCount         The number of inputs.
+	 * @param activationFunction The activation function.
+	 * @return A fully connected operation holding the weights in this precision.
+	 */
+	public abstract InferenceOperation createFullyConnectedOperation(float[] weights, float[] biases, int inputCount,
+			InferenceActivationFunction activationFunction);
+
+	/**
+	 * @param outputCount The number of outputs.
+	 * @param inputCount  The number of inputs.
+	 * @return The size of a fully connected weights matrix held in this precision, excluding biases.
+	 */
+	public abstract long getWeightsSizeInBytes(int outputCount, int inputCount);
+}
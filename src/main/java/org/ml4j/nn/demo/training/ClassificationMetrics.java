@@ -0,0 +1,76 @@
+package org.ml4j.nn.demo.training;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * Accumulates the mean cross-entropy loss and classification accuracy of softmax outputs against one-hot
+ * labels, batch by batch.
+ *
+ */
+public class ClassificationMetrics {
+
+	/**
+	 * Lower bound on the probability of the correct class, so that the loss of a confidently wrong
+	 * prediction is finite.
+	 */
+	private static final float MIN_PROBABILITY = 1e-7f;
+
+	private double lossSum;
+	private int correctCount;
+	private int exampleCount;
+
+	/**
+	 * @param outputActivations The softmax output activations of a batch, one column per example.
+	 * @param labelActivations  The one-hot label activations of the batch, one column per example.
+	 * @param matrixFactory     The matrix factory.
+	 */
+	public void add(NeuronsActivation outputActivations, NeuronsActivation labelActivations,
+			MatrixFactory matrixFactory) {
+		int classCount = outputActivations.getActivations(matrixFactory).getRows();
+		int count = outputActivations.getActivations(matrixFactory).getColumns();
+		float[] outputs = outputActivations.getActivations(matrixFactory).getRowByRowArray();
+		float[] labels = labelActivations.getActivations(matrixFactory).getRowByRowArray();
+		for (int e = 0; e < count; e++) {
+			int predicted = 0;
+			int actual = 0;
+			for (int c = 1; c < classCount; c++) {
+				if (outputs[c * count + e] > outputs[predicted * count + e]) {
+					predicted = c;
+				}
+				if (labels[c * count + e] > labels[actual * count + e]) {
+					actual = c;
+				}
+			}
+			if (predicted == actual) {
+				correctCount++;
+			}
+			lossSum -= Math.log(Math.max(outputs[actual * count + e], MIN_PROBABILITY));
+		}
+		exampleCount += count;
+	}
+
+	public void reset() {
+		lossSum = 0;
+		correctCount = 0;
+		exampleCount = 0;
+	}
+
+	public int getExampleCount() {
+		return exampleCount;
+	}
+
+	/**
+	 * @return The mean cross-entropy loss, or NaN if no examples have been added.
+	 */
+	public float getLoss() {
+		return exampleCount == 0 ? Float.NaN : (float) (lossSum / exampleCount);
+	}
+
+	/**
+	 * @return The fraction of examples classified correctly, or NaN if no examples have been added.
+	 */
+	public float getAccuracy() {
+		return exampleCount == 0 ? Float.NaN : (float) correctCount / exampleCount;
+	}
+}
@@ -0,0 +1,172 @@
+package org.ml4j.nn.demo.training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.util.CloseableIterator;
+import org.ml4j.nn.demo.util.MiniBatch;
+import org.ml4j.nn.demo.util.MiniBatchSource;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Trains a LayeredSupervisedFeedForwardNeuralNetwork data-parallel across a number of replica networks,
+ * each trained by its own thread with its own training context.
+ *
+ * Each training step takes the next replicaCount mini-batches from the MiniBatchSource as the shards of
+ * one larger batch. Every replica starts the step from the same parameters, takes one training step on
+ * its shard, and the step's parameters are then the average of the replicas' parameters, weighted by
+ * shard size. For plain gradient descent, where a replica's update is its learning rate times the mean
+ * gradient over its shard, this average is exactly the update for the mean gradient over the whole
+ * batch - ie. it is equivalent to reducing the gradients and applying one update.
+ *
+ * Shards are assigned to replicas in order and the parameters are reduced in replica order, so for a
+ * deterministic MiniBatchSource ( eg. with a fixed shuffle seed ) and a fixed replica count the result
+ * does not depend on thread scheduling. The reduction is split across the worker threads by parameter
+ * range, each parameter still summing its terms in replica order. Dropout draws random masks within each
+ * replica's training context, so for bitwise reproducibility dropout should be disabled.
+ *
+ */
+public class DataParallelTrainer implements AutoCloseable {
+
+	private final LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private final MiniBatchSource shardSource;
+	private final int replicaCount;
+	private final List<LayeredSupervisedFeedForwardNeuralNetwork> replicas;
+	private final List<LayeredFeedForwardNeuralNetworkContext> replicaContexts;
+	private final NetworkWeights[] replicaWeights;
+	private final NetworkWeights stepWeights;
+	private final float[] shardFractions;
+	private final int parameterCount;
+	private final ExecutorService executorService;
+
+	/**
+	 * @param neuralNetwork          The network to train, which is used as the first replica.
+	 * @param replicaFactory         Creates further networks of the same architecture as the replicas. Their
+	 *                               initial parameters are overwritten.
+	 * @param trainingContextFactory Creates the training context of each replica, configured with the
+	 *                               learning rate and any per-layer hyper-parameters.
+	 * @param shardSource            The source of the shards - its batch size is the shard size, and each
+	 *                               training step covers replicaCount of its mini-batches.
+	 * @param replicaCount           The number of replicas, and worker threads.
+	 */
+	public DataParallelTrainer(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork,
+			Supplier<LayeredSupervisedFeedForwardNeuralNetwork> replicaFactory,
+			Function<LayeredSupervisedFeedForwardNeuralNetwork, LayeredFeedForwardNeuralNetworkContext> trainingContextFactory,
+			MiniBatchSource shardSource, int replicaCount) {
+		if (replicaCount <= 0) {
+			throw new IllegalArgumentException("Replica count must be positive");
+		}
+		this.neuralNetwork = neuralNetwork;
+		this.shardSource = shardSource;
+		this.replicaCount = replicaCount;
+		this.replicas = new ArrayList<>();
+		this.replicaContexts = new ArrayList<>();
+		this.replicaWeights = new NetworkWeights[replicaCount];
+		this.stepWeights = NetworkWeights.read(neuralNetwork);
+		for (int r = 0; r < replicaCount; r++) {
+			LayeredSupervisedFeedForwardNeuralNetwork replica = r == 0 ? neuralNetwork : replicaFactory.get();
+			LayeredFeedForwardNeuralNetworkContext context = trainingContextFactory.apply(replica);
+			context.setTrainingEpochs(1);
+			replicas.add(replica);
+			replicaContexts.add(context);
+			replicaWeights[r] = stepWeights.copy();
+		}
+		this.shardFractions = new float[replicaCount];
+		this.parameterCount = stepWeights.getParameterCount();
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executorService = Executors.newFixedThreadPool(replicaCount, runnable -> {
+			Thread thread = new Thread(runnable, "data-parallel-trainer-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public int getReplicaCount() {
+		return replicaCount;
+	}
+
+	/**
+	 * Trains the network for the specified number of epochs. On return, the network holds the trained
+	 * parameters.
+	 *
+	 * @param epochs The number of passes over the training data.
+	 */
+	public void train(int epochs) {
+		stepWeights.readFrom(neuralNetwork);
+		MiniBatch[] shards = new MiniBatch[replicaCount];
+		List<Future<?>> futures = new ArrayList<>(replicaCount);
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			// Shards are read in order on this thread, but decoded by the replica that trains on them
+			try (CloseableIterator<Supplier<MiniBatch>> batches = shardSource.deferredIterator(epoch)) {
+				while (batches.hasNext()) {
+					int shardCount = 0;
+					futures.clear();
+					while (shardCount < replicaCount && batches.hasNext()) {
+						int replicaIndex = shardCount++;
+						Supplier<MiniBatch> shard = batches.next();
+						futures.add(executorService.submit(() -> {
+							shards[replicaIndex] = shard.get();
+							trainReplica(replicaIndex, shards[replicaIndex]);
+						}));
+					}
+					awaitAll(futures);
+					reduce(shards, shardCount);
+				}
+			}
+		}
+		stepWeights.writeTo(neuralNetwork);
+	}
+
+	private void trainReplica(int replicaIndex, MiniBatch shard) {
+		LayeredSupervisedFeedForwardNeuralNetwork replica = replicas.get(replicaIndex);
+		stepWeights.writeTo(replica);
+		replica.train(shard.getDataActivations(), shard.getLabelActivations(), replicaContexts.get(replicaIndex));
+		replicaWeights[replicaIndex].readFrom(replica);
+	}
+
+	private void reduce(MiniBatch[] shards, int shardCount) {
+		int exampleCount = 0;
+		for (int r = 0; r < shardCount; r++) {
+			exampleCount += shards[r].getExampleCount();
+		}
+		for (int r = 0; r < shardCount; r++) {
+			shardFractions[r] = (float) shards[r].getExampleCount() / exampleCount;
+		}
+		// Each worker sums a disjoint range of the parameters, in replica order
+		List<Future<?>> futures = new ArrayList<>(replicaCount);
+		int rangeSize = (parameterCount + replicaCount - 1) / replicaCount;
+		for (int start = 0; start < parameterCount; start += rangeSize) {
+			int rangeStart = start;
+			int rangeEnd = Math.min(start + rangeSize, parameterCount);
+			futures.add(executorService.submit(() -> stepWeights.setToWeightedSum(replicaWeights, shardFractions,
+					shardCount, rangeStart, rangeEnd)));
+		}
+		awaitAll(futures);
+	}
+
+	private static void awaitAll(List<Future<?>> futures) {
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for replica training", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Replica training failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		executorService.shutdownNow();
+	}
+}
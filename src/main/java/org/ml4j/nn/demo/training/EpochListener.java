@@ -0,0 +1,14 @@
+package org.ml4j.nn.demo.training;
+
+/**
+ * Notified by a MiniBatchTrainer at the end of each training epoch.
+ *
+ */
+@FunctionalInterface
+public interface EpochListener {
+
+	/**
+	 * @param summary The metrics of the completed epoch.
+	 */
+	void onEpochCompleted(EpochSummary summary);
+}
@@ -0,0 +1,70 @@
+package org.ml4j.nn.demo.training;
+
+/**
+ * The metrics of a completed training epoch. Metrics which were not computed for the epoch are NaN.
+ *
+ */
+public class EpochSummary {
+
+	private final int epoch;
+	private final float trainingLoss;
+	private final float trainingAccuracy;
+	private final float validationLoss;
+	private final float validationAccuracy;
+	private final long elapsedNanos;
+
+	public EpochSummary(int epoch, float trainingLoss, float trainingAccuracy, float validationLoss,
+			float validationAccuracy, long elapsedNanos) {
+		this.epoch = epoch;
+		this.trainingLoss = trainingLoss;
+		this.trainingAccuracy = trainingAccuracy;
+		this.validationLoss = validationLoss;
+		this.validationAccuracy = validationAccuracy;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return The zero-based index of the epoch.
+	 */
+	public int getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * @return The mean cross-entropy loss over the epoch's mini-batches, each measured just before its
+	 *         training step.
+	 */
+	public float getTrainingLoss() {
+		return trainingLoss;
+	}
+
+	/**
+	 * @return The classification accuracy over the epoch's mini-batches, each measured just before its
+	 *         training step.
+	 */
+	public float getTrainingAccuracy() {
+		return trainingAccuracy;
+	}
+
+	/**
+	 * @return Whether the validation set was evaluated at the end of this epoch.
+	 */
+	public boolean isValidated() {
+		return !Float.isNaN(validationAccuracy);
+	}
+
+	public float getValidationLoss() {
+		return validationLoss;
+	}
+
+	public float getValidationAccuracy() {
+		return validationAccuracy;
+	}
+
+	/**
+	 * @return The time taken by the epoch, including any evaluation.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
@@ -0,0 +1,262 @@
+package org.ml4j.nn.demo.training;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.util.CloseableIterator;
+import org.ml4j.nn.demo.util.MiniBatch;
+import org.ml4j.nn.demo.util.MiniBatchSource;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Trains a LayeredSupervisedFeedForwardNeuralNetwork on mini-batches from a MiniBatchSource, so that the
+ * training set never needs to be loaded into memory as a whole.
+ *
+ * Optionally, the trainer accumulates training loss and accuracy over each epoch, evaluates a held-out
+ * validation set every few epochs, reports both to EpochListeners, and stops early once validation
+ * accuracy stops improving. It can also checkpoint every few epochs, and resume from a checkpoint.
+ *
+ */
+public class MiniBatchTrainer {
+
+	private final LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private final MiniBatchSource miniBatchSource;
+	private final List<EpochListener> epochListeners = new ArrayList<>();
+
+	private MatrixFactory matrixFactory;
+	private LayeredFeedForwardNeuralNetworkContext evaluationContext;
+	private boolean trainingMetrics;
+	private MiniBatchSource validationSource;
+	private int evaluationInterval;
+	private int patience;
+	private float minImprovement;
+	private TrainingCheckpointer checkpointer;
+	private int checkpointInterval;
+	private Long shuffleSeed;
+	private TrainingCheckpoint resumeCheckpoint;
+
+	public MiniBatchTrainer(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork, MiniBatchSource miniBatchSource) {
+		this.neuralNetwork = neuralNetwork;
+		this.miniBatchSource = miniBatchSource;
+	}
+
+	/**
+	 * Sets the non-training context used to compute metrics, required for training metrics and validation.
+	 *
+	 * @param evaluationContext The non-training context.
+	 * @param matrixFactory     The matrix factory of the network's session.
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer withEvaluationContext(LayeredFeedForwardNeuralNetworkContext evaluationContext,
+			MatrixFactory matrixFactory) {
+		this.evaluationContext = evaluationContext;
+		this.matrixFactory = matrixFactory;
+		return this;
+	}
+
+	/**
+	 * Accumulates the loss and accuracy of each mini-batch, measured by forward propagating the mini-batch
+	 * just before its training step. The library's train method does not expose the activations it
+	 * computes, so this costs one extra forward pass per mini-batch - ie. one extra forward pass over the
+	 * training data per epoch, though only over data that is already decoded. Where validation is
+	 * configured and training throughput matters, consider relying on validation metrics alone.
+	 *
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer withTrainingMetrics() {
+		this.trainingMetrics = true;
+		return this;
+	}
+
+	/**
+	 * @param validationSource   The held-out validation set.
+	 * @param evaluationInterval The number of epochs between evaluations of the validation set. The last
+	 *                           epoch is always evaluated.
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer withValidation(MiniBatchSource validationSource, int evaluationInterval) {
+		if (evaluationInterval <= 0) {
+			throw new IllegalArgumentException("Evaluation interval must be positive");
+		}
+		this.validationSource = validationSource;
+		this.evaluationInterval = evaluationInterval;
+		return this;
+	}
+
+	/**
+	 * Stops training once validation accuracy has not improved on its best value by more than
+	 * minImprovement for patience consecutive evaluations, and restores the parameters of the best
+	 * evaluation when training ends.
+	 *
+	 * @param patience       The number of evaluations without improvement to allow.
+	 * @param minImprovement The minimum increase in validation accuracy counted as an improvement.
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer withEarlyStopping(int patience, float minImprovement) {
+		if (patience <= 0) {
+			throw new IllegalArgumentException("Patience must be positive");
+		}
+		this.patience = patience;
+		this.minImprovement = minImprovement;
+		return this;
+	}
+
+	/**
+	 * Writes a checkpoint every checkpointInterval epochs, and when training ends. Each checkpoint is
+	 * written asynchronously from a copy of the parameters, so training only pauses to take the copy. With
+	 * early stopping, the final checkpoint holds the restored parameters of the best evaluation, and records
+	 * whether the run stopped early and the epoch of the best evaluation.
+	 *
+	 * @param checkpointer       The checkpointer.
+	 * @param checkpointInterval The number of epochs between checkpoints.
+	 * @param shuffleSeed        The shuffle seed of the training MiniBatchSource, recorded so that a resumed
+	 *                           run can recreate the source, or null if examples are not shuffled.
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer withCheckpointing(TrainingCheckpointer checkpointer, int checkpointInterval,
+			Long shuffleSeed) {
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+		this.checkpointer = checkpointer;
+		this.checkpointInterval = checkpointInterval;
+		this.shuffleSeed = shuffleSeed;
+		return this;
+	}
+
+	/**
+	 * Resumes training from a checkpoint - the checkpointed parameters are restored into the network when
+	 * training starts, the checkpointed learning rate is set on the training context, and training
+	 * continues from the epoch after the last completed epoch. The training MiniBatchSource should have
+	 * been created with the checkpoint's shuffle seed.
+	 *
+	 * Early stopping state is not checkpointed, so a resumed run tracks its best validation accuracy from
+	 * the point of resumption. A checkpoint recording that its run stopped early is final - training
+	 * restores its parameters and returns immediately.
+	 *
+	 * @param checkpoint The checkpoint, or null to start from the first epoch.
+	 * @return This trainer.
+	 */
+	public MiniBatchTrainer resumeFrom(TrainingCheckpoint checkpoint) {
+		this.resumeCheckpoint = checkpoint;
+		return this;
+	}
+
+	public MiniBatchTrainer addEpochListener(EpochListener epochListener) {
+		epochListeners.add(epochListener);
+		return this;
+	}
+
+	/**
+	 * Trains the network for up to the specified number of epochs, performing one training step per
+	 * mini-batch.
+	 *
+	 * The training epochs of the context are set to 1, as each call to train covers a single mini-batch.
+	 *
+	 * @param trainingContext The training context.
+	 * @param epochs          The maximum number of passes over the training data, including any epochs
+	 *                        completed before resuming from a checkpoint.
+	 * @return The number of epochs completed, which is less than epochs if training stopped early.
+	 */
+	public int train(LayeredFeedForwardNeuralNetworkContext trainingContext, int epochs) {
+		if ((trainingMetrics || validationSource != null) && evaluationContext == null) {
+			throw new IllegalStateException("An evaluation context is required for training metrics and validation");
+		}
+		if (patience > 0 && validationSource == null) {
+			throw new IllegalStateException("Early stopping requires a validation set");
+		}
+		trainingContext.setTrainingEpochs(1);
+		int epoch = 0;
+		if (resumeCheckpoint != null) {
+			resumeCheckpoint.restoreWeights(neuralNetwork);
+			trainingContext.setTrainingLearningRate(resumeCheckpoint.getLearningRate());
+			epoch = resumeCheckpoint.getCompletedEpochs();
+			if (resumeCheckpoint.isStopped()) {
+				return epoch;
+			}
+		}
+		int startEpoch = epoch;
+		ClassificationMetrics trainingEpochMetrics = new ClassificationMetrics();
+		NetworkWeights bestWeights = null;
+		int bestEpoch = 0;
+		boolean stop = false;
+		float bestValidationAccuracy = Float.NEGATIVE_INFINITY;
+		int evaluationsWithoutImprovement = 0;
+		while (epoch < epochs) {
+			long startTime = System.nanoTime();
+			trainingEpochMetrics.reset();
+			try (CloseableIterator<MiniBatch> batches = miniBatchSource.iterator(epoch)) {
+				while (batches.hasNext()) {
+					MiniBatch batch = batches.next();
+					if (trainingMetrics) {
+						trainingEpochMetrics.add(neuralNetwork.forwardPropagate(batch.getDataActivations(), evaluationContext)
+								.getOutput(), batch.getLabelActivations(), matrixFactory);
+					}
+					neuralNetwork.train(batch.getDataActivations(), batch.getLabelActivations(), trainingContext);
+				}
+			}
+			epoch++;
+
+			float validationLoss = Float.NaN;
+			float validationAccuracy = Float.NaN;
+			if (validationSource != null && (epoch % evaluationInterval == 0 || epoch == epochs)) {
+				ClassificationMetrics validationMetrics = evaluate(validationSource);
+				validationLoss = validationMetrics.getLoss();
+				validationAccuracy = validationMetrics.getAccuracy();
+				if (patience > 0) {
+					if (validationAccuracy > bestValidationAccuracy + minImprovement || bestWeights == null) {
+						bestValidationAccuracy = validationAccuracy;
+						bestWeights = NetworkWeights.read(neuralNetwork);
+						bestEpoch = epoch;
+						evaluationsWithoutImprovement = 0;
+					} else {
+						stop = ++evaluationsWithoutImprovement >= patience;
+					}
+				}
+			}
+			EpochSummary summary = new EpochSummary(epoch - 1, trainingEpochMetrics.getLoss(),
+					trainingEpochMetrics.getAccuracy(), validationLoss, validationAccuracy, System.nanoTime() - startTime);
+			for (EpochListener epochListener : epochListeners) {
+				epochListener.onEpochCompleted(summary);
+			}
+			if (stop) {
+				break;
+			}
+			// The final checkpoint is written once any best parameters have been restored
+			if (checkpointer != null && epoch % checkpointInterval == 0 && epoch < epochs) {
+				checkpointer.checkpoint(epoch, trainingContext.getTrainingLearningRate(), shuffleSeed,
+						NetworkWeights.read(neuralNetwork));
+			}
+		}
+		if (bestWeights != null) {
+			bestWeights.writeTo(neuralNetwork);
+		}
+		if (checkpointer != null && epoch > startEpoch) {
+			checkpointer.checkpoint(epoch, trainingContext.getTrainingLearningRate(), shuffleSeed,
+					bestWeights == null ? NetworkWeights.read(neuralNetwork) : bestWeights, stop,
+					bestWeights == null ? null : bestEpoch);
+		}
+		return epoch;
+	}
+
+	/**
+	 * @param source The mini-batches to evaluate.
+	 * @return The loss and accuracy of the network over all the mini-batches of the source's first epoch.
+	 */
+	public ClassificationMetrics evaluate(MiniBatchSource source) {
+		if (evaluationContext == null) {
+			throw new IllegalStateException("An evaluation context is required for evaluation");
+		}
+		ClassificationMetrics metrics = new ClassificationMetrics();
+		try (CloseableIterator<MiniBatch> batches = source.iterator(0)) {
+			while (batches.hasNext()) {
+				MiniBatch batch = batches.next();
+				metrics.add(neuralNetwork.forwardPropagate(batch.getDataActivations(), evaluationContext).getOutput(),
+						batch.getLabelActivations(), matrixFactory);
+			}
+		}
+		return metrics;
+	}
+}
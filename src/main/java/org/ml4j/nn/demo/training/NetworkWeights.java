@@ -0,0 +1,291 @@
+package org.ml4j.nn.demo.training;
+
+import org.ml4j.EditableMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.nn.axons.AxonWeights;
+import org.ml4j.nn.axons.BiasVector;
+import org.ml4j.nn.axons.WeightsMatrixOrientation;
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.ml4j.nn.demo.util.WeightsBundleWriter;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * A copy of the trainable parameters of a LayeredSupervisedFeedForwardNeuralNetwork - the connection
+ * weights and left to right biases of each layer's primary axons - held as row by row float arrays.
+ *
+ * Parameters are read from and written to a network through the matrices of its axon weights, in place,
+ * so an instance may be used to transfer parameters between networks of the same architecture.
+ * Layers without trainable parameters, such as max pooling layers, have null weights and biases.
+ *
+ * Parameters may also be saved as a WeightsBundle, naming the tensors of layer i ( zero-based )
+ * "layer{i+1}Weights" and "layer{i+1}Biases" - the same convention as the pretrained weights bundle, so
+ * that a trained network of the pretrained architecture can be loaded by PretrainedMnistWeights.
+ *
+ */
+public class NetworkWeights {
+
+	private final int[] weightsRows;
+	private final int[] weightsColumns;
+	private final WeightsMatrixOrientation[] orientations;
+	private final float[][] weights;
+	private final float[][] biases;
+
+	private NetworkWeights(int layerCount) {
+		this.weightsRows = new int[layerCount];
+		this.weightsColumns = new int[layerCount];
+		this.orientations = new WeightsMatrixOrientation[layerCount];
+		this.weights = new float[layerCount][];
+		this.biases = new float[layerCount][];
+	}
+
+	/**
+	 * @param neuralNetwork The network.
+	 * @return A copy of the network's current parameters.
+	 */
+	public static NetworkWeights read(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		NetworkWeights networkWeights = new NetworkWeights(neuralNetwork.getNumberOfLayers());
+		networkWeights.readFrom(neuralNetwork);
+		return networkWeights;
+	}
+
+	/**
+	 * @return A deep copy of these parameters.
+	 */
+	public NetworkWeights copy() {
+		NetworkWeights copy = new NetworkWeights(weights.length);
+		for (int i = 0; i < weights.length; i++) {
+			copy.weightsRows[i] = weightsRows[i];
+			copy.weightsColumns[i] = weightsColumns[i];
+			copy.orientations[i] = orientations[i];
+			copy.weights[i] = weights[i] == null ? null : weights[i].clone();
+			copy.biases[i] = biases[i] == null ? null : biases[i].clone();
+		}
+		return copy;
+	}
+
+	public int getLayerCount() {
+		return weights.length;
+	}
+
+	/**
+	 * @return The total number of parameters - weights and biases - over all layers.
+	 */
+	public int getParameterCount() {
+		int parameterCount = 0;
+		for (int i = 0; i < weights.length; i++) {
+			parameterCount += (weights[i] == null ? 0 : weights[i].length) + (biases[i] == null ? 0 : biases[i].length);
+		}
+		return parameterCount;
+	}
+
+	/**
+	 * @param layerIndex The layer index.
+	 * @return The connection weights of the layer, row by row, or null if the layer has none.
+	 */
+	public float[] getWeights(int layerIndex) {
+		return weights[layerIndex];
+	}
+
+	public int getWeightsRows(int layerIndex) {
+		return weightsRows[layerIndex];
+	}
+
+	public int getWeightsColumns(int layerIndex) {
+		return weightsColumns[layerIndex];
+	}
+
+	/**
+	 * @param layerIndex The layer index.
+	 * @return The orientation of the layer's connection weights, or null if the layer has none.
+	 */
+	public WeightsMatrixOrientation getWeightsOrientation(int layerIndex) {
+		return orientations[layerIndex];
+	}
+
+	/**
+	 * @param layerIndex The layer index.
+	 * @return The left to right biases of the layer, or null if the layer has none.
+	 */
+	public float[] getBiases(int layerIndex) {
+		return biases[layerIndex];
+	}
+
+	/**
+	 * Replaces these parameters with the current parameters of a network. The arrays previously returned by
+	 * getWeights and getBiases are not updated.
+	 *
+	 * @param neuralNetwork The network, of the same architecture as these parameters.
+	 */
+	public void readFrom(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		checkLayerCount(neuralNetwork);
+		for (int i = 0; i < weights.length; i++) {
+			AxonWeights axonWeights = getAxonWeights(neuralNetwork, i);
+			if (axonWeights == null || axonWeights.getConnectionWeights() == null) {
+				continue;
+			}
+			Matrix weightsMatrix = axonWeights.getConnectionWeights().getWeights();
+			weightsRows[i] = weightsMatrix.getRows();
+			weightsColumns[i] = weightsMatrix.getColumns();
+			orientations[i] = axonWeights.getConnectionWeights().getFormat().getOrientation();
+			// getRowByRowArray returns a new array, so it is kept rather than copied
+			weights[i] = weightsMatrix.getRowByRowArray();
+			BiasVector biasVector = axonWeights.getLeftToRightBiases();
+			if (biasVector != null) {
+				biases[i] = biasVector.getVector().getRowByRowArray();
+			}
+		}
+	}
+
+	/**
+	 * Writes these parameters into a network, in place.
+	 *
+	 * @param neuralNetwork The network, of the same architecture as these parameters.
+	 */
+	public void writeTo(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		checkLayerCount(neuralNetwork);
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] == null) {
+				continue;
+			}
+			AxonWeights axonWeights = getAxonWeights(neuralNetwork, i);
+			write(weights[i], axonWeights.getConnectionWeights().getWeights());
+			if (biases[i] != null) {
+				write(biases[i], axonWeights.getLeftToRightBiases().getVector());
+			}
+		}
+	}
+
+	/**
+	 * Replaces these parameters with the tensors of a weights bundle, reusing the existing arrays.
+	 *
+	 * @param bundle The bundle, containing a tensor of the same shape for each of these parameters.
+	 */
+	public void readFrom(WeightsBundle bundle) {
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] != null) {
+				readTensor(bundle, getWeightsTensorName(i), weights[i]);
+			}
+			if (biases[i] != null) {
+				readTensor(bundle, getBiasesTensorName(i), biases[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return A writer for a weights bundle containing these parameters.
+	 */
+	public WeightsBundleWriter toWeightsBundle() {
+		WeightsBundleWriter writer = new WeightsBundleWriter();
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] != null) {
+				writer.withTensor(getWeightsTensorName(i), weightsRows[i], weightsColumns[i],
+						orientations[i] == WeightsMatrixOrientation.COLUMNS_SPAN_OUTPUT_DIMENSIONS
+								? WeightsBundle.COLUMNS_SPAN_OUTPUT_DIMENSIONS
+								: WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						weights[i]);
+			}
+			if (biases[i] != null) {
+				writer.withTensor(getBiasesTensorName(i), biases[i].length, 1, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						biases[i]);
+			}
+		}
+		return writer;
+	}
+
+	/**
+	 * Sets these parameters to a weighted sum of other parameters of the same architecture. The terms of
+	 * each parameter are summed in the order given, so the result is deterministic.
+	 *
+	 * @param terms        The parameters to sum.
+	 * @param coefficients The coefficient of each term.
+	 * @param termCount    The number of terms to sum.
+	 */
+	public void setToWeightedSum(NetworkWeights[] terms, float[] coefficients, int termCount) {
+		setToWeightedSum(terms, coefficients, termCount, 0, getParameterCount());
+	}
+
+	/**
+	 * Sets a range of these parameters to a weighted sum of other parameters of the same architecture.
+	 * Parameters are indexed layer by layer, weights before biases. The terms of each parameter are summed in
+	 * the order given whatever the range, so disjoint ranges may be summed concurrently with the same result.
+	 *
+	 * @param terms        The parameters to sum.
+	 * @param coefficients The coefficient of each term.
+	 * @param termCount    The number of terms to sum.
+	 * @param start        The index of the first parameter of the range.
+	 * @param end          The index after the last parameter of the range.
+	 */
+	public void setToWeightedSum(NetworkWeights[] terms, float[] coefficients, int termCount, int start, int end) {
+		int offset = 0;
+		for (int i = 0; i < weights.length && offset < end; i++) {
+			if (weights[i] != null) {
+				weightedSum(weights[i], terms, coefficients, termCount, i, false, start - offset, end - offset);
+				offset += weights[i].length;
+			}
+			if (biases[i] != null) {
+				weightedSum(biases[i], terms, coefficients, termCount, i, true, start - offset, end - offset);
+				offset += biases[i].length;
+			}
+		}
+	}
+
+	private static void weightedSum(float[] result, NetworkWeights[] terms, float[] coefficients, int termCount,
+			int layerIndex, boolean biases, int start, int end) {
+		int from = Math.max(start, 0);
+		int to = Math.min(end, result.length);
+		for (int t = 0; t < termCount; t++) {
+			float[] term = biases ? terms[t].biases[layerIndex] : terms[t].weights[layerIndex];
+			float coefficient = coefficients[t];
+			if (t == 0) {
+				for (int j = from; j < to; j++) {
+					result[j] = coefficient * term[j];
+				}
+			} else {
+				for (int j = from; j < to; j++) {
+					result[j] += coefficient * term[j];
+				}
+			}
+		}
+	}
+
+	private static String getWeightsTensorName(int layerIndex) {
+		return "layer" + (layerIndex + 1) + "Weights";
+	}
+
+	private static String getBiasesTensorName(int layerIndex) {
+		return "layer" + (layerIndex + 1) + "Biases";
+	}
+
+	private static void readTensor(WeightsBundle bundle, String name, float[] values) {
+		WeightsBundle.Entry entry = bundle.getEntry(name);
+		if (entry.getRows() * entry.getColumns() != values.length) {
+			throw new IllegalArgumentException("Tensor " + name + " does not match the network's parameters");
+		}
+		bundle.getTensor(name).get(values);
+	}
+
+	private static AxonWeights getAxonWeights(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork, int layerIndex) {
+		return neuralNetwork.getLayer(layerIndex).getPrimaryAxons().getDetachedAxonWeights();
+	}
+
+	private static void write(float[] values, Matrix matrix) {
+		int columns = matrix.getColumns();
+		if (values.length != matrix.getRows() * columns) {
+			throw new IllegalArgumentException("Parameters do not match a " + matrix.getRows() + "x" + columns + " matrix");
+		}
+		EditableMatrix editableMatrix = matrix.asEditableMatrix();
+		int index = 0;
+		for (int row = 0; row < matrix.getRows(); row++) {
+			for (int column = 0; column < columns; column++) {
+				editableMatrix.put(row, column, values[index++]);
+			}
+		}
+	}
+
+	private void checkLayerCount(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		if (neuralNetwork.getNumberOfLayers() != weights.length) {
+			throw new IllegalArgumentException("Expected a network of " + weights.length + " layers but found "
+					+ neuralNetwork.getNumberOfLayers());
+		}
+	}
+}
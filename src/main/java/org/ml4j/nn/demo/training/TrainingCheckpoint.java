@@ -0,0 +1,88 @@
+package org.ml4j.nn.demo.training;
+
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * A checkpoint of a training run, as written by a TrainingCheckpointer - the network's parameters after a
+ * number of completed epochs, together with the training state needed to continue from there.
+ *
+ * The random state of a run is captured by its shuffle seed - MnistExamplesMiniBatchSource derives each
+ * epoch's shuffle from the seed and the epoch, so resuming at the same epoch with the same seed visits
+ * the examples in the same order as an uninterrupted run.
+ *
+ */
+public class TrainingCheckpoint {
+
+	private final int completedEpochs;
+	private final float learningRate;
+	private final Long shuffleSeed;
+	private final WeightsBundle weights;
+	private final boolean stopped;
+	private final Integer bestEpoch;
+
+	public TrainingCheckpoint(int completedEpochs, float learningRate, Long shuffleSeed, WeightsBundle weights) {
+		this(completedEpochs, learningRate, shuffleSeed, weights, false, null);
+	}
+
+	public TrainingCheckpoint(int completedEpochs, float learningRate, Long shuffleSeed, WeightsBundle weights,
+			boolean stopped, Integer bestEpoch) {
+		this.completedEpochs = completedEpochs;
+		this.learningRate = learningRate;
+		this.shuffleSeed = shuffleSeed;
+		this.weights = weights;
+		this.stopped = stopped;
+		this.bestEpoch = bestEpoch;
+	}
+
+	/**
+	 * @return The number of epochs completed, ie. the epoch to resume training from.
+	 */
+	public int getCompletedEpochs() {
+		return completedEpochs;
+	}
+
+	public float getLearningRate() {
+		return learningRate;
+	}
+
+	/**
+	 * @return The shuffle seed of the training MiniBatchSource, or null if examples were not shuffled.
+	 */
+	public Long getShuffleSeed() {
+		return shuffleSeed;
+	}
+
+	/**
+	 * @return Whether the run stopped early, in which case there is nothing further to train.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * @return The number of epochs completed when the parameters of this checkpoint were taken, if they are
+	 *         the parameters of the best validation evaluation restored at the end of the run, or null.
+	 */
+	public Integer getBestEpoch() {
+		return bestEpoch;
+	}
+
+	/**
+	 * @return The network's parameters, in the format of NetworkWeights.toWeightsBundle().
+	 */
+	public WeightsBundle getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Restores the checkpointed parameters into a network of the same architecture.
+	 *
+	 * @param neuralNetwork The network.
+	 */
+	public void restoreWeights(LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		NetworkWeights networkWeights = NetworkWeights.read(neuralNetwork);
+		networkWeights.readFrom(weights);
+		networkWeights.writeTo(neuralNetwork);
+	}
+}
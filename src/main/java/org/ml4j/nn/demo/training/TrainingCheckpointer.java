@@ -0,0 +1,218 @@
+package org.ml4j.nn.demo.training;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes training checkpoints to a directory on a background thread, so that training continues while
+ * each checkpoint is written.
+ *
+ * Each checkpoint is written from a snapshot copy of the network's parameters, taken on the training
+ * thread, as a weights bundle named for its epoch. A small properties file naming the latest weights
+ * bundle and holding the training state is then replaced. Both files are written to a temporary file and
+ * atomically renamed into place, and the properties file is only replaced once its weights bundle is
+ * complete, so a process killed at any point leaves the previous checkpoint intact. The weights bundle
+ * of the previous checkpoint is deleted once it has been superseded.
+ *
+ */
+public class TrainingCheckpointer implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TrainingCheckpointer.class);
+
+	private static final String CHECKPOINT_PROPERTIES_FILE = "checkpoint.properties";
+
+	private static final String COMPLETED_EPOCHS = "completedEpochs";
+	private static final String LEARNING_RATE = "learningRate";
+	private static final String SHUFFLE_SEED = "shuffleSeed";
+	private static final String WEIGHTS_FILE = "weightsFile";
+	private static final String STOPPED = "stopped";
+	private static final String BEST_EPOCH = "bestEpoch";
+
+	private final Path directory;
+	private final ExecutorService executorService;
+	private CompletableFuture<Path> lastCheckpoint = CompletableFuture.completedFuture(null);
+
+	/**
+	 * @param directory The directory to write checkpoints to, created if it does not exist.
+	 */
+	public TrainingCheckpointer(Path directory) {
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to create checkpoint directory:" + directory, e);
+		}
+		this.directory = directory;
+		this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "training-checkpointer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes a checkpoint asynchronously. Checkpoints are written in the order they are submitted.
+	 *
+	 * @param completedEpochs The number of epochs completed.
+	 * @param learningRate    The learning rate.
+	 * @param shuffleSeed     The shuffle seed of the training MiniBatchSource, or null.
+	 * @param snapshot        A copy of the network's parameters, which must not be modified afterwards.
+	 * @return A future completed with the path of the weights bundle once the checkpoint is written.
+	 */
+	public CompletableFuture<Path> checkpoint(int completedEpochs, float learningRate, Long shuffleSeed,
+			NetworkWeights snapshot) {
+		return checkpoint(completedEpochs, learningRate, shuffleSeed, snapshot, false, null);
+	}
+
+	/**
+	 * Writes a checkpoint asynchronously, recording how the run ended. Checkpoints are written in the order
+	 * they are submitted.
+	 *
+	 * @param completedEpochs The number of epochs completed.
+	 * @param learningRate    The learning rate.
+	 * @param shuffleSeed     The shuffle seed of the training MiniBatchSource, or null.
+	 * @param snapshot        A copy of the network's parameters, which must not be modified afterwards.
+	 * @param stopped         Whether the run stopped early.
+	 * @param bestEpoch       The number of epochs completed when the snapshot's parameters were taken, if they
+	 *                        are the parameters of the best validation evaluation, or null.
+	 * @return A future completed with the path of the weights bundle once the checkpoint is written.
+	 */
+	public synchronized CompletableFuture<Path> checkpoint(int completedEpochs, float learningRate, Long shuffleSeed,
+			NetworkWeights snapshot, boolean stopped, Integer bestEpoch) {
+		lastCheckpoint = CompletableFuture.supplyAsync(
+				() -> writeCheckpoint(completedEpochs, learningRate, shuffleSeed, snapshot, stopped, bestEpoch),
+				executorService);
+		lastCheckpoint.whenComplete((path, failure) -> {
+			if (failure != null) {
+				LOGGER.error("Unable to write checkpoint for epoch {}", completedEpochs, failure);
+			}
+		});
+		return lastCheckpoint;
+	}
+
+	/**
+	 * Waits for all submitted checkpoints to be written.
+	 */
+	public void awaitCheckpoints() {
+		CompletableFuture<Path> checkpoint;
+		synchronized (this) {
+			checkpoint = lastCheckpoint;
+		}
+		checkpoint.join();
+	}
+
+	/**
+	 * @param directory The checkpoint directory.
+	 * @return The latest complete checkpoint in the directory, or null if there is none.
+	 */
+	public static TrainingCheckpoint loadLatest(Path directory) {
+		Properties properties = readProperties(directory);
+		if (properties == null) {
+			return null;
+		}
+		String shuffleSeed = properties.getProperty(SHUFFLE_SEED);
+		String bestEpoch = properties.getProperty(BEST_EPOCH);
+		return new TrainingCheckpoint(Integer.parseInt(properties.getProperty(COMPLETED_EPOCHS)),
+				Float.parseFloat(properties.getProperty(LEARNING_RATE)),
+				shuffleSeed == null ? null : Long.valueOf(shuffleSeed),
+				WeightsBundle.map(directory.resolve(properties.getProperty(WEIGHTS_FILE))),
+				Boolean.parseBoolean(properties.getProperty(STOPPED)),
+				bestEpoch == null ? null : Integer.valueOf(bestEpoch));
+	}
+
+	private Path writeCheckpoint(int completedEpochs, float learningRate, Long shuffleSeed, NetworkWeights snapshot,
+			boolean stopped, Integer bestEpoch) {
+		long startTime = System.nanoTime();
+		Properties previousProperties = readProperties(directory);
+		String previousWeightsFile = previousProperties == null ? null : previousProperties.getProperty(WEIGHTS_FILE);
+		String weightsFile = String.format("checkpoint-%06d.weights", completedEpochs);
+		Path weightsPath = directory.resolve(weightsFile);
+		Path temporaryWeightsPath = directory.resolve(weightsFile + ".tmp");
+		snapshot.toWeightsBundle().write(temporaryWeightsPath);
+		moveAtomically(temporaryWeightsPath, weightsPath);
+
+		Properties properties = new Properties();
+		properties.setProperty(COMPLETED_EPOCHS, Integer.toString(completedEpochs));
+		properties.setProperty(LEARNING_RATE, Float.toString(learningRate));
+		if (shuffleSeed != null) {
+			properties.setProperty(SHUFFLE_SEED, shuffleSeed.toString());
+		}
+		properties.setProperty(WEIGHTS_FILE, weightsFile);
+		if (stopped) {
+			properties.setProperty(STOPPED, Boolean.TRUE.toString());
+		}
+		if (bestEpoch != null) {
+			properties.setProperty(BEST_EPOCH, bestEpoch.toString());
+		}
+		Path propertiesPath = directory.resolve(CHECKPOINT_PROPERTIES_FILE);
+		Path temporaryPropertiesPath = directory.resolve(CHECKPOINT_PROPERTIES_FILE + ".tmp");
+		try (OutputStream outputStream = Files.newOutputStream(temporaryPropertiesPath)) {
+			properties.store(outputStream, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write checkpoint:" + temporaryPropertiesPath, e);
+		}
+		moveAtomically(temporaryPropertiesPath, propertiesPath);
+
+		if (previousWeightsFile != null && !previousWeightsFile.equals(weightsFile)) {
+			try {
+				Files.deleteIfExists(directory.resolve(previousWeightsFile));
+			} catch (IOException e) {
+				LOGGER.warn("Unable to delete superseded checkpoint {}", previousWeightsFile, e);
+			}
+		}
+		LOGGER.debug("Wrote checkpoint for epoch {} in {} ms", completedEpochs,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		return weightsPath;
+	}
+
+	private static Properties readProperties(Path directory) {
+		Path propertiesFile = directory.resolve(CHECKPOINT_PROPERTIES_FILE);
+		if (!Files.exists(propertiesFile)) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try (InputStream inputStream = Files.newInputStream(propertiesFile)) {
+			properties.load(inputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read checkpoint:" + propertiesFile, e);
+		}
+		return properties;
+	}
+
+	private static void moveAtomically(Path source, Path target) {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to move " + source + " to " + target, e);
+		}
+	}
+
+	/**
+	 * Waits for all submitted checkpoints to be written, and stops the background thread.
+	 */
+	@Override
+	public void close() {
+		try {
+			awaitCheckpoints();
+		} finally {
+			executorService.shutdown();
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.Iterator;
+
+/**
+ * An Iterator holding resources, such as an open file or a prefetching thread's work, which are released
+ * by close() - whether or not the iterator was exhausted. Closing more than once has no effect.
+ *
+ * @param <T> The type of the elements.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+	@Override
+	void close();
+}
@@ -19,17 +19,48 @@ import org.ml4j.util.NumericFeaturesMatrixCsvDataExtractor;
 /**
  * Extracts the Mnist digit image data from a row in the CSV file.
  * 
+ * <p>Pixels are binarised by default. Greyscale intensities may be preserved by extracting with the
+ * SCALED or STANDARDISED PixelEncoding instead. For a float-native path which does not go through
+ * Strings or double[] rows, see MnistFeatureMatrix.
+ * 
  * @author Michael Lavelle
  */
 public class KagglePixelFeaturesMatrixCsvDataExtractor 
     extends NumericFeaturesMatrixCsvDataExtractor {
 
+  // Null for the binary encoding, which does not require integer intensities
+  private final float[] pixelValues;
+
+  public KagglePixelFeaturesMatrixCsvDataExtractor() {
+    this.pixelValues = null;
+  }
+
+  /**
+   * @param pixelEncoding The encoding of the pixel intensities.
+   * @param pixelStatistics The statistics to standardise with, required only for the STANDARDISED
+   *        encoding.
+   */
+  public KagglePixelFeaturesMatrixCsvDataExtractor(PixelEncoding pixelEncoding,
+      PixelStatistics pixelStatistics) {
+    this.pixelValues = pixelEncoding == PixelEncoding.BINARY ? null
+        : pixelEncoding.createPixelValues(pixelStatistics);
+  }
+
   @Override
   public double[] createData(String[] csvAttributes) {
     double[] rawData = super.createData(csvAttributes);
     double[] pixelActivationData = new double[rawData.length - 1];
     for (int i = 0; i < pixelActivationData.length; i++) {
-      pixelActivationData[i] = rawData[i + 1] == 0 ? 0 : 1;
+      double intensity = rawData[i + 1];
+      if (pixelValues == null) {
+        pixelActivationData[i] = intensity == 0 ? 0 : 1;
+      } else {
+        if (intensity < 0 || intensity > 255 || intensity != (int) intensity) {
+          throw new IllegalArgumentException(
+              "Pixel intensity must be an integer from 0 to 255 but found:" + intensity);
+        }
+        pixelActivationData[i] = pixelValues[(int) intensity];
+      }
     }
     return pixelActivationData;
   }
@@ -0,0 +1,35 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe value which is created on first access and then shared.
+ *
+ * @param <T> The type of value.
+ */
+class LazyValue<T> implements Supplier<T> {
+
+	private Supplier<T> factory;
+	private volatile T value;
+
+	LazyValue(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public T get() {
+		T result = value;
+		if (result == null) {
+			synchronized (this) {
+				result = value;
+				if (result == null) {
+					result = factory.get();
+					value = result;
+					// Release the factory and anything it references
+					factory = null;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,52 @@
+package org.ml4j.nn.demo.util;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
+import org.ml4j.nd4j.Nd4jRowMajorMatrixFactory;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+
+/**
+ * The MatrixFactory implementations available to the demos.
+ *
+ */
+public enum MatrixBackend {
+
+	JBLAS {
+		@Override
+		public MatrixFactory createMatrixFactory() {
+			return new JBlasRowMajorMatrixFactoryOptimised();
+		}
+	},
+
+	ND4J {
+		@Override
+		public MatrixFactory createMatrixFactory() {
+			return new Nd4jRowMajorMatrixFactory();
+		}
+	};
+
+	/**
+	 * @return A new MatrixFactory of this backend.
+	 */
+	public abstract MatrixFactory createMatrixFactory();
+
+	/**
+	 * @return A new QuickstartSessionFactory using a MatrixFactory of this backend.
+	 */
+	public QuickstartSessionFactory createSessionFactory() {
+		return new QuickstartSessionFactory(createMatrixFactory(), false);
+	}
+
+	/**
+	 * @param name The backend name, case insensitive - eg. "jblas" or "nd4j".
+	 * @return The backend.
+	 */
+	public static MatrixBackend forName(String name) {
+		for (MatrixBackend backend : values()) {
+			if (backend.name().equalsIgnoreCase(name.trim())) {
+				return backend;
+			}
+		}
+		throw new IllegalArgumentException("Unknown matrix backend:" + name);
+	}
+}
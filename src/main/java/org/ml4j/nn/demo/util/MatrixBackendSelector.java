@@ -0,0 +1,313 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the fastest MatrixBackend for a network on this host, by timing the matrix products of the
+ * network's layers with each backend at the batch size they will run at.
+ *
+ * Which backend is fastest depends on the host and on the batch size - so the choice is made separately
+ * for inference, where only the forward products are timed, and for training, where the products of
+ * back propagation and of the weights gradients are timed too. Each choice is cached in a properties file,
+ * by default ~/.ml4j/matrix-backends.properties, keyed by host name, workload and batch size, so
+ * calibration runs once per host. Products wider than MAX_CALIBRATION_COLUMNS columns, such as the unrolled
+ * convolution of a large batch, are timed over a sub-batch and scaled to the batch size, to bound the
+ * memory calibration allocates. A backend may be pinned with the system property ml4j.matrixBackend,
+ * eg. -Dml4j.matrixBackend=jblas, which bypasses calibration. Backends which fail to initialise, such as
+ * ND4J without its native libraries, are skipped.
+ *
+ */
+public class MatrixBackendSelector {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MatrixBackendSelector.class);
+
+	/**
+	 * The system property pinning the backend.
+	 */
+	public static final String BACKEND_PROPERTY = "ml4j.matrixBackend";
+
+	/**
+	 * The default cache file.
+	 */
+	public static final Path DEFAULT_CACHE_FILE = Paths.get(System.getProperty("user.home"), ".ml4j",
+			"matrix-backends.properties");
+
+	/**
+	 * The maximum number of input columns of a product timed during calibration.
+	 */
+	public static final int MAX_CALIBRATION_COLUMNS = 8192;
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+
+	private final List<MatrixProduct> products;
+	private Path cacheFile = DEFAULT_CACHE_FILE;
+
+	/**
+	 * @param products The matrix products of one forward propagation of the network, in layer order.
+	 */
+	public MatrixBackendSelector(List<MatrixProduct> products) {
+		if (products.isEmpty()) {
+			throw new IllegalArgumentException("At least one matrix product is required");
+		}
+		this.products = Collections.unmodifiableList(new ArrayList<>(products));
+	}
+
+	/**
+	 * @param layerSizes The number of neurons of each layer of a fully connected network, excluding bias
+	 *                   units, from the input layer to the output layer - eg. 784, 400, 10.
+	 * @return A selector for the fully connected network.
+	 */
+	public static MatrixBackendSelector forFullyConnectedNetwork(int... layerSizes) {
+		List<MatrixProduct> products = new ArrayList<>();
+		for (int i = 1; i < layerSizes.length; i++) {
+			products.add(MatrixProduct.fullyConnected(layerSizes[i - 1], layerSizes[i]));
+		}
+		return new MatrixBackendSelector(products);
+	}
+
+	/**
+	 * @return A selector for the pretrained five-layer network built by PretrainedMnistNetworks - its 9x9
+	 *         convolutional layer as a product of its 6 filters with the unrolled 9x9 input patches of its
+	 *         20x20 output positions, followed by its three fully connected layers.
+	 */
+	public static MatrixBackendSelector forPretrainedFiveLayerNetwork() {
+		List<MatrixProduct> products = new ArrayList<>();
+		products.add(new MatrixProduct(6, 9 * 9 + 1, 20 * 20));
+		products.add(MatrixProduct.fullyConnected(600, 400));
+		products.add(MatrixProduct.fullyConnected(400, 100));
+		products.add(MatrixProduct.fullyConnected(100, 10));
+		return new MatrixBackendSelector(products);
+	}
+
+	/**
+	 * @param cacheFile The properties file in which to cache choices.
+	 * @return This selector.
+	 */
+	public MatrixBackendSelector withCacheFile(Path cacheFile) {
+		this.cacheFile = cacheFile;
+		return this;
+	}
+
+	/**
+	 * @param batchSize The number of examples per forward propagation.
+	 * @return The pinned backend, or the fastest backend for forward propagation at the batch size.
+	 */
+	public MatrixBackend selectForInference(int batchSize) {
+		return select(batchSize, false);
+	}
+
+	/**
+	 * @param batchSize The number of examples per mini-batch.
+	 * @return The pinned backend, or the fastest backend for training at the batch size.
+	 */
+	public MatrixBackend selectForTraining(int batchSize) {
+		return select(batchSize, true);
+	}
+
+	private MatrixBackend select(int batchSize, boolean training) {
+		String pinnedBackend = System.getProperty(BACKEND_PROPERTY);
+		if (pinnedBackend != null) {
+			return MatrixBackend.forName(pinnedBackend);
+		}
+		String key = getCacheKey(batchSize, training);
+		Properties cache = readCache();
+		String cachedBackend = cache.getProperty(key);
+		if (cachedBackend != null) {
+			return MatrixBackend.forName(cachedBackend);
+		}
+		MatrixBackend backend = calibrate(batchSize, training);
+		cache = readCache();
+		cache.setProperty(key, backend.name());
+		writeCache(cache);
+		return backend;
+	}
+
+	private MatrixBackend calibrate(int batchSize, boolean training) {
+		MatrixBackend fastestBackend = null;
+		long fastestNanos = Long.MAX_VALUE;
+		for (MatrixBackend backend : MatrixBackend.values()) {
+			long nanos;
+			try {
+				nanos = time(backend.createMatrixFactory(), batchSize, training);
+			} catch (RuntimeException | LinkageError e) {
+				LOGGER.warn("Skipping matrix backend {}, which failed to initialise", backend, e);
+				continue;
+			}
+			LOGGER.info("Matrix backend {} : {} us per {} batch of {}", backend,
+					TimeUnit.NANOSECONDS.toMicros(nanos), training ? "training" : "inference", batchSize);
+			if (nanos < fastestNanos) {
+				fastestNanos = nanos;
+				fastestBackend = backend;
+			}
+		}
+		if (fastestBackend == null) {
+			throw new IllegalStateException("No matrix backend could be initialised");
+		}
+		return fastestBackend;
+	}
+
+	/**
+	 * @return The minimum time over the measurement iterations of computing every product once, with the
+	 *         time of each product timed over a sub-batch scaled to the batch size.
+	 */
+	private long time(MatrixFactory matrixFactory, int batchSize, boolean training) {
+		Random random = new Random(0);
+		int count = products.size();
+		Matrix[] weights = new Matrix[count];
+		Matrix[] inputs = new Matrix[count];
+		Matrix[] deltas = new Matrix[count];
+		double[] scales = new double[count];
+		for (int i = 0; i < count; i++) {
+			MatrixProduct product = products.get(i);
+			int examples = Math.min(batchSize, Math.max(1, MAX_CALIBRATION_COLUMNS / product.getColumnsPerExample()));
+			int columns = product.getColumnsPerExample() * examples;
+			scales[i] = (double) batchSize / examples;
+			weights[i] = createRandomMatrix(matrixFactory, product.getRows(), product.getInnerDimension(), random);
+			inputs[i] = createRandomMatrix(matrixFactory, product.getInnerDimension(), columns, random);
+			deltas[i] = createRandomMatrix(matrixFactory, product.getRows(), columns, random);
+		}
+		long minNanos = Long.MAX_VALUE;
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS; iteration++) {
+			double nanos = 0;
+			for (int i = 0; i < count; i++) {
+				long startTime = System.nanoTime();
+				weights[i].mmul(inputs[i]);
+				if (training) {
+					weights[i].transpose().mmul(deltas[i]);
+					deltas[i].mmul(inputs[i].transpose());
+				}
+				nanos += (System.nanoTime() - startTime) * scales[i];
+			}
+			if (iteration >= WARMUP_ITERATIONS) {
+				minNanos = Math.min(minNanos, (long) nanos);
+			}
+		}
+		return minNanos;
+	}
+
+	private static Matrix createRandomMatrix(MatrixFactory matrixFactory, int rows, int columns, Random random) {
+		float[] data = new float[rows * columns];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextFloat() - 0.5f;
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, data);
+	}
+
+	private String getCacheKey(int batchSize, boolean training) {
+		StringBuilder key = new StringBuilder(getHostName()).append('.').append(training ? "training" : "inference")
+				.append('.').append(batchSize);
+		for (MatrixProduct product : products) {
+			key.append('.').append(product);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Reads the host name from the environment rather than resolving it, which may block on DNS.
+	 */
+	private static String getHostName() {
+		String hostName = System.getenv("HOSTNAME");
+		if (hostName == null || hostName.isEmpty()) {
+			hostName = System.getenv("COMPUTERNAME");
+		}
+		return hostName == null || hostName.isEmpty() ? "localhost" : hostName;
+	}
+
+	private Properties readCache() {
+		Properties cache = new Properties();
+		if (Files.exists(cacheFile)) {
+			try (InputStream inputStream = Files.newInputStream(cacheFile)) {
+				cache.load(inputStream);
+			} catch (IOException e) {
+				LOGGER.warn("Unable to read matrix backend cache {}", cacheFile, e);
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Replaces the cache file atomically, so that concurrent processes never read a partial file.
+	 */
+	private void writeCache(Properties cache) {
+		try {
+			Path directory = cacheFile.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			Path temporaryFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+			try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+				cache.store(outputStream, "Fastest matrix backend by host, workload and batch size");
+			}
+			Files.move(temporaryFile, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to write matrix backend cache {}", cacheFile, e);
+		}
+	}
+
+	/**
+	 * The product of a layer's weights matrix with its input activations - a rows by innerDimension
+	 * matrix multiplied by an innerDimension by ( columnsPerExample * batchSize ) matrix.
+	 *
+	 */
+	public static class MatrixProduct {
+
+		private final int rows;
+		private final int innerDimension;
+		private final int columnsPerExample;
+
+		/**
+		 * @param rows              The number of rows of the weights matrix.
+		 * @param innerDimension    The number of columns of the weights matrix.
+		 * @param columnsPerExample The number of columns of the input activations per example - 1 for a
+		 *                          fully connected layer, or the number of output positions for a
+		 *                          convolutional layer computed as a product with its unrolled inputs.
+		 */
+		public MatrixProduct(int rows, int innerDimension, int columnsPerExample) {
+			this.rows = rows;
+			this.innerDimension = innerDimension;
+			this.columnsPerExample = columnsPerExample;
+		}
+
+		/**
+		 * @param inputCount  The number of input neurons, excluding any bias unit.
+		 * @param outputCount The number of output neurons.
+		 * @return The product of a fully connected layer with a bias unit.
+		 */
+		public static MatrixProduct fullyConnected(int inputCount, int outputCount) {
+			return new MatrixProduct(outputCount, inputCount + 1, 1);
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public int getInnerDimension() {
+			return innerDimension;
+		}
+
+		public int getColumnsPerExample() {
+			return columnsPerExample;
+		}
+
+		@Override
+		public String toString() {
+			return rows + "x" + innerDimension + "x" + columnsPerExample;
+		}
+	}
+}
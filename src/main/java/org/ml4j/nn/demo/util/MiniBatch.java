@@ -0,0 +1,32 @@
+package org.ml4j.nn.demo.util;
+
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * A mini-batch of training examples - the feature activations and the corresponding label activations.
+ *
+ */
+public class MiniBatch {
+
+	private final NeuronsActivation dataActivations;
+	private final NeuronsActivation labelActivations;
+	private final int exampleCount;
+
+	public MiniBatch(NeuronsActivation dataActivations, NeuronsActivation labelActivations, int exampleCount) {
+		this.dataActivations = dataActivations;
+		this.labelActivations = labelActivations;
+		this.exampleCount = exampleCount;
+	}
+
+	public NeuronsActivation getDataActivations() {
+		return dataActivations;
+	}
+
+	public NeuronsActivation getLabelActivations() {
+		return labelActivations;
+	}
+
+	public int getExampleCount() {
+		return exampleCount;
+	}
+}
@@ -0,0 +1,56 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.function.Supplier;
+
+/**
+ * A source of fixed-size mini-batches, created on demand so that only the batches currently in use
+ * are held in memory.
+ *
+ */
+public interface MiniBatchSource {
+
+	/**
+	 * @return The number of examples in each mini-batch. The final batch of an epoch may be smaller.
+	 */
+	int getBatchSize();
+
+	/**
+	 * Iterates over the mini-batches of one epoch. Each call returns a new iterator, so the data may be
+	 * re-iterated for each epoch. The iterator should be closed, so that the resources of an epoch which
+	 * is not iterated to the end are released.
+	 *
+	 * @param epoch The zero-based epoch index, from which any shuffling of the examples is derived.
+	 * @return An iterator over the mini-batches of the epoch.
+	 */
+	default CloseableIterator<MiniBatch> iterator(int epoch) {
+		CloseableIterator<Supplier<MiniBatch>> deferredBatches = deferredIterator(epoch);
+		return new CloseableIterator<MiniBatch>() {
+
+			@Override
+			public boolean hasNext() {
+				return deferredBatches.hasNext();
+			}
+
+			@Override
+			public MiniBatch next() {
+				return deferredBatches.next().get();
+			}
+
+			@Override
+			public void close() {
+				deferredBatches.close();
+			}
+		};
+	}
+
+	/**
+	 * Iterates over the mini-batches of one epoch, separating the sequential work of selecting or reading
+	 * the raw examples of each batch ( performed by next() ) from the decoding of those examples into
+	 * activations ( performed by the returned Supplier ), which may be run on any thread. The iterator
+	 * should be closed, as for iterator(epoch).
+	 *
+	 * @param epoch The zero-based epoch index, from which any shuffling of the examples is derived.
+	 * @return An iterator over deferred mini-batches of the epoch.
+	 */
+	CloseableIterator<Supplier<MiniBatch>> deferredIterator(int epoch);
+}
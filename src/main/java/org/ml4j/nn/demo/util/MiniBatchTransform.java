@@ -0,0 +1,19 @@
+package org.ml4j.nn.demo.util;
+
+/**
+ * Transforms the feature activations of each mini-batch of a MiniBatchSource in place, before they are
+ * wrapped as a NeuronsActivation - eg. to augment training examples.
+ *
+ */
+@FunctionalInterface
+public interface MiniBatchTransform {
+
+	/**
+	 * @param features     The features of the mini-batch in feature-by-example layout - feature f of
+	 *                     example e at index f * exampleCount + e - transformed in place.
+	 * @param exampleCount The number of examples in the mini-batch.
+	 * @param seed         A seed derived from the epoch and position of the mini-batch, from which any
+	 *                     randomness of the transform should be derived, so that each epoch is reproducible.
+	 */
+	void transform(float[] features, int exampleCount, long seed);
+}
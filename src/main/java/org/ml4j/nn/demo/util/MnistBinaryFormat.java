@@ -0,0 +1,166 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary format for Mnist examples, designed to be memory-mapped.
+ *
+ * The file consists of a fixed size header, followed by the pixels of every example ( either one
+ * unsigned byte per pixel, or bit-packed least significant bit first ), followed by one label byte per
+ * example. All header fields are big-endian ints:
+ *
+ * <pre>
+ * magic | version | pixelEncoding | exampleCount | pixelCount | bytesPerExample | reserved | reserved
+ * </pre>
+ *
+ */
+public class MnistBinaryFormat {
+
+	public static final int MAGIC = 0x4D4C344D; // "ML4M"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+
+	public static final int UINT8_PIXEL_ENCODING = 0;
+	public static final int BIT_PACKED_PIXEL_ENCODING = 1;
+
+	private MnistBinaryFormat() {
+	}
+
+	/**
+	 * Writes the examples to the specified path in binary format.
+	 *
+	 * @param examples  The examples to write.
+	 * @param path      The path of the file to write.
+	 * @param bitPacked Whether to bit-pack the pixels, discarding intensity information.
+	 */
+	public static void write(MnistExamples examples, Path path, boolean bitPacked) {
+		try (OutputStream outputStream = Files.newOutputStream(path)) {
+			write(examples, outputStream, bitPacked);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write Mnist binary file:" + path, e);
+		}
+	}
+
+	/**
+	 * Writes the examples to the output stream in binary format. The stream is not closed.
+	 *
+	 * @param examples     The examples to write.
+	 * @param outputStream The output stream.
+	 * @param bitPacked    Whether to bit-pack the pixels, discarding intensity information.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public static void write(MnistExamples examples, OutputStream outputStream, boolean bitPacked) throws IOException {
+		int exampleCount = examples.getExampleCount();
+		int bytesPerExample = bitPacked ? MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE : MnistExamples.PIXEL_COUNT;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(bitPacked ? BIT_PACKED_PIXEL_ENCODING : UINT8_PIXEL_ENCODING);
+		out.writeInt(exampleCount);
+		out.writeInt(MnistExamples.PIXEL_COUNT);
+		out.writeInt(bytesPerExample);
+		out.writeInt(0);
+		out.writeInt(0);
+
+		byte[] exampleBytes = new byte[bytesPerExample];
+		for (int e = 0; e < exampleCount; e++) {
+			if (bitPacked) {
+				examples.writeBitPackedPixels(e, exampleBytes, 0);
+			} else {
+				for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+					exampleBytes[p] = (byte) examples.getPixel(e, p);
+				}
+			}
+			out.write(exampleBytes);
+		}
+		for (int e = 0; e < exampleCount; e++) {
+			out.writeByte(examples.getLabel(e));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Memory-maps a binary Mnist file. No per-example data is copied onto the heap - pixels and labels are
+	 * read directly from the mapped region. The labels are validated when the file is mapped.
+	 *
+	 * @param path The path of the binary file.
+	 * @return The examples, backed by the mapped file.
+	 */
+	public static MnistExamples map(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Mnist binary file is too large to map:" + path);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to map Mnist binary file:" + path, e);
+		}
+	}
+
+	/**
+	 * Reads Mnist examples from a buffer containing the binary format, starting at index 0, checking that
+	 * every label is a digit, as MnistCsvParser does.
+	 *
+	 * @param buffer The buffer.
+	 * @return The examples, backed by the buffer.
+	 */
+	public static MnistExamples read(ByteBuffer buffer) {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not an Mnist binary file");
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported Mnist binary file version:" + version);
+		}
+		int pixelEncoding = buffer.getInt(8);
+		int exampleCount = buffer.getInt(12);
+		int pixelCount = buffer.getInt(16);
+		int bytesPerExample = buffer.getInt(20);
+		if (pixelCount != MnistExamples.PIXEL_COUNT) {
+			throw new IllegalArgumentException("Unsupported pixel count:" + pixelCount);
+		}
+		boolean bitPacked = pixelEncoding == BIT_PACKED_PIXEL_ENCODING;
+		if (!bitPacked && pixelEncoding != UINT8_PIXEL_ENCODING) {
+			throw new IllegalArgumentException("Unsupported pixel encoding:" + pixelEncoding);
+		}
+		if (bytesPerExample != (bitPacked ? MnistExamples.BIT_PACKED_BYTES_PER_EXAMPLE : MnistExamples.PIXEL_COUNT)) {
+			throw new IllegalArgumentException("Unexpected bytes per example:" + bytesPerExample);
+		}
+		if (exampleCount < 0) {
+			throw new IllegalArgumentException("Invalid example count:" + exampleCount);
+		}
+		// Computed as a long, as a corrupt example count may overflow an int
+		long pixelsLength = (long) exampleCount * bytesPerExample;
+		if (pixelsLength > (long) buffer.limit() - HEADER_SIZE - exampleCount) {
+			throw new IllegalArgumentException("Truncated Mnist binary file");
+		}
+		int pixelsSize = (int) pixelsLength;
+		int labelsOffset = HEADER_SIZE + pixelsSize;
+		for (int e = 0; e < exampleCount; e++) {
+			int label = buffer.get(labelsOffset + e) & 0xFF;
+			if (label >= MnistExamples.LABEL_COUNT) {
+				throw new IllegalArgumentException("Invalid label " + label + " of example " + e);
+			}
+		}
+		return new MnistExamples(slice(buffer, HEADER_SIZE, pixelsSize), slice(buffer, labelsOffset, exampleCount),
+				exampleCount, bitPacked);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(offset);
+		duplicate.limit(offset + length);
+		return duplicate.slice();
+	}
+}
@@ -0,0 +1,170 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import org.ml4j.MatrixFactory;
+
+/**
+ * MiniBatchSource which streams mini-batches from a Kaggle format Mnist CSV file, re-reading the file
+ * for each epoch, so that only one batch of raw examples is held in memory at a time.
+ *
+ * Examples are visited in file order - for shuffled mini-batches, convert the file to the binary
+ * format and use MnistExamplesMiniBatchSource.
+ *
+ * Features are binarised by default, and may be encoded with another PixelEncoding to preserve greyscale
+ * intensities.
+ *
+ */
+public class MnistCsvMiniBatchSource implements MiniBatchSource {
+
+	private final Path csvFile;
+	private final MatrixFactory matrixFactory;
+	private final int batchSize;
+	private float[] pixelValues;
+
+	/**
+	 * @param csvFile       The CSV file.
+	 * @param matrixFactory The matrix factory used to create the batch activations.
+	 * @param batchSize     The number of examples in each mini-batch.
+	 */
+	public MnistCsvMiniBatchSource(Path csvFile, MatrixFactory matrixFactory, int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.csvFile = csvFile;
+		this.matrixFactory = matrixFactory;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param pixelEncoding   The encoding of the pixel features.
+	 * @param pixelStatistics The statistics to standardise with, required only for the STANDARDISED
+	 *                        encoding.
+	 * @return This source.
+	 */
+	public MnistCsvMiniBatchSource withPixelEncoding(PixelEncoding pixelEncoding, PixelStatistics pixelStatistics) {
+		this.pixelValues = pixelEncoding == PixelEncoding.BINARY ? null
+				: pixelEncoding.createPixelValues(pixelStatistics);
+		return this;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Iterates over the deferred mini-batches of one epoch. The raw examples of each batch are read by
+	 * next(), and the underlying file is closed once the last batch has been read, when reading fails, or
+	 * when the iterator is closed.
+	 */
+	@Override
+	public CloseableIterator<Supplier<MiniBatch>> deferredIterator(int epoch) {
+		InputStream inputStream;
+		try {
+			inputStream = Files.newInputStream(csvFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open file:" + csvFile, e);
+		}
+		try {
+			return new CsvBatchIterator(new MnistCsvParser(inputStream), pixelValues);
+		} catch (IOException e) {
+			closeAfterFailure(inputStream, e);
+			throw new UncheckedIOException("Unable to read file:" + csvFile, e);
+		} catch (RuntimeException e) {
+			closeAfterFailure(inputStream, e);
+			throw e;
+		}
+	}
+
+	private static void closeAfterFailure(Closeable closeable, Exception failure) {
+		try {
+			closeable.close();
+		} catch (IOException | RuntimeException e) {
+			failure.addSuppressed(e);
+		}
+	}
+
+	private class CsvBatchIterator implements CloseableIterator<Supplier<MiniBatch>> {
+
+		private final MnistCsvParser parser;
+		private final float[] batchPixelValues;
+		private MnistExamples nextExamples;
+		private boolean closed;
+
+		/**
+		 * Reads the first batch, closing the parser if that fails.
+		 */
+		CsvBatchIterator(MnistCsvParser parser, float[] batchPixelValues) {
+			this.parser = parser;
+			this.batchPixelValues = batchPixelValues;
+			readNextExamples();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextExamples != null;
+		}
+
+		@Override
+		public Supplier<MiniBatch> next() {
+			if (nextExamples == null) {
+				throw new NoSuchElementException();
+			}
+			MnistExamples examples = nextExamples;
+			readNextExamples();
+			int count = examples.getExampleCount();
+			return () -> new MiniBatch(batchPixelValues == null ? examples.createFeatureActivation(matrixFactory, 0, count)
+					: examples.createFeatureActivation(matrixFactory, batchPixelValues, null, 0, count),
+					examples.createLabelActivation(matrixFactory, 0, count), count);
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				nextExamples = null;
+				try {
+					parser.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException("Unable to close file:" + csvFile, e);
+				}
+			}
+		}
+
+		private void readNextExamples() {
+			try {
+				nextExamples = closed ? null : readExamples();
+			} catch (IOException e) {
+				closeAfterFailure(parser, e);
+				closed = true;
+				throw new UncheckedIOException("Unable to read file:" + csvFile, e);
+			} catch (RuntimeException e) {
+				closeAfterFailure(parser, e);
+				closed = true;
+				throw e;
+			}
+		}
+
+		private MnistExamples readExamples() throws IOException {
+			// New raw buffers for each batch, as batches may be decoded after the next batch is read
+			byte[] pixels = new byte[batchSize * MnistExamples.PIXEL_COUNT];
+			byte[] labels = new byte[batchSize];
+			int count = 0;
+			while (count < batchSize && parser.next(pixels, count * MnistExamples.PIXEL_COUNT, labels, count)) {
+				count++;
+			}
+			if (count < batchSize) {
+				close();
+			}
+			return count == 0 ? null : new MnistExamples(pixels, labels, count);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for Kaggle format Mnist CSV files ( a label column followed by 784 pixel columns,
+ * with an optional header row ).
+ *
+ * Bytes are parsed directly into packed pixel and label buffers, or into a preallocated float feature
+ * buffer, without tokenising into Strings or allocating per row. Files may either be parsed in full, or
+ * read incrementally example by example.
+ *
+ */
+public class MnistCsvParser implements Closeable {
+
+	private static final int INITIAL_EXAMPLE_CAPACITY = 1024;
+
+	private final InputStream inputStream;
+	private final byte[] buffer = new byte[1 << 16];
+	private final byte[] rowPixels = new byte[MnistExamples.PIXEL_COUNT];
+	private byte rowLabel;
+	private int position;
+	private int limit;
+
+	private int currentByte;
+	private int lineNumber = 1;
+	private int examplesRead;
+
+	/**
+	 * @param inputStream The CSV input stream, closed when this parser is closed.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public MnistCsvParser(InputStream inputStream) throws IOException {
+		this.inputStream = inputStream;
+		this.currentByte = read();
+	}
+
+	/**
+	 * Parses all the examples from the named classpath resource.
+	 *
+	 * @param classLoader  The class loader to load the resource from.
+	 * @param resourceName The name of the CSV resource.
+	 * @return The parsed examples.
+	 */
+	public static MnistExamples parse(ClassLoader classLoader, String resourceName) {
+		InputStream inputStream = classLoader.getResourceAsStream(resourceName);
+		if (inputStream == null) {
+			throw new IllegalArgumentException("Unable to find resource:" + resourceName);
+		}
+		try (InputStream in = inputStream) {
+			return parse(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to parse resource:" + resourceName, e);
+		}
+	}
+
+	/**
+	 * Parses all the examples from the input stream. The stream is not closed.
+	 *
+	 * @param inputStream The CSV input stream.
+	 * @return The parsed examples.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public static MnistExamples parse(InputStream inputStream) throws IOException {
+		MnistCsvParser parser = new MnistCsvParser(inputStream);
+		byte[] pixels = new byte[INITIAL_EXAMPLE_CAPACITY * MnistExamples.PIXEL_COUNT];
+		byte[] labels = new byte[INITIAL_EXAMPLE_CAPACITY];
+		int exampleCount = 0;
+		while (true) {
+			if (exampleCount == labels.length) {
+				labels = Arrays.copyOf(labels, labels.length * 2);
+				pixels = Arrays.copyOf(pixels, labels.length * MnistExamples.PIXEL_COUNT);
+			}
+			if (!parser.next(pixels, exampleCount * MnistExamples.PIXEL_COUNT, labels, exampleCount)) {
+				break;
+			}
+			exampleCount++;
+		}
+		return new MnistExamples(pixels, labels, exampleCount);
+	}
+
+	/**
+	 * Reads the next example.
+	 *
+	 * @param pixels      The buffer to write the PIXEL_COUNT unsigned pixel bytes of the example into.
+	 * @param pixelOffset The offset in the pixel buffer to write the first pixel to.
+	 * @param labels      The buffer to write the label byte of the example into.
+	 * @param labelIndex  The index in the label buffer to write the label to.
+	 * @return Whether an example was read, or false if the end of the stream has been reached.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public boolean next(byte[] pixels, int pixelOffset, byte[] labels, int labelIndex) throws IOException {
+		if (!parseRow()) {
+			return false;
+		}
+		System.arraycopy(rowPixels, 0, pixels, pixelOffset, MnistExamples.PIXEL_COUNT);
+		labels[labelIndex] = rowLabel;
+		return true;
+	}
+
+	/**
+	 * Reads the next example directly into a feature-by-example float buffer - pixel p of the example at
+	 * index p * exampleCount + exampleIndex - encoding each pixel through a lookup table.
+	 *
+	 * @param features     The feature buffer, of at least PIXEL_COUNT * exampleCount values.
+	 * @param exampleIndex The column of the example in the feature buffer.
+	 * @param exampleCount The number of columns of the feature buffer.
+	 * @param pixelValues  The feature value of each intensity 0-255, created by
+	 *                     PixelEncoding.createPixelValues.
+	 * @param labels       The buffer to write the label byte of the example into, at exampleIndex.
+	 * @param statistics   Statistics to add the intensities of the example's pixels to, or null.
+	 * @return Whether an example was read, or false if the end of the stream has been reached.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public boolean next(float[] features, int exampleIndex, int exampleCount, float[] pixelValues, byte[] labels,
+			PixelStatistics statistics) throws IOException {
+		if (!parseRow()) {
+			return false;
+		}
+		for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+			features[p * exampleCount + exampleIndex] = pixelValues[rowPixels[p] & 0xFF];
+		}
+		if (statistics != null) {
+			for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+				statistics.add(rowPixels[p] & 0xFF);
+			}
+		}
+		labels[exampleIndex] = rowLabel;
+		return true;
+	}
+
+	/**
+	 * Parses the next row into rowPixels and rowLabel.
+	 *
+	 * @return Whether a row was parsed, or false if the end of the stream has been reached.
+	 */
+	private boolean parseRow() throws IOException {
+		int b = currentByte;
+		while (b != -1) {
+			if (b == '\r' || b == '\n') {
+				if (b == '\n') {
+					lineNumber++;
+				}
+				b = read();
+				continue;
+			}
+			if (b < '0' || b > '9') {
+				if (examplesRead > 0) {
+					throw new IllegalStateException("Unexpected non-numeric row at line " + lineNumber);
+				}
+				// Header row
+				while (b != -1 && b != '\n') {
+					b = read();
+				}
+				continue;
+			}
+			int column = 0;
+			while (true) {
+				int value = 0;
+				int digits = 0;
+				while (b >= '0' && b <= '9') {
+					value = value * 10 + (b - '0');
+					digits++;
+					b = read();
+				}
+				if (digits == 0) {
+					throw new IllegalStateException("Expected a numeric value at line " + lineNumber + ", column " + column);
+				}
+				if (column == 0) {
+					if (value >= MnistExamples.LABEL_COUNT) {
+						throw new IllegalStateException("Invalid label " + value + " at line " + lineNumber);
+					}
+					rowLabel = (byte) value;
+				} else if (column <= MnistExamples.PIXEL_COUNT) {
+					if (value > 255) {
+						throw new IllegalStateException("Invalid pixel value " + value + " at line " + lineNumber);
+					}
+					rowPixels[column - 1] = (byte) value;
+				}
+				column++;
+				if (b == ',') {
+					b = read();
+				} else {
+					break;
+				}
+			}
+			if (column != MnistExamples.PIXEL_COUNT + 1) {
+				throw new IllegalStateException(
+						"Expected " + (MnistExamples.PIXEL_COUNT + 1) + " columns but found " + column + " at line " + lineNumber);
+			}
+			if (b != -1 && b != '\r' && b != '\n') {
+				throw new IllegalStateException("Unexpected character '" + (char) b + "' at line " + lineNumber);
+			}
+			currentByte = b;
+			examplesRead++;
+			return true;
+		}
+		currentByte = b;
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = inputStream.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++] & 0xFF;
+	}
+}
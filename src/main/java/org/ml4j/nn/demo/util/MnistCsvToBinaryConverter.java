@@ -0,0 +1,54 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One-time converter from a Kaggle format Mnist CSV file to the binary format read by
+ * MnistBinaryFormat.
+ *
+ * Usage: MnistCsvToBinaryConverter &lt;csvFileOrClasspathResource&gt; &lt;outputFile&gt; [--bit-packed]
+ *
+ */
+public class MnistCsvToBinaryConverter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MnistCsvToBinaryConverter.class);
+
+	private MnistCsvToBinaryConverter() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			throw new IllegalArgumentException(
+					"Usage: MnistCsvToBinaryConverter <csvFileOrClasspathResource> <outputFile> [--bit-packed]");
+		}
+		boolean bitPacked = args.length > 2 && "--bit-packed".equals(args[2]);
+		Path outputPath = Paths.get(args[1]);
+
+		long startTime = System.nanoTime();
+		MnistExamples examples = parse(args[0]);
+		MnistBinaryFormat.write(examples, outputPath, bitPacked);
+
+		LOGGER.info("Converted {} examples from {} to {} ({}) in {} ms", examples.getExampleCount(), args[0],
+				outputPath, bitPacked ? "bit-packed" : "uint8", (System.nanoTime() - startTime) / 1000000);
+	}
+
+	private static MnistExamples parse(String csv) {
+		Path csvPath = Paths.get(csv);
+		if (!Files.exists(csvPath)) {
+			return MnistCsvParser.parse(MnistCsvToBinaryConverter.class.getClassLoader(), csv);
+		}
+		try (InputStream inputStream = Files.newInputStream(csvPath)) {
+			return MnistCsvParser.parse(inputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to parse file:" + csvPath, e);
+		}
+	}
+}
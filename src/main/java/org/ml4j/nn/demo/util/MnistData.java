@@ -1,76 +1,125 @@
 package org.ml4j.nn.demo.util;
 
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
 import org.ml4j.MatrixFactory;
-import org.ml4j.nn.neurons.Neurons;
 import org.ml4j.nn.neurons.NeuronsActivation;
-import org.ml4j.nn.neurons.NeuronsActivationImpl;
-import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
-import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
-import org.ml4j.util.DoubleArrayMatrixLoader;
 
 /**
  * Mnist data loader.
- * 
+ *
+ * The Mnist CSV file is parsed once per process, in a single pass, and the resulting activations are
+ * cached per MatrixFactory.
+ *
  * @author Michael Lavelle
  *
  */
 public class MnistData {
 
+	private static final String MNIST_CSV_RESOURCE = "trainisfirst1000_testisnext1000.csv";
+
+	private static final int TRAINING_SET_START = 0;
+	private static final int TRAINING_SET_END = 1000;
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_END = 2000;
+
+	private static final Map<MatrixFactory, Map<String, NeuronsActivation>> ACTIVATIONS_BY_MATRIX_FACTORY = new WeakHashMap<>();
+
+	private static volatile MnistExamples examples;
+
 	private MnistData() {
 	}
 
 	public static NeuronsActivation loadTrainingData(MatrixFactory matrixFactory) {
-		DoubleArrayMatrixLoader loader = new DoubleArrayMatrixLoader(MnistData.class.getClassLoader());
-		// Load Mnist data into double[][] matrices
-		float[][] trainingDataMatrix = toFloatArray(
-				loader.loadDoubleMatrixFromCsv("trainisfirst1000_testisnext1000.csv", new KagglePixelFeaturesMatrixCsvDataExtractor(), 1, 1001));
-
-		return new NeuronsActivationImpl(new Neurons(trainingDataMatrix[0].length, false),
-				matrixFactory.createMatrixFromRows(trainingDataMatrix).transpose(),
-				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, true);
+		return getActivation(matrixFactory, "trainingData",
+				e -> e.createFeatureActivation(matrixFactory, TRAINING_SET_START, TRAINING_SET_END));
 	}
 
 	public static NeuronsActivation loadTestSetData(MatrixFactory matrixFactory) {
+		return getActivation(matrixFactory, "testSetData",
+				e -> e.createFeatureActivation(matrixFactory, TEST_SET_START, TEST_SET_END));
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @param encoding      The pixel encoding - STANDARDISED features are standardised by the statistics of
+	 *                      the training set.
+	 * @return The training set features in the encoding.
+	 */
+	public static NeuronsActivation loadTrainingData(MatrixFactory matrixFactory, PixelEncoding encoding) {
+		return getActivation(matrixFactory, "trainingData." + encoding, e -> e.createFeatureActivation(matrixFactory,
+				createPixelValues(encoding), null, TRAINING_SET_START, TRAINING_SET_END - TRAINING_SET_START));
+	}
 
-		DoubleArrayMatrixLoader loader = new DoubleArrayMatrixLoader(MnistData.class.getClassLoader());
-		// Load Mnist data into double[][] matrices
-		float[][] testDataMatrix = toFloatArray(loader.loadDoubleMatrixFromCsv("trainisfirst1000_testisnext1000.csv",
-				new KagglePixelFeaturesMatrixCsvDataExtractor(), 1001, 2001));
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @param encoding      The pixel encoding - STANDARDISED features are standardised by the statistics of
+	 *                      the training set, as for the training set features.
+	 * @return The test set features in the encoding.
+	 */
+	public static NeuronsActivation loadTestSetData(MatrixFactory matrixFactory, PixelEncoding encoding) {
+		return getActivation(matrixFactory, "testSetData." + encoding, e -> e.createFeatureActivation(matrixFactory,
+				createPixelValues(encoding), null, TEST_SET_START, TEST_SET_END - TEST_SET_START));
+	}
 
-		return new NeuronsActivationImpl(new Neurons(testDataMatrix[0].length, false),
-				matrixFactory.createMatrixFromRows(testDataMatrix).transpose(),
-				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, true);
+	/**
+	 * @return The statistics of the pixel intensities of the training set.
+	 */
+	public static PixelStatistics getTrainingSetStatistics() {
+		return PixelStatistics.of(getExamples(), TRAINING_SET_START, TRAINING_SET_END);
+	}
+
+	private static float[] createPixelValues(PixelEncoding encoding) {
+		return encoding.createPixelValues(encoding.requiresStatistics() ? getTrainingSetStatistics() : null);
 	}
 
 	public static NeuronsActivation loadTrainingLabels(MatrixFactory matrixFactory) {
-		DoubleArrayMatrixLoader loader = new DoubleArrayMatrixLoader(MnistData.class.getClassLoader());
-		// Load Mnist data into double[][] matrices
-		float[][] testDataMatrix = toFloatArray(
-				loader.loadDoubleMatrixFromCsv("trainisfirst1000_testisnext1000.csv", new SingleDigitLabelsMatrixCsvDataExtractor(), 1, 1001));
-
-		return new NeuronsActivationImpl(new Neurons(testDataMatrix[0].length, false),
-				matrixFactory.createMatrixFromRows(testDataMatrix).transpose(),
-				NeuronsActivationFormat.ROWS_SPAN_FEATURE_SET, true);
+		return getActivation(matrixFactory, "trainingLabels",
+				e -> e.createLabelActivation(matrixFactory, TRAINING_SET_START, TRAINING_SET_END));
 	}
 
 	public static NeuronsActivation loadTestSetLabels(MatrixFactory matrixFactory) {
-		DoubleArrayMatrixLoader loader = new DoubleArrayMatrixLoader(MnistData.class.getClassLoader());
-		// Load Mnist data into double[][] matrices
-		float[][] testDataMatrix = toFloatArray(
-				loader.loadDoubleMatrixFromCsv("trainisfirst1000_testisnext1000.csv", new SingleDigitLabelsMatrixCsvDataExtractor(), 1001, 2001));
-
-		return new NeuronsActivationImpl(new Neurons(testDataMatrix[0].length, false),
-				matrixFactory.createMatrixFromRows(testDataMatrix).transpose(),
-				NeuronsActivationFormat.ROWS_SPAN_FEATURE_SET, true);
+		return getActivation(matrixFactory, "testSetLabels",
+				e -> e.createLabelActivation(matrixFactory, TEST_SET_START, TEST_SET_END));
 	}
 
-	public static float[][] toFloatArray(double[][] data) {
-		float[][] result = new float[data.length][data[0].length];
-		for (int r = 0; r < data.length; r++) {
-			for (int c = 0; c < data[0].length; c++) {
-				result[r][c] = (float) data[r][c];
+	/**
+	 * @return The raw examples of the Mnist CSV file, parsed on first access.
+	 */
+	public static MnistExamples getExamples() {
+		MnistExamples result = examples;
+		if (result == null) {
+			synchronized (MnistData.class) {
+				result = examples;
+				if (result == null) {
+					result = MnistCsvParser.parse(MnistData.class.getClassLoader(), MNIST_CSV_RESOURCE);
+					examples = result;
+				}
 			}
 		}
 		return result;
 	}
+
+	/**
+	 * Memory-maps Mnist examples from a file in the format written by MnistCsvToBinaryConverter.
+	 *
+	 * @param binaryFile The binary file.
+	 * @return The examples, backed by the mapped file.
+	 */
+	public static MnistExamples loadBinaryExamples(Path binaryFile) {
+		return MnistBinaryFormat.map(binaryFile);
+	}
+
+	private static NeuronsActivation getActivation(MatrixFactory matrixFactory, String name,
+			Function<MnistExamples, NeuronsActivation> activationFactory) {
+		Map<String, NeuronsActivation> activations;
+		synchronized (ACTIVATIONS_BY_MATRIX_FACTORY) {
+			activations = ACTIVATIONS_BY_MATRIX_FACTORY.computeIfAbsent(matrixFactory, f -> new ConcurrentHashMap<>());
+		}
+		return activations.computeIfAbsent(name, n -> activationFactory.apply(getExamples()));
+	}
 }
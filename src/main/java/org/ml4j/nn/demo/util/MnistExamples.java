@@ -0,0 +1,304 @@
+package org.ml4j.nn.demo.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationImpl;
+import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
+import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
+
+/**
+ * Mnist examples held in their raw form - one unsigned byte ( or one bit ) per pixel and one byte per
+ * label - from which feature and label NeuronsActivations are created on demand.
+ *
+ * The pixel and label buffers may be heap buffers or memory-mapped file regions, and are only ever
+ * read with absolute gets, so instances may be shared between threads.
+ *
+ * Activations are created directly in feature-by-example layout ( one row per feature, one column
+ * per example ), so no transpose is required.
+ *
+ */
+public class MnistExamples {
+
+	public static final int PIXEL_COUNT = 28 * 28;
+	public static final int LABEL_COUNT = 10;
+
+	/**
+	 * Number of bytes per example when pixels are bit-packed.
+	 */
+	public static final int BIT_PACKED_BYTES_PER_EXAMPLE = (PIXEL_COUNT + 7) / 8;
+
+	/**
+	 * Number of examples transposed together when creating feature activations.
+	 */
+	private static final int EXAMPLE_BLOCK_SIZE = 16;
+
+	private final ByteBuffer pixels;
+	private final ByteBuffer labels;
+	private final int exampleCount;
+	private final boolean bitPacked;
+	private final int bytesPerExample;
+
+	/**
+	 * @param pixels       The pixel values, PIXEL_COUNT unsigned bytes per example, example by example.
+	 * @param labels       The digit labels, one byte per example.
+	 * @param exampleCount The number of examples.
+	 */
+	public MnistExamples(byte[] pixels, byte[] labels, int exampleCount) {
+		this(ByteBuffer.wrap(pixels), ByteBuffer.wrap(labels), exampleCount, false);
+	}
+
+	/**
+	 * @param pixels       The pixel values, example by example, starting at index 0 of the buffer.
+	 * @param labels       The digit labels, one byte per example, starting at index 0 of the buffer.
+	 * @param exampleCount The number of examples.
+	 * @param bitPacked    Whether pixels are packed one bit per pixel ( least significant bit first ), rather
+	 *                     than one unsigned byte per pixel.
+	 */
+	public MnistExamples(ByteBuffer pixels, ByteBuffer labels, int exampleCount, boolean bitPacked) {
+		this.bytesPerExample = bitPacked ? BIT_PACKED_BYTES_PER_EXAMPLE : PIXEL_COUNT;
+		if (pixels.limit() < (long) exampleCount * bytesPerExample || labels.limit() < exampleCount) {
+			throw new IllegalArgumentException("Insufficient pixel or label data for " + exampleCount + " examples");
+		}
+		this.pixels = pixels;
+		this.labels = labels;
+		this.exampleCount = exampleCount;
+		this.bitPacked = bitPacked;
+	}
+
+	public int getExampleCount() {
+		return exampleCount;
+	}
+
+	public boolean isBitPacked() {
+		return bitPacked;
+	}
+
+	public int getLabel(int exampleIndex) {
+		return labels.get(exampleIndex);
+	}
+
+	/**
+	 * @param exampleIndex The example index.
+	 * @param pixelIndex   The pixel index.
+	 * @return The pixel value in the range 0-255. Bit-packed pixels are returned as either 0 or 255.
+	 */
+	public int getPixel(int exampleIndex, int pixelIndex) {
+		if (bitPacked) {
+			return isPixelSet(exampleIndex, pixelIndex) ? 255 : 0;
+		}
+		return pixels.get(exampleIndex * PIXEL_COUNT + pixelIndex) & 0xFF;
+	}
+
+	/**
+	 * @param exampleIndex The example index.
+	 * @param pixelIndex   The pixel index.
+	 * @return Whether the pixel is non-zero.
+	 */
+	public boolean isPixelSet(int exampleIndex, int pixelIndex) {
+		if (bitPacked) {
+			return (pixels.get(exampleIndex * bytesPerExample + (pixelIndex >>> 3)) & (1 << (pixelIndex & 7))) != 0;
+		}
+		return pixels.get(exampleIndex * PIXEL_COUNT + pixelIndex) != 0;
+	}
+
+	/**
+	 * Writes the pixels of an example bit-packed, one bit per non-zero pixel ( least significant bit first ).
+	 *
+	 * @param exampleIndex The example index.
+	 * @param bytes        The buffer to write BIT_PACKED_BYTES_PER_EXAMPLE bytes to.
+	 * @param offset       The offset in the buffer to write the first byte to.
+	 */
+	public void writeBitPackedPixels(int exampleIndex, byte[] bytes, int offset) {
+		if (bitPacked) {
+			for (int i = 0; i < BIT_PACKED_BYTES_PER_EXAMPLE; i++) {
+				bytes[offset + i] = pixels.get(exampleIndex * BIT_PACKED_BYTES_PER_EXAMPLE + i);
+			}
+			return;
+		}
+		Arrays.fill(bytes, offset, offset + BIT_PACKED_BYTES_PER_EXAMPLE, (byte) 0);
+		for (int p = 0; p < PIXEL_COUNT; p++) {
+			if (pixels.get(exampleIndex * PIXEL_COUNT + p) != 0) {
+				bytes[offset + (p >>> 3)] |= 1 << (p & 7);
+			}
+		}
+	}
+
+	/**
+	 * @param startExample The first example, inclusive.
+	 * @param endExample   The last example, exclusive.
+	 * @return The bit-packed pixels of the examples in the range, BIT_PACKED_BYTES_PER_EXAMPLE bytes per
+	 *         example starting at index 0. If these examples are bit-packed this is a read-only view of their
+	 *         pixels, otherwise a bit-packed copy.
+	 */
+	public ByteBuffer getBitPackedPixels(int startExample, int endExample) {
+		int count = checkRange(startExample, endExample);
+		if (bitPacked) {
+			ByteBuffer view = pixels.asReadOnlyBuffer();
+			view.position(startExample * BIT_PACKED_BYTES_PER_EXAMPLE);
+			view.limit(endExample * BIT_PACKED_BYTES_PER_EXAMPLE);
+			return view.slice();
+		}
+		byte[] bytes = new byte[count * BIT_PACKED_BYTES_PER_EXAMPLE];
+		for (int e = 0; e < count; e++) {
+			writeBitPackedPixels(startExample + e, bytes, e * BIT_PACKED_BYTES_PER_EXAMPLE);
+		}
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * Creates the binarised pixel features for the examples in the range [startExample, endExample), in
+	 * the same encoding as KagglePixelFeaturesMatrixCsvDataExtractor.
+	 *
+	 * @param matrixFactory The matrix factory.
+	 * @param startExample  The first example, inclusive.
+	 * @param endExample    The last example, exclusive.
+	 * @return A NeuronsActivation of PIXEL_COUNT features by (endExample - startExample) examples.
+	 */
+	public NeuronsActivation createFeatureActivation(MatrixFactory matrixFactory, int startExample, int endExample) {
+		return createFeatureActivation(matrixFactory, null, startExample, checkRange(startExample, endExample));
+	}
+
+	/**
+	 * Creates the binarised pixel features for a selection of examples, such as a shuffled mini-batch.
+	 *
+	 * @param matrixFactory  The matrix factory.
+	 * @param exampleIndices The example indices, or null to select consecutive examples.
+	 * @param offset         The offset of the first selected example in exampleIndices ( or the first
+	 *                       example index if exampleIndices is null ).
+	 * @param count          The number of examples to select.
+	 * @return A NeuronsActivation of PIXEL_COUNT features by count examples.
+	 */
+	public NeuronsActivation createFeatureActivation(MatrixFactory matrixFactory, int[] exampleIndices, int offset,
+			int count) {
+		float[] data = new float[PIXEL_COUNT * count];
+		writeFeatures(exampleIndices, offset, count, data);
+		return createFeatureActivation(matrixFactory, data, count);
+	}
+
+	/**
+	 * Writes the binarised pixel features for a selection of examples to a buffer, in feature-by-example
+	 * layout - pixel p of the e'th selected example at index p * count + e.
+	 *
+	 * @param exampleIndices The example indices, or null to select consecutive examples.
+	 * @param offset         The offset of the first selected example in exampleIndices ( or the first
+	 *                       example index if exampleIndices is null ).
+	 * @param count          The number of examples to select.
+	 * @param data           The buffer, of at least PIXEL_COUNT * count values.
+	 */
+	public void writeFeatures(int[] exampleIndices, int offset, int count, float[] data) {
+		for (int blockStart = 0; blockStart < count; blockStart += EXAMPLE_BLOCK_SIZE) {
+			int blockEnd = Math.min(blockStart + EXAMPLE_BLOCK_SIZE, count);
+			for (int p = 0; p < PIXEL_COUNT; p++) {
+				int rowOffset = p * count;
+				for (int e = blockStart; e < blockEnd; e++) {
+					data[rowOffset + e] = isPixelSet(exampleIndex(exampleIndices, offset, e), p) ? 1 : 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the pixel features for a selection of examples in another PixelEncoding.
+	 *
+	 * @param matrixFactory  The matrix factory.
+	 * @param pixelValues    The feature value of each intensity 0-255, created by
+	 *                       PixelEncoding.createPixelValues.
+	 * @param exampleIndices The example indices, or null to select consecutive examples.
+	 * @param offset         The offset of the first selected example in exampleIndices ( or the first
+	 *                       example index if exampleIndices is null ).
+	 * @param count          The number of examples to select.
+	 * @return A NeuronsActivation of PIXEL_COUNT features by count examples.
+	 */
+	public NeuronsActivation createFeatureActivation(MatrixFactory matrixFactory, float[] pixelValues,
+			int[] exampleIndices, int offset, int count) {
+		float[] data = new float[PIXEL_COUNT * count];
+		writeFeatures(pixelValues, exampleIndices, offset, count, data);
+		return createFeatureActivation(matrixFactory, data, count);
+	}
+
+	/**
+	 * Writes the pixel features for a selection of examples to a buffer in another PixelEncoding, in the
+	 * layout of writeFeatures. Greyscale intensities are only available for examples which are not
+	 * bit-packed - bit-packed pixels are encoded as intensities of 0 or 255.
+	 *
+	 * @param pixelValues    The feature value of each intensity 0-255, created by
+	 *                       PixelEncoding.createPixelValues.
+	 * @param exampleIndices The example indices, or null to select consecutive examples.
+	 * @param offset         The offset of the first selected example in exampleIndices ( or the first
+	 *                       example index if exampleIndices is null ).
+	 * @param count          The number of examples to select.
+	 * @param data           The buffer, of at least PIXEL_COUNT * count values.
+	 */
+	public void writeFeatures(float[] pixelValues, int[] exampleIndices, int offset, int count, float[] data) {
+		for (int blockStart = 0; blockStart < count; blockStart += EXAMPLE_BLOCK_SIZE) {
+			int blockEnd = Math.min(blockStart + EXAMPLE_BLOCK_SIZE, count);
+			for (int p = 0; p < PIXEL_COUNT; p++) {
+				int rowOffset = p * count;
+				for (int e = blockStart; e < blockEnd; e++) {
+					data[rowOffset + e] = pixelValues[getPixel(exampleIndex(exampleIndices, offset, e), p)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @param data          Pixel features in feature-by-example layout, as written by writeFeatures.
+	 * @param count         The number of examples.
+	 * @return A NeuronsActivation of PIXEL_COUNT features by count examples, in the default image format.
+	 */
+	public static NeuronsActivation createFeatureActivation(MatrixFactory matrixFactory, float[] data, int count) {
+		return new NeuronsActivationImpl(new Neurons(PIXEL_COUNT, false),
+				matrixFactory.createMatrixFromRowsByRowsArray(PIXEL_COUNT, count, data),
+				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, true);
+	}
+
+	/**
+	 * Creates the one-hot label vectors for the examples in the range [startExample, endExample).
+	 *
+	 * @param matrixFactory The matrix factory.
+	 * @param startExample  The first example, inclusive.
+	 * @param endExample    The last example, exclusive.
+	 * @return A NeuronsActivation of LABEL_COUNT features by (endExample - startExample) examples.
+	 */
+	public NeuronsActivation createLabelActivation(MatrixFactory matrixFactory, int startExample, int endExample) {
+		return createLabelActivation(matrixFactory, null, startExample, checkRange(startExample, endExample));
+	}
+
+	/**
+	 * Creates the one-hot label vectors for a selection of examples, such as a shuffled mini-batch.
+	 *
+	 * @param matrixFactory  The matrix factory.
+	 * @param exampleIndices The example indices, or null to select consecutive examples.
+	 * @param offset         The offset of the first selected example in exampleIndices ( or the first
+	 *                       example index if exampleIndices is null ).
+	 * @param count          The number of examples to select.
+	 * @return A NeuronsActivation of LABEL_COUNT features by count examples.
+	 */
+	public NeuronsActivation createLabelActivation(MatrixFactory matrixFactory, int[] exampleIndices, int offset,
+			int count) {
+		float[] data = new float[LABEL_COUNT * count];
+		for (int e = 0; e < count; e++) {
+			data[getLabel(exampleIndex(exampleIndices, offset, e)) * count + e] = 1;
+		}
+		return new NeuronsActivationImpl(new Neurons(LABEL_COUNT, false),
+				matrixFactory.createMatrixFromRowsByRowsArray(LABEL_COUNT, count, data),
+				NeuronsActivationFormat.ROWS_SPAN_FEATURE_SET, true);
+	}
+
+	private static int exampleIndex(int[] exampleIndices, int offset, int e) {
+		return exampleIndices == null ? offset + e : exampleIndices[offset + e];
+	}
+
+	private int checkRange(int startExample, int endExample) {
+		if (startExample < 0 || endExample > exampleCount || startExample >= endExample) {
+			throw new IllegalArgumentException("Invalid example range [" + startExample + ", " + endExample
+					+ ") for " + exampleCount + " examples");
+		}
+		return endExample - startExample;
+	}
+}
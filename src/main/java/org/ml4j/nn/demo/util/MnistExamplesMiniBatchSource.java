@@ -0,0 +1,192 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.ml4j.MatrixFactory;
+
+/**
+ * MiniBatchSource over random-access MnistExamples, such as those memory-mapped from the binary format.
+ *
+ * When shuffling is enabled, the examples of each epoch are visited in the order of a permutation
+ * derived from the seed and the epoch index, so any epoch can be reproduced independently.
+ *
+ * Optionally, a MiniBatchTransform, such as an ImageAugmenter, is applied to the features of each
+ * mini-batch when it is decoded, with a seed mixed from the transform seed, the epoch and the index of
+ * the mini-batch - so transformed epochs are also reproducible, and no two batches of a run share a seed
+ * other than by chance.
+ *
+ * Features are binarised by default, and may be encoded with another PixelEncoding to preserve greyscale
+ * intensities. Transforms operate on intensities in [0, 1] - so when a transform is applied to
+ * STANDARDISED features, the features are scaled to [0, 1], transformed, and then standardised.
+ *
+ */
+public class MnistExamplesMiniBatchSource implements MiniBatchSource {
+
+	private final MnistExamples examples;
+	private final MatrixFactory matrixFactory;
+	private final int batchSize;
+	private final int startExample;
+	private final int endExample;
+	private final Long shuffleSeed;
+	private MiniBatchTransform featureTransform;
+	private long transformSeed;
+	private PixelEncoding pixelEncoding = PixelEncoding.BINARY;
+	private PixelStatistics pixelStatistics;
+
+	/**
+	 * @param examples      The examples.
+	 * @param matrixFactory The matrix factory used to create the batch activations.
+	 * @param batchSize     The number of examples in each mini-batch.
+	 * @param shuffleSeed   The seed for shuffling the examples each epoch, or null to visit the examples in
+	 *                      order.
+	 */
+	public MnistExamplesMiniBatchSource(MnistExamples examples, MatrixFactory matrixFactory, int batchSize,
+			Long shuffleSeed) {
+		this(examples, matrixFactory, batchSize, shuffleSeed, 0, examples.getExampleCount());
+	}
+
+	/**
+	 * @param examples      The examples.
+	 * @param matrixFactory The matrix factory used to create the batch activations.
+	 * @param batchSize     The number of examples in each mini-batch.
+	 * @param shuffleSeed   The seed for shuffling the examples each epoch, or null to visit the examples in
+	 *                      order.
+	 * @param startExample  The first example of the range to iterate over, inclusive.
+	 * @param endExample    The last example of the range to iterate over, exclusive.
+	 */
+	public MnistExamplesMiniBatchSource(MnistExamples examples, MatrixFactory matrixFactory, int batchSize,
+			Long shuffleSeed, int startExample, int endExample) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		if (startExample < 0 || endExample > examples.getExampleCount() || startExample >= endExample) {
+			throw new IllegalArgumentException("Invalid example range [" + startExample + ", " + endExample + ")");
+		}
+		this.examples = examples;
+		this.matrixFactory = matrixFactory;
+		this.batchSize = batchSize;
+		this.shuffleSeed = shuffleSeed;
+		this.startExample = startExample;
+		this.endExample = endExample;
+	}
+
+	/**
+	 * @param featureTransform The transform to apply to the features of each mini-batch.
+	 * @param transformSeed    The seed from which the seed of each mini-batch's transform is derived.
+	 * @return This source.
+	 */
+	public MnistExamplesMiniBatchSource withFeatureTransform(MiniBatchTransform featureTransform, long transformSeed) {
+		this.featureTransform = featureTransform;
+		this.transformSeed = transformSeed;
+		return this;
+	}
+
+	/**
+	 * @param pixelEncoding   The encoding of the pixel features.
+	 * @param pixelStatistics The statistics to standardise with, required only for the STANDARDISED encoding
+	 *                        - usually those of the training set, whichever set this source iterates over.
+	 * @return This source.
+	 */
+	public MnistExamplesMiniBatchSource withPixelEncoding(PixelEncoding pixelEncoding,
+			PixelStatistics pixelStatistics) {
+		pixelEncoding.checkStatistics(pixelStatistics);
+		this.pixelEncoding = pixelEncoding;
+		this.pixelStatistics = pixelStatistics;
+		return this;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return The number of mini-batches in each epoch.
+	 */
+	public int getBatchCount() {
+		return (endExample - startExample + batchSize - 1) / batchSize;
+	}
+
+	@Override
+	public CloseableIterator<Supplier<MiniBatch>> deferredIterator(int epoch) {
+		int[] exampleIndices = shuffleSeed == null ? null : createPermutation(epoch);
+		MiniBatchTransform transform = featureTransform;
+		boolean standardiseTransformed = transform != null && pixelEncoding == PixelEncoding.STANDARDISED;
+		float[] pixelValues = pixelEncoding == PixelEncoding.BINARY ? null
+				: (standardiseTransformed ? PixelEncoding.SCALED : pixelEncoding).createPixelValues(pixelStatistics);
+		float mean = standardiseTransformed ? pixelStatistics.getMean() / 255 : 0;
+		float standardDeviation = standardiseTransformed ? pixelStatistics.getStandardDeviation() / 255 : 1;
+		long epochTransformSeed = mix64(mix64(transformSeed) + epoch);
+		return new CloseableIterator<Supplier<MiniBatch>>() {
+
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				return startExample + position < endExample;
+			}
+
+			@Override
+			public Supplier<MiniBatch> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int count = Math.min(batchSize, endExample - startExample - position);
+				int offset = exampleIndices == null ? startExample + position : position;
+				long batchTransformSeed = mix64(epochTransformSeed + position / batchSize);
+				position += count;
+				return () -> {
+					float[] features = new float[MnistExamples.PIXEL_COUNT * count];
+					if (pixelValues == null) {
+						examples.writeFeatures(exampleIndices, offset, count, features);
+					} else {
+						examples.writeFeatures(pixelValues, exampleIndices, offset, count, features);
+					}
+					if (transform != null) {
+						transform.transform(features, count, batchTransformSeed);
+					}
+					if (standardiseTransformed) {
+						for (int i = 0; i < features.length; i++) {
+							features[i] = (features[i] - mean) / standardDeviation;
+						}
+					}
+					return new MiniBatch(MnistExamples.createFeatureActivation(matrixFactory, features, count),
+							examples.createLabelActivation(matrixFactory, exampleIndices, offset, count), count);
+				};
+			}
+
+			@Override
+			public void close() {
+				// Holds no resources
+			}
+		};
+	}
+
+	/**
+	 * The SplitMix64 mixing function - a bijection, so distinct inputs give distinct outputs, and inputs
+	 * differing in a few low bits give unrelated outputs.
+	 */
+	private static long mix64(long seed) {
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private int[] createPermutation(int epoch) {
+		int[] permutation = new int[endExample - startExample];
+		for (int i = 0; i < permutation.length; i++) {
+			permutation[i] = startExample + i;
+		}
+		Random random = new Random(shuffleSeed * 31 + epoch);
+		for (int i = permutation.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = swap;
+		}
+		return permutation;
+	}
+}
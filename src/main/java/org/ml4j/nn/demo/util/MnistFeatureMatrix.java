@@ -0,0 +1,141 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationImpl;
+import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
+
+/**
+ * Mnist examples loaded from a Kaggle format CSV file directly into an encoded float feature matrix, in
+ * feature-by-example layout, together with their labels and the statistics of their raw pixel intensities.
+ *
+ * The CSV bytes are parsed straight into a preallocated float[] buffer, which backs the feature
+ * activation - there is no intermediate String, double[] or raw byte copy of the examples. Statistics are
+ * accumulated in the same pass. When the examples are standardised by their own statistics, which are
+ * only known once the file has been read, the buffer is first filled with raw intensities and then
+ * encoded in place.
+ *
+ */
+public class MnistFeatureMatrix {
+
+	private final float[] features;
+	private final byte[] labels;
+	private final int exampleCount;
+	private final PixelStatistics statistics;
+
+	private MnistFeatureMatrix(float[] features, byte[] labels, int exampleCount, PixelStatistics statistics) {
+		this.features = features;
+		this.labels = labels;
+		this.exampleCount = exampleCount;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Loads the first exampleCount examples of a CSV file.
+	 *
+	 * @param csvFile      The CSV file.
+	 * @param exampleCount The number of examples to load.
+	 * @param encoding     The pixel encoding.
+	 * @param statistics   The statistics to standardise with, or null to standardise by the statistics of
+	 *                     the loaded examples.
+	 * @return The loaded examples.
+	 */
+	public static MnistFeatureMatrix load(Path csvFile, int exampleCount, PixelEncoding encoding,
+			PixelStatistics statistics) {
+		try (InputStream inputStream = Files.newInputStream(csvFile)) {
+			return read(new MnistCsvParser(inputStream), exampleCount, encoding, statistics);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read file:" + csvFile, e);
+		}
+	}
+
+	/**
+	 * Reads the next exampleCount examples from a parser - successive calls may read successive ranges of a
+	 * file, such as a training set followed by a test set.
+	 *
+	 * @param parser       The parser.
+	 * @param exampleCount The number of examples to read.
+	 * @param encoding     The pixel encoding.
+	 * @param statistics   The statistics to standardise with, or null to standardise by the statistics of
+	 *                     the read examples.
+	 * @return The read examples.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public static MnistFeatureMatrix read(MnistCsvParser parser, int exampleCount, PixelEncoding encoding,
+			PixelStatistics statistics) throws IOException {
+		if (exampleCount <= 0) {
+			throw new IllegalArgumentException("Example count must be positive");
+		}
+		boolean deferEncoding = encoding.requiresStatistics() && statistics == null;
+		float[] pixelValues = deferEncoding ? rawIntensities() : encoding.createPixelValues(statistics);
+		float[] features = new float[MnistExamples.PIXEL_COUNT * exampleCount];
+		byte[] labels = new byte[exampleCount];
+		PixelStatistics exampleStatistics = new PixelStatistics();
+		for (int e = 0; e < exampleCount; e++) {
+			if (!parser.next(features, e, exampleCount, pixelValues, labels, exampleStatistics)) {
+				throw new IllegalStateException("Expected " + exampleCount + " examples but found " + e);
+			}
+		}
+		if (deferEncoding) {
+			float[] encodedValues = encoding.createPixelValues(exampleStatistics);
+			for (int i = 0; i < features.length; i++) {
+				features[i] = encodedValues[(int) features[i]];
+			}
+		}
+		return new MnistFeatureMatrix(features, labels, exampleCount, exampleStatistics);
+	}
+
+	private static float[] rawIntensities() {
+		float[] pixelValues = new float[256];
+		for (int i = 0; i < pixelValues.length; i++) {
+			pixelValues[i] = i;
+		}
+		return pixelValues;
+	}
+
+	public int getExampleCount() {
+		return exampleCount;
+	}
+
+	public int getLabel(int exampleIndex) {
+		return labels[exampleIndex];
+	}
+
+	/**
+	 * @return The statistics of the raw pixel intensities of the examples - for standardising other
+	 *         examples, such as a test set, consistently with these.
+	 */
+	public PixelStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @return A NeuronsActivation of PIXEL_COUNT features by exampleCount examples, in the default image
+	 *         format, created from the feature buffer.
+	 */
+	public NeuronsActivation createFeatureActivation(MatrixFactory matrixFactory) {
+		return MnistExamples.createFeatureActivation(matrixFactory, features, exampleCount);
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @return A NeuronsActivation of LABEL_COUNT one-hot features by exampleCount examples.
+	 */
+	public NeuronsActivation createLabelActivation(MatrixFactory matrixFactory) {
+		float[] data = new float[MnistExamples.LABEL_COUNT * exampleCount];
+		for (int e = 0; e < exampleCount; e++) {
+			data[labels[e] * exampleCount + e] = 1;
+		}
+		return new NeuronsActivationImpl(new Neurons(MnistExamples.LABEL_COUNT, false),
+				matrixFactory.createMatrixFromRowsByRowsArray(MnistExamples.LABEL_COUNT, exampleCount, data),
+				NeuronsActivationFormat.ROWS_SPAN_FEATURE_SET, true);
+	}
+}
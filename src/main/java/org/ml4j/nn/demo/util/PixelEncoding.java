@@ -0,0 +1,86 @@
+package org.ml4j.nn.demo.util;
+
+/**
+ * The encodings of Mnist pixel intensities ( 0-255 ) as features.
+ *
+ * Each encoding is applied through a lookup table of the feature value of each of the 256 intensities,
+ * created by createPixelValues - so encoding a pixel costs a single array read, whatever the encoding.
+ *
+ */
+public enum PixelEncoding {
+
+	/**
+	 * 0 for a zero intensity, and 1 otherwise - the encoding of KagglePixelFeaturesMatrixCsvDataExtractor,
+	 * expected by the pretrained networks.
+	 */
+	BINARY {
+		@Override
+		float encode(int intensity, PixelStatistics statistics) {
+			return intensity == 0 ? 0 : 1;
+		}
+	},
+
+	/**
+	 * The intensity scaled to the range [0, 1].
+	 */
+	SCALED {
+		@Override
+		float encode(int intensity, PixelStatistics statistics) {
+			return intensity / 255f;
+		}
+	},
+
+	/**
+	 * The intensity standardised by the mean and standard deviation of a set of pixel intensities - usually
+	 * those of the training set, which are then also used to encode the test set.
+	 */
+	STANDARDISED {
+		@Override
+		float encode(int intensity, PixelStatistics statistics) {
+			return (intensity - statistics.getMean()) / statistics.getStandardDeviation();
+		}
+
+		@Override
+		void checkStatistics(PixelStatistics statistics) {
+			super.checkStatistics(statistics);
+			if (!(statistics.getStandardDeviation() > 0)) {
+				throw new IllegalArgumentException(
+						"Pixel statistics with a zero standard deviation cannot be standardised, from pixel count:"
+								+ statistics.getCount());
+			}
+		}
+
+		@Override
+		public boolean requiresStatistics() {
+			return true;
+		}
+	};
+
+	abstract float encode(int intensity, PixelStatistics statistics);
+
+	void checkStatistics(PixelStatistics statistics) {
+		if (requiresStatistics() && statistics == null) {
+			throw new IllegalArgumentException("Pixel statistics are required for the " + this + " encoding");
+		}
+	}
+
+	/**
+	 * @return Whether the encoding requires PixelStatistics.
+	 */
+	public boolean requiresStatistics() {
+		return false;
+	}
+
+	/**
+	 * @param statistics The pixel statistics to standardise with, required only if requiresStatistics.
+	 * @return The feature value of each intensity 0-255.
+	 */
+	public float[] createPixelValues(PixelStatistics statistics) {
+		checkStatistics(statistics);
+		float[] pixelValues = new float[256];
+		for (int i = 0; i < pixelValues.length; i++) {
+			pixelValues[i] = encode(i, statistics);
+		}
+		return pixelValues;
+	}
+}
@@ -0,0 +1,88 @@
+package org.ml4j.nn.demo.util;
+
+/**
+ * The mean and standard deviation of a set of pixel intensities in the range 0-255, accumulated in a single
+ * streaming pass as a histogram of intensities - so the statistics are exact, and do not depend on the
+ * order in which pixels are added.
+ *
+ */
+public class PixelStatistics {
+
+	private final long[] counts = new long[256];
+
+	/**
+	 * @param examples     The examples.
+	 * @param startExample The first example, inclusive.
+	 * @param endExample   The last example, exclusive.
+	 * @return The statistics of every pixel of the examples in the range [startExample, endExample).
+	 */
+	public static PixelStatistics of(MnistExamples examples, int startExample, int endExample) {
+		PixelStatistics statistics = new PixelStatistics();
+		for (int e = startExample; e < endExample; e++) {
+			for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+				statistics.counts[examples.getPixel(e, p)]++;
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * @param intensity The pixel intensity, in the range 0-255.
+	 */
+	public void add(int intensity) {
+		counts[intensity]++;
+	}
+
+	/**
+	 * @param other Statistics to add to these statistics.
+	 */
+	public void add(PixelStatistics other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+	}
+
+	/**
+	 * @return The number of pixels added.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (long c : counts) {
+			count += c;
+		}
+		return count;
+	}
+
+	/**
+	 * @return The mean intensity, in the range 0-255.
+	 */
+	public float getMean() {
+		long count = getCount();
+		if (count == 0) {
+			throw new IllegalStateException("No pixels have been added");
+		}
+		long sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			sum += i * counts[i];
+		}
+		return (float) ((double) sum / count);
+	}
+
+	/**
+	 * @return The population standard deviation of the intensities.
+	 */
+	public float getStandardDeviation() {
+		double mean = getMean();
+		double sumOfSquares = 0;
+		for (int i = 0; i < counts.length; i++) {
+			sumOfSquares += (i - mean) * (i - mean) * counts[i];
+		}
+		return (float) Math.sqrt(sumOfSquares / getCount());
+	}
+
+	@Override
+	public String toString() {
+		return "PixelStatistics [count=" + getCount() + ", mean=" + getMean() + ", standardDeviation="
+				+ getStandardDeviation() + "]";
+	}
+}
@@ -0,0 +1,83 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics for a PrefetchingMiniBatchSource.
+ *
+ * A consumer stall is time the training thread spent waiting for a batch to be decoded; a producer
+ * block is time spent waiting for space in the prefetch queue ( ie. backpressure from the consumer ).
+ *
+ */
+public class PrefetchMetrics {
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private final AtomicLong batchesDelivered = new AtomicLong();
+	private final AtomicLong queueDepthTotal = new AtomicLong();
+	private final AtomicLong consumerStallNanos = new AtomicLong();
+	private final AtomicLong consumerStalls = new AtomicLong();
+	private final AtomicLong producerBlockedNanos = new AtomicLong();
+
+	void batchQueued() {
+		queueDepth.incrementAndGet();
+	}
+
+	void batchDiscarded() {
+		queueDepth.decrementAndGet();
+	}
+
+	void batchDelivered(long stallNanos) {
+		// Includes the batch being delivered
+		queueDepthTotal.addAndGet(queueDepth.getAndDecrement());
+		batchesDelivered.incrementAndGet();
+		if (stallNanos > 0) {
+			consumerStallNanos.addAndGet(stallNanos);
+			consumerStalls.incrementAndGet();
+		}
+	}
+
+	void producerBlocked(long blockedNanos) {
+		producerBlockedNanos.addAndGet(blockedNanos);
+	}
+
+	/**
+	 * @return The current number of batches queued or being decoded.
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * @return The average number of batches queued or being decoded when a batch was taken by the
+	 *         consumer.
+	 */
+	public double getAverageQueueDepth() {
+		long delivered = batchesDelivered.get();
+		return delivered == 0 ? 0 : (double) queueDepthTotal.get() / delivered;
+	}
+
+	public long getBatchesDelivered() {
+		return batchesDelivered.get();
+	}
+
+	public long getConsumerStalls() {
+		return consumerStalls.get();
+	}
+
+	public long getConsumerStallNanos() {
+		return consumerStallNanos.get();
+	}
+
+	public long getProducerBlockedNanos() {
+		return producerBlockedNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return "PrefetchMetrics [batchesDelivered=" + getBatchesDelivered() + ", averageQueueDepth="
+				+ String.format("%.2f", getAverageQueueDepth()) + ", consumerStalls=" + getConsumerStalls()
+				+ ", consumerStallMillis=" + getConsumerStallNanos() / 1000000 + ", producerBlockedMillis="
+				+ getProducerBlockedNanos() / 1000000 + "]";
+	}
+}
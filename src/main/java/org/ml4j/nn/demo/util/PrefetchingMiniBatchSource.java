@@ -0,0 +1,260 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * MiniBatchSource decorator which decodes mini-batches ahead of the consumer on a pool of decoder
+ * threads, so that reading and decoding overlap with training.
+ *
+ * A feeder thread walks the delegate's deferred batches in order, placing a pending result for each on a
+ * bounded queue before handing it to the decoder pool. When the queue is full the feeder blocks, so at
+ * most queueCapacity batches are being decoded or held in memory ahead of the consumer. Batches are
+ * delivered in the delegate's order.
+ *
+ * Only one epoch should be iterated at a time; an epoch iterator which is not run to the end should be closed
+ * so the feeder moves on to the next epoch. Instances should be closed to release their threads.
+ *
+ */
+public class PrefetchingMiniBatchSource implements MiniBatchSource, AutoCloseable {
+
+	private static final long FEEDER_POLL_MILLIS = 100;
+
+	private final MiniBatchSource delegate;
+	private final int queueCapacity;
+	private final ExecutorService decoderExecutor;
+	private final ExecutorService feederExecutor;
+	private final PrefetchMetrics metrics = new PrefetchMetrics();
+
+	private volatile boolean closed;
+
+	/**
+	 * @param delegate       The source of deferred mini-batches.
+	 * @param decoderThreads The number of threads decoding batches.
+	 * @param queueCapacity  The maximum number of batches queued or being decoded ahead of the consumer.
+	 */
+	public PrefetchingMiniBatchSource(MiniBatchSource delegate, int decoderThreads, int queueCapacity) {
+		if (decoderThreads <= 0 || queueCapacity <= 0) {
+			throw new IllegalArgumentException("Decoder threads and queue capacity must be positive");
+		}
+		this.delegate = delegate;
+		this.queueCapacity = queueCapacity;
+		this.decoderExecutor = Executors.newFixedThreadPool(decoderThreads, daemonThreadFactory("minibatch-decoder"));
+		this.feederExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("minibatch-feeder"));
+	}
+
+	@Override
+	public int getBatchSize() {
+		return delegate.getBatchSize();
+	}
+
+	public PrefetchMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public CloseableIterator<Supplier<MiniBatch>> deferredIterator(int epoch) {
+		CloseableIterator<MiniBatch> batches = iterator(epoch);
+		return new CloseableIterator<Supplier<MiniBatch>>() {
+
+			@Override
+			public boolean hasNext() {
+				return batches.hasNext();
+			}
+
+			@Override
+			public Supplier<MiniBatch> next() {
+				MiniBatch batch = batches.next();
+				return () -> batch;
+			}
+
+			@Override
+			public void close() {
+				batches.close();
+			}
+		};
+	}
+
+	@Override
+	public CloseableIterator<MiniBatch> iterator(int epoch) {
+		if (closed) {
+			throw new IllegalStateException("Prefetching mini-batch source is closed");
+		}
+		PrefetchIterator batches = new PrefetchIterator();
+		feederExecutor.execute(() -> batches.feed(epoch));
+		return batches;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		feederExecutor.shutdownNow();
+		decoderExecutor.shutdownNow();
+	}
+
+	/**
+	 * Iterator over the batches of one epoch, fed by the feeder thread.
+	 *
+	 * Closing the iterator before the end of the epoch abandons it: the feeder stops reading the delegate
+	 * and returns to serve the next epoch, and batches already queued are discarded.
+	 */
+	private class PrefetchIterator implements CloseableIterator<MiniBatch> {
+
+		private final BlockingQueue<CompletableFuture<MiniBatch>> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+		private volatile boolean abandoned;
+		// Completed with null to mark the end of the epoch, or exceptionally if the delegate failed
+		private volatile CompletableFuture<MiniBatch> endOfEpoch;
+
+		private MiniBatch nextBatch;
+		private boolean finished;
+
+		private void feed(int epoch) {
+			CompletableFuture<MiniBatch> last = CompletableFuture.completedFuture(null);
+			try (CloseableIterator<Supplier<MiniBatch>> deferredBatches = delegate.deferredIterator(epoch)) {
+				while (!isAbandoned() && deferredBatches.hasNext()) {
+					Supplier<MiniBatch> deferredBatch = deferredBatches.next();
+					// Reserve a place in the queue before decoding, so no more than queueCapacity batches are in
+					// flight
+					CompletableFuture<MiniBatch> batch = new CompletableFuture<>();
+					if (!enqueue(batch)) {
+						return;
+					}
+					metrics.batchQueued();
+					decoderExecutor.execute(() -> {
+						if (batch.isDone()) {
+							// Discarded by an abandoned epoch
+							return;
+						}
+						try {
+							batch.complete(deferredBatch.get());
+						} catch (Throwable e) {
+							// Including Errors such as OutOfMemoryError, so the consumer fails rather than waits
+							batch.completeExceptionally(e);
+						}
+					});
+				}
+			} catch (Throwable e) {
+				// Fail any batch queued but not handed to a decoder, so the consumer reaches the failure
+				for (CompletableFuture<MiniBatch> batch : queue) {
+					batch.completeExceptionally(e);
+				}
+				last = new CompletableFuture<>();
+				last.completeExceptionally(e);
+			} finally {
+				if (abandoned) {
+					// Batches queued after the consumer closed the iterator
+					discardQueued();
+				}
+			}
+			endOfEpoch = last;
+			enqueue(last);
+		}
+
+		private boolean isAbandoned() {
+			return abandoned || closed;
+		}
+
+		private boolean enqueue(CompletableFuture<MiniBatch> future) {
+			if (queue.offer(future)) {
+				return true;
+			}
+			long startTime = System.nanoTime();
+			try {
+				while (!queue.offer(future, FEEDER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (isAbandoned()) {
+						return false;
+					}
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				metrics.producerBlocked(System.nanoTime() - startTime);
+			}
+		}
+
+		private void discardQueued() {
+			CompletableFuture<MiniBatch> future;
+			while ((future = queue.poll()) != null) {
+				if (future != endOfEpoch) {
+					future.cancel(false);
+					metrics.batchDiscarded();
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextBatch == null && !finished) {
+				nextBatch = take();
+				finished = nextBatch == null;
+			}
+			return nextBatch != null;
+		}
+
+		@Override
+		public MiniBatch next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			MiniBatch batch = nextBatch;
+			nextBatch = null;
+			return batch;
+		}
+
+		@Override
+		public void close() {
+			if (!finished) {
+				finished = true;
+				nextBatch = null;
+				abandoned = true;
+				discardQueued();
+			}
+		}
+
+		private MiniBatch take() {
+			try {
+				CompletableFuture<MiniBatch> future = queue.poll();
+				long stallNanos = 0;
+				if (future == null || !future.isDone()) {
+					long startTime = System.nanoTime();
+					if (future == null) {
+						future = queue.take();
+					}
+					future.get();
+					stallNanos = System.nanoTime() - startTime;
+				}
+				MiniBatch batch = future.get();
+				if (batch != null) {
+					metrics.batchDelivered(stallNanos);
+				}
+				return batch;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted waiting for mini-batch", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Unable to decode mini-batch", e.getCause());
+			}
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory(String namePrefix) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,77 @@
+package org.ml4j.nn.demo.util;
+
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SIGMOID;
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SOFTMAX;
+
+import org.ml4j.nn.activationfunctions.ActivationFunctionBaseType;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Builds the network architectures for which pretrained Mnist weights are available.
+ *
+ */
+public class PretrainedMnistNetworks {
+
+	public static final String[] FIVE_LAYER_NETWORK_LAYER_NAMES = { "firstLayer", "secondLayer", "thirdLayer",
+			"fourthLayer", "fifthLayer" };
+
+	private PretrainedMnistNetworks() {
+	}
+
+	/**
+	 * Creates the pretrained five-layer neural network with a convolutional layer, from our Kaggle
+	 * competition entry.
+	 *
+	 * @param session           The session.
+	 * @param pretrainedWeights The pretrained weights.
+	 * @return The network.
+	 */
+	public static LayeredSupervisedFeedForwardNeuralNetwork createFiveLayerNetworkWithConvLayer(DefaultSession session,
+			PretrainedMnistWeights pretrainedWeights) {
+		return session
+				.buildLayeredSupervised3DNeuralNetwork("pretrainedFiveLayerNetwork")
+					.withConvolutionalLayer("firstLayer")
+					.withInputNeurons(new Neurons3D(28, 28, 1, true)).withOutputNeurons(new Neurons3D(20, 20, 6, withBiasUnit(true)))
+					.withConfig(config -> config.withFilterHeight(9).withFilterWidth(9).withFilterCount(6))
+					.withWeightsMatrix(pretrainedWeights.getLayer1Weights())
+					.withBiasVector(pretrainedWeights.getLayer1Biases())
+					.withActivationFunction(ActivationFunctionBaseType.SIGMOID)
+				.withMaxPoolingLayer("secondLayer")
+					.withInputNeurons(new Neurons3D(20, 20, 6, false))
+					.withScaleOutputs() // Not normally required, but this network was trained with this setting enabled
+					.withConfig(config -> config.withStrideHeight(2).withStrideWidth(2)
+					.withFilterHeight(2).withFilterWidth(2)
+					.withOutputNeurons(new Neurons3D(10, 10, 6, false)))
+				.withFullyConnectedLayer("thirdLayer")
+					.withInputNeurons(new Neurons(600, withBiasUnit(true)))
+					.withWeightsMatrix(pretrainedWeights.getLayer3Weights())
+					.withBiasVector(pretrainedWeights.getLayer3Biases())
+					.withOutputNeurons(new Neurons(400, withBiasUnit(false)))
+					.withActivationFunction(SIGMOID)
+				.withFullyConnectedLayer("fourthLayer")
+					.withInputNeurons(new Neurons(400, withBiasUnit(true)))
+					.withWeightsMatrix(pretrainedWeights.getLayer4Weights())
+					.withBiasVector(pretrainedWeights.getLayer4Biases())
+					.withOutputNeurons(new Neurons(100, withBiasUnit(false)))
+					.withActivationFunction(SIGMOID)
+				.withFullyConnectedLayer("fifthLayer")
+					.withInputNeurons(new Neurons(100, withBiasUnit(true)))
+					.withWeightsMatrix(pretrainedWeights.getLayer5Weights())
+					.withBiasVector(pretrainedWeights.getLayer5Biases())
+					.withOutputNeurons(new Neurons(10, withBiasUnit(false)))
+				.withActivationFunction(SOFTMAX).build();
+	}
+
+	/**
+	 * Convenience method to improve readability of network creation.
+	 * 
+	 * @param withBiasUnit
+	 * @return
+	 */
+	private static boolean withBiasUnit(boolean withBiasUnit) {
+		return withBiasUnit;
+	}
+}
@@ -13,93 +13,103 @@ import org.ml4j.nn.axons.WeightsMatrix;
 import org.ml4j.nn.axons.WeightsMatrixImpl;
 import org.ml4j.nn.axons.WeightsMatrixOrientation;
 import org.ml4j.nn.neurons.format.features.Dimension;
-import org.ml4j.util.SerializationHelper;
 
+/**
+ * The pretrained weights of the five-layer Mnist network, loaded from a memory-mapped weights bundle
+ * ( see PretrainedMnistWeightsExporter ).
+ *
+ * Each weights matrix and bias vector is created lazily on first access, and then shared by all callers -
+ * instances are safe to share between threads, and are intended to be obtained through
+ * PretrainedWeightsRegistry so that all networks built from the same weights share a single copy. The
+ * returned weights must therefore be treated as read-only, ie. used for inference and not for training -
+ * PretrainedWeightsRegistry.getTrainablePretrainedMnistWeights gives an unshared instance to train.
+ *
+ */
 public class PretrainedMnistWeights {
-	
-	private WeightsMatrix layer1Weights;
-	private BiasVector layer1Biases;
-	private WeightsMatrix layer3Weights;
-	private BiasVector layer3Biases;
-	private WeightsMatrix layer4Weights;
-	private BiasVector layer4Biases;
-	private WeightsMatrix layer5Weights;
-	private BiasVector layer5Biases;
-	
+
+	public static final String WEIGHTS_BUNDLE_RESOURCE = "pretrainedweights/pretrainedFiveLayerNetwork.weights";
+
+	private final LazyValue<WeightsMatrix> layer1Weights;
+	private final LazyValue<BiasVector> layer1Biases;
+	private final LazyValue<WeightsMatrix> layer3Weights;
+	private final LazyValue<BiasVector> layer3Biases;
+	private final LazyValue<WeightsMatrix> layer4Weights;
+	private final LazyValue<BiasVector> layer4Biases;
+	private final LazyValue<WeightsMatrix> layer5Weights;
+	private final LazyValue<BiasVector> layer5Biases;
+
 	public PretrainedMnistWeights(MatrixFactory matrixFactory) {
+		this(matrixFactory, WeightsBundle.load(PretrainedMnistWeights.class.getClassLoader(), WEIGHTS_BUNDLE_RESOURCE));
+	}
 
-	    SerializationHelper helper = new SerializationHelper(
-	    		PretrainedMnistWeights.class.getClassLoader(), "pretrainedweights");
-		
-		layer1Weights = new WeightsMatrixImpl(
-				matrixFactory.createMatrixFromRowsByRowsArray(6, 81,
-						helper.deserialize(float[].class, "layer1Weights")),
+	public PretrainedMnistWeights(MatrixFactory matrixFactory, WeightsBundle bundle) {
+
+		layer1Weights = new LazyValue<>(() -> new WeightsMatrixImpl(bundle.createMatrix(matrixFactory, "layer1Weights"),
 				new WeightsFormatImpl(
 						Arrays.asList(Dimension.INPUT_DEPTH, Dimension.FILTER_HEIGHT, Dimension.FILTER_WIDTH),
-						Arrays.asList(Dimension.OUTPUT_DEPTH), WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS));
-
-		layer1Biases = new BiasVectorImpl(
-				matrixFactory.createMatrixFromRowsByRowsArray(6, 1, helper.deserialize(float[].class, "layer1Biases")), 
-						new BiasFormatImpl(Dimension.OUTPUT_DEPTH, FeaturesVectorOrientation.COLUMN_VECTOR));
-
-		layer3Weights = new WeightsMatrixImpl(
-				matrixFactory.createMatrixFromRowsByRowsArray(400, 600,
-						helper.deserialize(float[].class, "layer3Weights")),
-				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE), WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS));
-
-		layer3Biases = new BiasVectorImpl(matrixFactory.createMatrixFromRowsByRowsArray(400, 1,
-				helper.deserialize(float[].class, "layer3Biases")), 
-				FeaturesVectorFormat.DEFAULT_BIAS_FORMAT);
-
-		layer4Weights = new WeightsMatrixImpl(
-				matrixFactory.createMatrixFromRowsByRowsArray(100, 400,
-						helper.deserialize(float[].class, "layer4Weights")),
-				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE), 
-						WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS));
-
-		layer4Biases = new BiasVectorImpl(matrixFactory.createMatrixFromRowsByRowsArray(100, 1,
-				helper.deserialize(float[].class, "layer4Biases")),
-				FeaturesVectorFormat.DEFAULT_BIAS_FORMAT);
-
-		layer5Weights = new WeightsMatrixImpl(
-				matrixFactory.createMatrixFromRowsByRowsArray(10, 100,
-						helper.deserialize(float[].class, "layer5Weights")),
-				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE), WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS));
-
-		layer5Biases = new BiasVectorImpl(matrixFactory.createMatrixFromRowsByRowsArray(10, 1,
-				helper.deserialize(float[].class, "layer5Biases")), FeaturesVectorFormat.DEFAULT_BIAS_FORMAT);
+						Arrays.asList(Dimension.OUTPUT_DEPTH), getOrientation(bundle, "layer1Weights"))));
+
+		layer1Biases = new LazyValue<>(() -> new BiasVectorImpl(bundle.createMatrix(matrixFactory, "layer1Biases"),
+				new BiasFormatImpl(Dimension.OUTPUT_DEPTH, FeaturesVectorOrientation.COLUMN_VECTOR)));
+
+		layer3Weights = new LazyValue<>(() -> new WeightsMatrixImpl(bundle.createMatrix(matrixFactory, "layer3Weights"),
+				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE),
+						getOrientation(bundle, "layer3Weights"))));
+
+		layer3Biases = new LazyValue<>(() -> new BiasVectorImpl(bundle.createMatrix(matrixFactory, "layer3Biases"),
+				FeaturesVectorFormat.DEFAULT_BIAS_FORMAT));
+
+		layer4Weights = new LazyValue<>(() -> new WeightsMatrixImpl(bundle.createMatrix(matrixFactory, "layer4Weights"),
+				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE),
+						getOrientation(bundle, "layer4Weights"))));
+
+		layer4Biases = new LazyValue<>(() -> new BiasVectorImpl(bundle.createMatrix(matrixFactory, "layer4Biases"),
+				FeaturesVectorFormat.DEFAULT_BIAS_FORMAT));
+
+		layer5Weights = new LazyValue<>(() -> new WeightsMatrixImpl(bundle.createMatrix(matrixFactory, "layer5Weights"),
+				new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE), Arrays.asList(Dimension.OUTPUT_FEATURE),
+						getOrientation(bundle, "layer5Weights"))));
+
+		layer5Biases = new LazyValue<>(() -> new BiasVectorImpl(bundle.createMatrix(matrixFactory, "layer5Biases"),
+				FeaturesVectorFormat.DEFAULT_BIAS_FORMAT));
+	}
+
+	private static WeightsMatrixOrientation getOrientation(WeightsBundle bundle, String name) {
+		return bundle.getEntry(name).getOrientation() == WeightsBundle.COLUMNS_SPAN_OUTPUT_DIMENSIONS
+				? WeightsMatrixOrientation.COLUMNS_SPAN_OUTPUT_DIMENSIONS
+				: WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS;
 	}
 
 	public WeightsMatrix getLayer1Weights() {
-		return layer1Weights;
+		return layer1Weights.get();
 	}
 
 	public BiasVector getLayer1Biases() {
-		return layer1Biases;
+		return layer1Biases.get();
 	}
 
 	public WeightsMatrix getLayer3Weights() {
-		return layer3Weights;
+		return layer3Weights.get();
 	}
 
 	public BiasVector getLayer3Biases() {
-		return layer3Biases;
+		return layer3Biases.get();
 	}
 
 	public WeightsMatrix getLayer4Weights() {
-		return layer4Weights;
+		return layer4Weights.get();
 	}
 
 	public BiasVector getLayer4Biases() {
-		return layer4Biases;
+		return layer4Biases.get();
 	}
 
 	public WeightsMatrix getLayer5Weights() {
-		return layer5Weights;
+		return layer5Weights.get();
 	}
 
 	public BiasVector getLayer5Biases() {
-		return layer5Biases;
+		return layer5Biases.get();
 	}
 
 }
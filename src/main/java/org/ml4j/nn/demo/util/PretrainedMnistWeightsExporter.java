@@ -0,0 +1,54 @@
+package org.ml4j.nn.demo.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.ml4j.util.SerializationHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports the serialized pretrained Mnist weights ( the layerNWeights / layerNBiases .ser files ) to a
+ * single weights bundle, as read by PretrainedMnistWeights.
+ *
+ * Usage: PretrainedMnistWeightsExporter &lt;outputFile&gt;
+ *
+ */
+public class PretrainedMnistWeightsExporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PretrainedMnistWeightsExporter.class);
+
+	private PretrainedMnistWeightsExporter() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("Usage: PretrainedMnistWeightsExporter <outputFile>");
+		}
+		Path outputPath = Paths.get(args[0]);
+
+		SerializationHelper helper = new SerializationHelper(
+				PretrainedMnistWeightsExporter.class.getClassLoader(), "pretrainedweights");
+
+		new WeightsBundleWriter()
+				.withTensor("layer1Weights", 6, 81, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer1Weights"))
+				.withTensor("layer1Biases", 6, 1, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer1Biases"))
+				.withTensor("layer3Weights", 400, 600, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer3Weights"))
+				.withTensor("layer3Biases", 400, 1, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer3Biases"))
+				.withTensor("layer4Weights", 100, 400, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer4Weights"))
+				.withTensor("layer4Biases", 100, 1, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer4Biases"))
+				.withTensor("layer5Weights", 10, 100, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer5Weights"))
+				.withTensor("layer5Biases", 10, 1, WeightsBundle.ROWS_SPAN_OUTPUT_DIMENSIONS,
+						helper.deserialize(float[].class, "layer5Biases"))
+				.write(outputPath);
+
+		LOGGER.info("Exported pretrained Mnist weights to {}", outputPath);
+	}
+}
@@ -0,0 +1,121 @@
+package org.ml4j.nn.demo.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ml4j.MatrixFactory;
+
+/**
+ * Process-wide registry of pretrained weights, keyed by model id and MatrixFactory type.
+ *
+ * Each weights bundle is mapped once, and each set of weights is created once per MatrixFactory type and
+ * shared by every network built from it - so many inference workers share a single read-only copy of the
+ * weights. Individual weights matrices and bias vectors are loaded lazily on first access.
+ *
+ * The shared weights must only be used to build networks for inference - training such a network would
+ * update the weights of every other network sharing them. Networks to be trained, such as those fine-tuned
+ * from the pretrained weights, should be built from getTrainablePretrainedMnistWeights, which returns
+ * weights owned by the caller.
+ *
+ */
+public final class PretrainedWeightsRegistry {
+
+	public static final String PRETRAINED_FIVE_LAYER_NETWORK = "pretrainedFiveLayerNetwork";
+
+	private static final PretrainedWeightsRegistry INSTANCE = new PretrainedWeightsRegistry();
+
+	private final Map<String, String> bundleResourcesByModelId = new ConcurrentHashMap<>();
+	private final Map<String, WeightsBundle> bundlesByModelId = new ConcurrentHashMap<>();
+	private final Map<WeightsKey, PretrainedMnistWeights> weightsByKey = new ConcurrentHashMap<>();
+
+	private PretrainedWeightsRegistry() {
+		registerModel(PRETRAINED_FIVE_LAYER_NETWORK, PretrainedMnistWeights.WEIGHTS_BUNDLE_RESOURCE);
+	}
+
+	public static PretrainedWeightsRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the weights bundle classpath resource for a model id.
+	 *
+	 * @param modelId        The model id.
+	 * @param bundleResource The classpath resource of the weights bundle.
+	 */
+	public void registerModel(String modelId, String bundleResource) {
+		String existing = bundleResourcesByModelId.putIfAbsent(modelId, bundleResource);
+		if (existing != null && !existing.equals(bundleResource)) {
+			throw new IllegalStateException("Model " + modelId + " is already registered with bundle " + existing);
+		}
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @return The shared weights of the pretrained five-layer Mnist network.
+	 */
+	public PretrainedMnistWeights getPretrainedMnistWeights(MatrixFactory matrixFactory) {
+		return getPretrainedMnistWeights(PRETRAINED_FIVE_LAYER_NETWORK, matrixFactory);
+	}
+
+	/**
+	 * @param modelId       The model id.
+	 * @param matrixFactory The matrix factory.
+	 * @return The shared, read-only weights for the model id and type of matrix factory.
+	 */
+	public PretrainedMnistWeights getPretrainedMnistWeights(String modelId, MatrixFactory matrixFactory) {
+		return weightsByKey.computeIfAbsent(new WeightsKey(modelId, matrixFactory.getClass()),
+				key -> new PretrainedMnistWeights(matrixFactory, getBundle(modelId)));
+	}
+
+	/**
+	 * @param matrixFactory The matrix factory.
+	 * @return New weights of the pretrained five-layer Mnist network, not shared with any other caller.
+	 */
+	public PretrainedMnistWeights getTrainablePretrainedMnistWeights(MatrixFactory matrixFactory) {
+		return getTrainablePretrainedMnistWeights(PRETRAINED_FIVE_LAYER_NETWORK, matrixFactory);
+	}
+
+	/**
+	 * @param modelId       The model id.
+	 * @param matrixFactory The matrix factory.
+	 * @return New weights for the model id, created from the shared weights bundle but not shared with any
+	 *         other caller - so they may be trained.
+	 */
+	public PretrainedMnistWeights getTrainablePretrainedMnistWeights(String modelId, MatrixFactory matrixFactory) {
+		return new PretrainedMnistWeights(matrixFactory, getBundle(modelId));
+	}
+
+	private WeightsBundle getBundle(String modelId) {
+		String bundleResource = bundleResourcesByModelId.get(modelId);
+		if (bundleResource == null) {
+			throw new IllegalArgumentException("No weights registered for model:" + modelId);
+		}
+		return bundlesByModelId.computeIfAbsent(modelId,
+				id -> WeightsBundle.load(PretrainedWeightsRegistry.class.getClassLoader(), bundleResource));
+	}
+
+	private static final class WeightsKey {
+
+		private final String modelId;
+		private final Class<?> matrixFactoryType;
+
+		WeightsKey(String modelId, Class<?> matrixFactoryType) {
+			this.modelId = modelId;
+			this.matrixFactoryType = matrixFactoryType;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof WeightsKey)) {
+				return false;
+			}
+			WeightsKey key = (WeightsKey) other;
+			return modelId.equals(key.modelId) && matrixFactoryType.equals(key.matrixFactoryType);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * modelId.hashCode() + matrixFactoryType.hashCode();
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+
+/**
+ * A versioned bundle of named float tensors, such as the weights and biases of a network, designed to
+ * be memory-mapped.
+ *
+ * All values are little-endian. The bundle starts with a header and manifest:
+ *
+ * <pre>
+ * magic (int) | version (int) | tensorCount (int)
+ * tensorCount * [ nameLength (short) | name (UTF-8) | rows (int) | columns (int) | orientation (byte) | offset (long) ]
+ * </pre>
+ *
+ * followed by the row-by-row float values of each tensor, starting at the offset given in the manifest.
+ * Offsets are aligned to ALIGNMENT bytes.
+ *
+ */
+public class WeightsBundle {
+
+	public static final int MAGIC = 0x57344C4D; // "ML4W" when read little-endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 12;
+	public static final int ALIGNMENT = 64;
+
+	/**
+	 * Size of a manifest entry, excluding the name bytes.
+	 */
+	static final int ENTRY_FIXED_SIZE = 2 + 4 + 4 + 1 + 8;
+
+	/**
+	 * Orientation of a tensor whose rows span the output dimensions, eg. WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS.
+	 */
+	public static final byte ROWS_SPAN_OUTPUT_DIMENSIONS = 0;
+
+	/**
+	 * Orientation of a tensor whose columns span the output dimensions.
+	 */
+	public static final byte COLUMNS_SPAN_OUTPUT_DIMENSIONS = 1;
+
+	private final ByteBuffer buffer;
+	private final Map<String, Entry> entries;
+
+	WeightsBundle(ByteBuffer buffer) {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.entries = readManifest(this.buffer);
+	}
+
+	/**
+	 * Memory-maps a weights bundle file.
+	 *
+	 * @param path The path of the bundle.
+	 * @return The bundle, backed by the mapped file.
+	 */
+	public static WeightsBundle map(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new WeightsBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to map weights bundle:" + path, e);
+		}
+	}
+
+	/**
+	 * Loads a weights bundle from the classpath - memory-mapping the resource when it is a file, or reading
+	 * it into a direct buffer otherwise ( eg. when packaged within a jar ).
+	 *
+	 * @param classLoader  The class loader to load the resource from.
+	 * @param resourceName The name of the bundle resource.
+	 * @return The bundle.
+	 */
+	public static WeightsBundle load(ClassLoader classLoader, String resourceName) {
+		URL url = classLoader.getResource(resourceName);
+		if (url == null) {
+			throw new IllegalArgumentException("Unable to find resource:" + resourceName);
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return map(Paths.get(url.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Invalid resource URL:" + url, e);
+			}
+		}
+		try (InputStream inputStream = url.openStream()) {
+			return new WeightsBundle(readFully(inputStream));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read resource:" + resourceName, e);
+		}
+	}
+
+	public Set<String> getTensorNames() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	public Entry getEntry(String name) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No tensor named " + name + " in weights bundle");
+		}
+		return entry;
+	}
+
+	/**
+	 * @param name The name of the tensor.
+	 * @return A read-only view of the tensor values in the bundle, row by row.
+	 */
+	public FloatBuffer getTensor(String name) {
+		Entry entry = getEntry(name);
+		ByteBuffer duplicate = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		duplicate.position((int) entry.getOffset());
+		duplicate.limit((int) entry.getOffset() + entry.getRows() * entry.getColumns() * Float.BYTES);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Creates a matrix from the named tensor, copying the values from the bundle exactly once.
+	 *
+	 * @param matrixFactory The matrix factory.
+	 * @param name          The name of the tensor.
+	 * @return The matrix.
+	 */
+	public Matrix createMatrix(MatrixFactory matrixFactory, String name) {
+		Entry entry = getEntry(name);
+		return matrixFactory.createMatrixFromRowsByRowsArray(entry.getRows(), entry.getColumns(), getRowByRowArray(name));
+	}
+
+	/**
+	 * @param name The name of the tensor.
+	 * @return A copy of the tensor values, row by row.
+	 */
+	public float[] getRowByRowArray(String name) {
+		Entry entry = getEntry(name);
+		float[] rowByRowArray = new float[entry.getRows() * entry.getColumns()];
+		getTensor(name).get(rowByRowArray);
+		return rowByRowArray;
+	}
+
+	private static Map<String, Entry> readManifest(ByteBuffer buffer) {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not a weights bundle");
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported weights bundle version:" + version);
+		}
+		int tensorCount = buffer.getInt(8);
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		int position = HEADER_SIZE;
+		for (int i = 0; i < tensorCount; i++) {
+			if (position + ENTRY_FIXED_SIZE > buffer.limit()) {
+				throw new IllegalArgumentException("Corrupt weights bundle");
+			}
+			// The name length is an unsigned short
+			int nameLength = buffer.getShort(position) & 0xFFFF;
+			if (position + ENTRY_FIXED_SIZE + nameLength > buffer.limit()) {
+				throw new IllegalArgumentException("Corrupt weights bundle");
+			}
+			byte[] encodedName = new byte[nameLength];
+			for (int b = 0; b < nameLength; b++) {
+				encodedName[b] = buffer.get(position + 2 + b);
+			}
+			position += 2 + nameLength;
+			Entry entry = new Entry(new String(encodedName, StandardCharsets.UTF_8), buffer.getInt(position),
+					buffer.getInt(position + 4), buffer.get(position + 8), buffer.getLong(position + 9));
+			position += ENTRY_FIXED_SIZE - 2;
+			if (entry.getOffset() + (long) entry.getRows() * entry.getColumns() * Float.BYTES > buffer.limit()) {
+				throw new IllegalArgumentException("Truncated weights bundle - tensor " + entry.getName());
+			}
+			entries.put(entry.getName(), entry);
+		}
+		return entries;
+	}
+
+	private static ByteBuffer readFully(InputStream inputStream) throws IOException {
+		byte[] chunk = new byte[1 << 16];
+		ByteBuffer result = ByteBuffer.allocateDirect(1 << 20);
+		int read;
+		while ((read = inputStream.read(chunk)) != -1) {
+			if (result.remaining() < read) {
+				ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(result.capacity() * 2, result.position() + read));
+				result.flip();
+				larger.put(result);
+				result = larger;
+			}
+			result.put(chunk, 0, read);
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * A manifest entry describing one tensor of the bundle.
+	 */
+	public static class Entry {
+
+		private final String name;
+		private final int rows;
+		private final int columns;
+		private final byte orientation;
+		private final long offset;
+
+		Entry(String name, int rows, int columns, byte orientation, long offset) {
+			this.name = name;
+			this.rows = rows;
+			this.columns = columns;
+			this.orientation = orientation;
+			this.offset = offset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public int getColumns() {
+			return columns;
+		}
+
+		public byte getOrientation() {
+			return orientation;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.ml4j.nn.demo.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes named float tensors to the weights bundle format read by WeightsBundle.
+ *
+ */
+public class WeightsBundleWriter {
+
+	private final List<String> names = new ArrayList<>();
+	private final List<int[]> shapes = new ArrayList<>();
+	private final List<Byte> orientations = new ArrayList<>();
+	private final List<float[]> tensors = new ArrayList<>();
+
+	/**
+	 * Adds a tensor to the bundle.
+	 *
+	 * @param name          The name of the tensor.
+	 * @param rows          The number of rows.
+	 * @param columns       The number of columns.
+	 * @param orientation   The orientation of the tensor, one of the WeightsBundle orientation constants.
+	 * @param rowByRowArray The tensor values, row by row.
+	 * @return This writer.
+	 */
+	public WeightsBundleWriter withTensor(String name, int rows, int columns, byte orientation, float[] rowByRowArray) {
+		if (rowByRowArray.length != rows * columns) {
+			throw new IllegalArgumentException("Expected " + (rows * columns) + " values for tensor " + name
+					+ " but found " + rowByRowArray.length);
+		}
+		if (names.contains(name)) {
+			throw new IllegalArgumentException("Duplicate tensor name:" + name);
+		}
+		names.add(name);
+		shapes.add(new int[] { rows, columns });
+		orientations.add(orientation);
+		tensors.add(rowByRowArray);
+		return this;
+	}
+
+	/**
+	 * @return A bundle of the tensors added so far, held in memory.
+	 */
+	public WeightsBundle toBundle() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write weights bundle", e);
+		}
+		return new WeightsBundle(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+	public void write(Path path) {
+		try (OutputStream outputStream = Files.newOutputStream(path)) {
+			write(outputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write weights bundle:" + path, e);
+		}
+	}
+
+	/**
+	 * Writes the bundle to the output stream. The stream is not closed.
+	 *
+	 * @param outputStream The output stream.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public void write(OutputStream outputStream) throws IOException {
+		List<byte[]> encodedNames = new ArrayList<>();
+		int manifestSize = WeightsBundle.HEADER_SIZE;
+		for (String name : names) {
+			byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+			if (encodedName.length > 0xFFFF) {
+				throw new IllegalArgumentException("Tensor name too long:" + name);
+			}
+			encodedNames.add(encodedName);
+			manifestSize += WeightsBundle.ENTRY_FIXED_SIZE + encodedName.length;
+		}
+
+		ByteBuffer manifest = ByteBuffer.allocate(manifestSize).order(ByteOrder.LITTLE_ENDIAN);
+		manifest.putInt(WeightsBundle.MAGIC);
+		manifest.putInt(WeightsBundle.VERSION);
+		manifest.putInt(names.size());
+		long offset = align(manifestSize);
+		for (int i = 0; i < names.size(); i++) {
+			byte[] encodedName = encodedNames.get(i);
+			manifest.putShort((short) encodedName.length);
+			manifest.put(encodedName);
+			manifest.putInt(shapes.get(i)[0]);
+			manifest.putInt(shapes.get(i)[1]);
+			manifest.put(orientations.get(i));
+			manifest.putLong(offset);
+			offset = align(offset + (long) tensors.get(i).length * Float.BYTES);
+		}
+
+		OutputStream out = new BufferedOutputStream(outputStream, 1 << 16);
+		out.write(manifest.array());
+		long position = manifestSize;
+		for (float[] tensor : tensors) {
+			position = pad(out, position);
+			ByteBuffer data = ByteBuffer.allocate(tensor.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			data.asFloatBuffer().put(tensor);
+			out.write(data.array());
+			position += data.capacity();
+		}
+		out.flush();
+	}
+
+	private static long pad(OutputStream out, long position) throws IOException {
+		long aligned = align(position);
+		for (long i = position; i < aligned; i++) {
+			out.write(0);
+		}
+		return aligned;
+	}
+
+	private static long align(long position) {
+		return (position + WeightsBundle.ALIGNMENT - 1) / WeightsBundle.ALIGNMENT * WeightsBundle.ALIGNMENT;
+	}
+}
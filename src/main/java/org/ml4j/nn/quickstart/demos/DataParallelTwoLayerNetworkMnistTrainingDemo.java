@@ -0,0 +1,134 @@
+package org.ml4j.nn.quickstart.demos;
+
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SIGMOID;
+import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SOFTMAX;
+
+import java.util.logging.LogManager;
+
+import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
+import org.ml4j.nn.demo.training.DataParallelTrainer;
+import org.ml4j.nn.demo.util.MatrixBackendSelector;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamplesMiniBatchSource;
+import org.ml4j.nn.layers.FullyConnectedFeedForwardLayer;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Demo of training the simple 2 layer fully connected LayeredSupervisedFeedForwardNeuralNetwork for Mnist
+ * Data data-parallel across the available cores.
+ *
+ */
+public class DataParallelTwoLayerNetworkMnistTrainingDemo {
+
+	static {
+		// Quieten Logging for JBlas
+		org.jblas.util.Logger.getLogger().setLevel(org.jblas.util.Logger.ERROR);
+		LogManager.getLogManager().reset();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataParallelTwoLayerNetworkMnistTrainingDemo.class);
+
+	private static final int TRAINING_SET_SIZE = 1000;
+
+	public static void main(String[] args) {
+
+		// Use the fastest matrix backend on this host for training each replica on its shard ( calibrated on
+		// first use, or pinned with -Dml4j.matrixBackend=jblas ).
+		QuickstartSessionFactory sessionFactory = MatrixBackendSelector.forFullyConnectedNetwork(784, 400, 10)
+				.selectForTraining(getShardSize(Runtime.getRuntime().availableProcessors())).createSessionFactory();
+		runTrainNeuralNetworkDemo(sessionFactory);
+	}
+
+	private static void runTrainNeuralNetworkDemo(QuickstartSessionFactory sessionFactory) {
+
+		// 1. CREATE NETWORK
+
+		DefaultSession session = sessionFactory.createSession();
+
+		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = createNeuralNetwork(session);
+
+		// 2. CREATE TRAINING DATA AND TRAINING PARAMETERS
+
+		// Each training step covers the whole training set, as in SimpleTwoLayerNetworkMnistTrainingDemo, split
+		// into one shard per replica.
+		int replicaCount = Runtime.getRuntime().availableProcessors();
+		int shardSize = getShardSize(replicaCount);
+		MnistExamplesMiniBatchSource shardSource = new MnistExamplesMiniBatchSource(MnistData.getExamples(),
+				session.getMatrixFactory(), shardSize, null, 0, TRAINING_SET_SIZE);
+
+		// 3. TRAIN NETWORK
+
+		// Each replica is configured with the same training properties. ( Dropout is random per replica, so it
+		// is disabled to keep results reproducible run to run ).
+		try (DataParallelTrainer trainer = new DataParallelTrainer(neuralNetwork, () -> createNeuralNetwork(session),
+				replica -> createTrainingContext(session, replica), shardSource, replicaCount)) {
+
+			LOGGER.info("Training data-parallel across {} replicas...", trainer.getReplicaCount());
+
+			trainer.train(400);
+		}
+
+		// 4. USE NETWORK
+
+		LayeredFeedForwardNeuralNetworkContext neuralNetworkContext = session.createLayeredSupervisedFeedForwardNeuralNetworkContext();
+
+		float trainingSetAccuracy = neuralNetwork.getClassificationAccuracy(
+				MnistData.loadTrainingData(session.getMatrixFactory()),
+				MnistData.loadTrainingLabels(session.getMatrixFactory()), neuralNetworkContext);
+
+		LOGGER.info("Post-training training-set accuracy = {} %", trainingSetAccuracy);
+
+		NeuronsActivation testSetDataActivations = MnistData.loadTestSetData(session.getMatrixFactory());
+		NeuronsActivation testSetLabelActivations = MnistData.loadTestSetLabels(session.getMatrixFactory());
+
+		float testSetAccuracy = neuralNetwork.getClassificationAccuracy(testSetDataActivations,
+				testSetLabelActivations, neuralNetworkContext);
+
+		LOGGER.info("Post-training test-set accuracy = {} %", testSetAccuracy);
+	}
+
+	private static int getShardSize(int replicaCount) {
+		return (TRAINING_SET_SIZE + replicaCount - 1) / replicaCount;
+	}
+
+	private static LayeredSupervisedFeedForwardNeuralNetwork createNeuralNetwork(DefaultSession session) {
+		return session
+				.buildLayeredSupervisedNeuralNetwork("simpleTwoLayerNetwork")
+					.withFullyConnectedLayer("firstLayer")
+						.withInputNeurons(new Neurons(784, withBiasUnit(true)))
+						.withAxonsContextConfigurer(context -> context.withLeftHandInputDropoutKeepProbability(1))
+						.withOutputNeurons(new Neurons(400, withBiasUnit(false)))
+						.withActivationFunction(SIGMOID)
+					.withFullyConnectedLayer("secondLayer").withInputNeurons(new Neurons(400, withBiasUnit(true)))
+						.withOutputNeurons(new Neurons(10, withBiasUnit(false)))
+						.withActivationFunction(SOFTMAX)
+						.build();
+	}
+
+	private static LayeredFeedForwardNeuralNetworkContext createTrainingContext(DefaultSession session,
+			LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork) {
+		LayeredFeedForwardNeuralNetworkContext trainingContext = session
+				.createLayeredSupervisedFeedForwardNeuralNetworkContext().asTrainingContext();
+		trainingContext.setTrainingLearningRate(0.1f);
+		FullyConnectedFeedForwardLayer secondLayer = FullyConnectedFeedForwardLayer.class.cast(neuralNetwork.getLayer(1));
+		secondLayer.getPrimaryAxonsContext(trainingContext.getDirectedComponentsContext())
+				.withRegularisationLambda(0).withLeftHandInputDropoutKeepProbability(1);
+		return trainingContext;
+	}
+
+	/**
+	 * Convenience method to improve readability of network creation.
+	 *
+	 * @param withBiasUnit
+	 * @return
+	 */
+	private static boolean withBiasUnit(boolean withBiasUnit) {
+		return withBiasUnit;
+	}
+}
@@ -0,0 +1,71 @@
+package org.ml4j.nn.quickstart.demos;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.nn.demo.kernels.InferencePlan;
+import org.ml4j.nn.demo.kernels.InferencePlanArtifact;
+import org.ml4j.nn.demo.kernels.InferenceWorkspace;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Demo of classifying Mnist test set digits with the pretrained five-layer network, loaded from an
+ * artifact written by InferencePlanArtifactExporter rather than built through a session.
+ *
+ * Serving a prediction - reading the artifact, InferenceWorkspace.setInputs over raw pixel bytes and
+ * classify - needs only the JDK, the artifact reader and the inference kernels: no matrix backend, network
+ * builder or serialized weights - so this path suits Class Data Sharing archives and GraalVM native
+ * images. The demo itself reads its test images, and their labels, with MnistData.
+ *
+ * Usage: PretrainedArtifactMnistClassificationDemo &lt;artifactFile&gt;
+ *
+ */
+public class PretrainedArtifactMnistClassificationDemo {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PretrainedArtifactMnistClassificationDemo.class);
+
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_SIZE = 1000;
+	private static final int WARMUP_ITERATIONS = 3;
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("Usage: PretrainedArtifactMnistClassificationDemo <artifactFile>");
+		}
+		long startTime = System.nanoTime();
+		InferencePlan plan = InferencePlanArtifact.read(Paths.get(args[0]));
+		InferenceWorkspace workspace = plan.createWorkspace(TEST_SET_SIZE);
+		long loadedTime = System.nanoTime();
+		workspace.warmUp(WARMUP_ITERATIONS);
+		long warmedUpTime = System.nanoTime();
+
+		MnistExamples examples = MnistData.getExamples();
+		byte[] firstImage = new byte[MnistExamples.PIXEL_COUNT];
+		for (int p = 0; p < firstImage.length; p++) {
+			firstImage[p] = (byte) examples.getPixel(TEST_SET_START, p);
+		}
+		long firstPredictionStartTime = System.nanoTime();
+		workspace.setInputs(firstImage, 1);
+		int[] predictions = new int[TEST_SET_SIZE];
+		workspace.classify(1, predictions);
+		long firstPredictionTime = System.nanoTime();
+
+		LOGGER.info("Loaded the plan in {} ms, warmed up in {} ms, first prediction in {} us ( digit {} )",
+				TimeUnit.NANOSECONDS.toMillis(loadedTime - startTime),
+				TimeUnit.NANOSECONDS.toMillis(warmedUpTime - loadedTime),
+				TimeUnit.NANOSECONDS.toMicros(firstPredictionTime - firstPredictionStartTime), predictions[0]);
+
+		workspace.setInputs(examples, TEST_SET_START, TEST_SET_SIZE);
+		workspace.classify(TEST_SET_SIZE, predictions);
+		int correct = 0;
+		for (int e = 0; e < TEST_SET_SIZE; e++) {
+			if (predictions[e] == examples.getLabel(TEST_SET_START + e)) {
+				correct++;
+			}
+		}
+		LOGGER.info("Test-set accuracy = {} %", 100f * correct / TEST_SET_SIZE);
+	}
+}
@@ -1,20 +1,18 @@
 package org.ml4j.nn.quickstart.demos;
 
-
-import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SIGMOID;
-import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SOFTMAX;
-
 import java.util.logging.LogManager;
 import java.util.stream.IntStream;
 
-import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
-import org.ml4j.nd4j.Nd4jRowMajorMatrixFactory;
 import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
-import org.ml4j.nn.activationfunctions.ActivationFunctionBaseType;
+import org.ml4j.nn.demo.kernels.BinaryInputNetworkRunner;
+import org.ml4j.nn.demo.kernels.BitPackedImages;
+import org.ml4j.nn.demo.instrumentation.InstrumentedNeuralNetwork;
+import org.ml4j.nn.demo.instrumentation.LayerMetricsRecorder;
+import org.ml4j.nn.demo.util.MatrixBackendSelector;
 import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
 import org.ml4j.nn.demo.util.PretrainedMnistWeights;
-import org.ml4j.nn.neurons.Neurons;
-import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.demo.util.PretrainedWeightsRegistry;
 import org.ml4j.nn.neurons.NeuronsActivation;
 import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
 import org.ml4j.nn.sessions.DefaultSession;
@@ -37,9 +35,15 @@ public class PretrainedFiveLayerNetworkWithConvLayerMnistClassificationDemo {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PretrainedFiveLayerNetworkWithConvLayerMnistClassificationDemo.class);
 	
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_SIZE = 1000;
+	
 	public static void main(String[] args) {
 
-		QuickstartSessionFactory sessionFactory = new QuickstartSessionFactory(new JBlasRowMajorMatrixFactoryOptimised(), false);
+		// Use the fastest matrix backend on this host for classifying the test set as a single batch ( calibrated
+		// on first use, or pinned with -Dml4j.matrixBackend=jblas ).
+		QuickstartSessionFactory sessionFactory = MatrixBackendSelector.forPretrainedFiveLayerNetwork()
+				.selectForInference(TEST_SET_SIZE).createSessionFactory();
 		runTrainNeuralNetworkDemo(sessionFactory);
 	}
 
@@ -54,41 +58,16 @@ public class PretrainedFiveLayerNetworkWithConvLayerMnistClassificationDemo {
 		DefaultSession session = sessionFactory.createSession();
 		
 		// Obtain pretrained weights for this network architecture, from our Kaggle competion entry.
-		PretrainedMnistWeights pretrainedWeights = new PretrainedMnistWeights(session.getMatrixFactory());
+		// ( The weights are shared with any other network built from the registry ).
+		PretrainedMnistWeights pretrainedWeights = PretrainedWeightsRegistry.getInstance()
+				.getPretrainedMnistWeights(session.getMatrixFactory());
 	
-		// Create a pretrained five-layer neural network with a convolutional layer.
-		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = session
-				.buildLayeredSupervised3DNeuralNetwork("pretrainedFiveLayerNetwork")
-					.withConvolutionalLayer("firstLayer")
-					.withInputNeurons(new Neurons3D(28, 28, 1, true)).withOutputNeurons(new Neurons3D(20, 20, 6, withBiasUnit(true)))
-					.withConfig(config -> config.withFilterHeight(9).withFilterWidth(9).withFilterCount(6))
-					.withWeightsMatrix(pretrainedWeights.getLayer1Weights())
-					.withBiasVector(pretrainedWeights.getLayer1Biases())
-					.withActivationFunction(ActivationFunctionBaseType.SIGMOID)
-				.withMaxPoolingLayer("secondLayer")
-					.withInputNeurons(new Neurons3D(20, 20, 6, false))
-					.withScaleOutputs() // Not normally required, but this network was trained with this setting enabled
-					.withConfig(config -> config.withStrideHeight(2).withStrideWidth(2)
-					.withFilterHeight(2).withFilterWidth(2)
-					.withOutputNeurons(new Neurons3D(10, 10, 6, false)))
-				.withFullyConnectedLayer("thirdLayer")
-					.withInputNeurons(new Neurons(600, withBiasUnit(true)))
-					.withWeightsMatrix(pretrainedWeights.getLayer3Weights())
-					.withBiasVector(pretrainedWeights.getLayer3Biases())
-					.withOutputNeurons(new Neurons(400, withBiasUnit(false)))
-					.withActivationFunction(SIGMOID)
-				.withFullyConnectedLayer("fourthLayer")
-					.withInputNeurons(new Neurons(400, withBiasUnit(true)))
-					.withWeightsMatrix(pretrainedWeights.getLayer4Weights())
-					.withBiasVector(pretrainedWeights.getLayer4Biases())
-					.withOutputNeurons(new Neurons(100, withBiasUnit(false)))
-					.withActivationFunction(SIGMOID)
-				.withFullyConnectedLayer("fifthLayer")
-					.withInputNeurons(new Neurons(100, withBiasUnit(true)))
-					.withWeightsMatrix(pretrainedWeights.getLayer5Weights())
-					.withBiasVector(pretrainedWeights.getLayer5Biases())
-					.withOutputNeurons(new Neurons(10, withBiasUnit(false)))
-				.withActivationFunction(SOFTMAX).build();
+		// Create a pretrained five-layer neural network with a convolutional layer - a 9x9 convolutional layer of 6
+		// sigmoid filters, a 2x2 max pooling layer, and sigmoid fully connected layers of 400 and 100 neurons
+		// followed by a softmax output layer of 10 neurons. The builder chain configuring each layer is in
+		// PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer(DefaultSession, PretrainedMnistWeights).
+		LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork = PretrainedMnistNetworks
+				.createFiveLayerNetworkWithConvLayer(session, pretrainedWeights);
 
 		// Create a context for the neural network ( non-training, for classification/showcase purposes)
 		LayeredFeedForwardNeuralNetworkContext neuralNetworkContext = session.createLayeredSupervisedFeedForwardNeuralNetworkContext();
@@ -99,7 +78,14 @@ public class PretrainedFiveLayerNetworkWithConvLayerMnistClassificationDemo {
 		NeuronsActivation testSetDataActivations = MnistData.loadTestSetData(session.getMatrixFactory());
 		NeuronsActivation testSetLabelActivations = MnistData.loadTestSetLabels(session.getMatrixFactory());
 		
-		NeuronsActivation predictedLabelsActivation = neuralNetwork.forwardPropagate(testSetDataActivations, neuralNetworkContext).getOutput();
+		// Forward propagate through an instrumented view of the network, recording per-layer metrics
+		InstrumentedNeuralNetwork instrumentedNetwork = new InstrumentedNeuralNetwork(neuralNetwork,
+				session.getMatrixFactory(), PretrainedMnistNetworks.FIVE_LAYER_NETWORK_LAYER_NAMES,
+				new LayerMetricsRecorder("pretrainedFiveLayerNetwork"));
+		
+		NeuronsActivation predictedLabelsActivation = instrumentedNetwork.forwardPropagate(testSetDataActivations, neuralNetworkContext);
+	
+		LOGGER.info("Per-layer forward propagation metrics:\n{}", instrumentedNetwork.getRecorder().toSummaryTable());
 	
 		int[] predictedDigits = predictedLabelsActivation.getActivations(session.getMatrixFactory()).columnArgmaxs();
 		int[] actualDigits = testSetLabelActivations.getActivations(session.getMatrixFactory()).columnArgmaxs();
@@ -120,15 +106,19 @@ public class PretrainedFiveLayerNetworkWithConvLayerMnistClassificationDemo {
 		
 		LOGGER.info("Post-training test-set accuracy = {} %", testSetAccuracy);
 
-	}
+		// Classify the test set again from bit-packed images, computing the convolutional layer from only the set
+		// pixels of each image and the remaining layers with the network's own layers.
+		BinaryInputNetworkRunner binaryInputRunner = BinaryInputNetworkRunner.forPretrainedFiveLayerNetwork(
+				neuralNetwork, session.getMatrixFactory());
+		BitPackedImages testSetImages = BitPackedImages.fromExamples(MnistData.getExamples(), TEST_SET_START,
+				TEST_SET_START + TEST_SET_SIZE);
+		int[] binaryInputPredictedDigits = binaryInputRunner.forwardPropagate(testSetImages, neuralNetworkContext)
+				.getActivations(session.getMatrixFactory()).columnArgmaxs();
+
+		long agreementCount = IntStream.range(0, TEST_SET_SIZE)
+				.filter(e -> binaryInputPredictedDigits[e] == predictedDigits[e]).count();
+		LOGGER.info("Bit-packed binary input predictions agree with the network on {} of {} test-set examples",
+				agreementCount, TEST_SET_SIZE);
 
-	/**
-	 * Convenience method to improve readability of network creation.
-	 * 
-	 * @param withBiasUnit
-	 * @return
-	 */
-	private static boolean withBiasUnit(boolean withBiasUnit) {
-		return withBiasUnit;
 	}
 }
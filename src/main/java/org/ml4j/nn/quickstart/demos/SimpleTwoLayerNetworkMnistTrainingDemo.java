@@ -3,14 +3,20 @@ package org.ml4j.nn.quickstart.demos;
 import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SIGMOID;
 import static org.ml4j.nn.activationfunctions.ActivationFunctionBaseType.SOFTMAX;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.logging.LogManager;
 import java.util.stream.IntStream;
 
-import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
-import org.ml4j.nd4j.Nd4jRowMajorMatrixFactory;
 import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
 import org.ml4j.nn.axons.AxonsContext;
+import org.ml4j.nn.demo.augmentation.ImageAugmenter;
+import org.ml4j.nn.demo.training.MiniBatchTrainer;
+import org.ml4j.nn.demo.training.TrainingCheckpoint;
+import org.ml4j.nn.demo.training.TrainingCheckpointer;
+import org.ml4j.nn.demo.util.MatrixBackendSelector;
 import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamplesMiniBatchSource;
 import org.ml4j.nn.layers.FullyConnectedFeedForwardLayer;
 import org.ml4j.nn.neurons.Neurons;
 import org.ml4j.nn.neurons.NeuronsActivation;
@@ -35,13 +41,26 @@ public class SimpleTwoLayerNetworkMnistTrainingDemo {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(SimpleTwoLayerNetworkMnistTrainingDemo.class);
 	
+	private static final int TRAINING_SET_SIZE = 900;
+	private static final int VALIDATION_SET_SIZE = 100;
+	
+	private static final int CHECKPOINT_INTERVAL = 10;
+	private static final long AUGMENTATION_SEED = 0;
+	
+	/**
+	 * @param args Optionally, a checkpoint directory - training is checkpointed to the directory, and resumed
+	 *             from its latest checkpoint if there is one.
+	 */
 	public static void main(String[] args) {
 
-		QuickstartSessionFactory sessionFactory = new QuickstartSessionFactory(new JBlasRowMajorMatrixFactoryOptimised(), false);
-		runTrainNeuralNetworkDemo(sessionFactory);
+		// Use the fastest matrix backend on this host for training the network with mini-batches of the whole
+		// training set ( calibrated on first use, or pinned with -Dml4j.matrixBackend=jblas ).
+		QuickstartSessionFactory sessionFactory = MatrixBackendSelector.forFullyConnectedNetwork(784, 400, 10)
+				.selectForTraining(TRAINING_SET_SIZE).createSessionFactory();
+		runTrainNeuralNetworkDemo(sessionFactory, args.length > 0 ? Paths.get(args[0]) : null);
 	}
 
-	private static void runTrainNeuralNetworkDemo(QuickstartSessionFactory sessionFactory) {
+	private static void runTrainNeuralNetworkDemo(QuickstartSessionFactory sessionFactory, Path checkpointDirectory) {
 		
 		// 1. CREATE NETWORK
 		
@@ -67,29 +86,27 @@ public class SimpleTwoLayerNetworkMnistTrainingDemo {
 
 		// 2. CREATE TRAINNG DATA AND TRAINING PARAMETERS
 		
-		// Obtain the training data and labels - for this demo the data is small enough to be loaded in memory.
-		// We wrap the numeric data inside NeuronsActivation instances.
+		// Obtain the training data - for this demo the data is small enough to be trained on as a single batch.
+		// The last 100 training examples are held out as a validation set, to monitor progress during training.
+		// ( For larger datasets, the MiniBatchSource can stream smaller mini-batches instead ).
 		
-		NeuronsActivation trainingDataActivations = MnistData.loadTrainingData(session.getMatrixFactory());
-		NeuronsActivation trainingLabelActivations = MnistData.loadTrainingLabels(session.getMatrixFactory());
+		// The training examples are augmented with random shifts, rotations, elastic distortions and noise each
+		// epoch, to reduce overfitting to such a small training set.
+		MnistExamplesMiniBatchSource trainingSource = new MnistExamplesMiniBatchSource(MnistData.getExamples(),
+				session.getMatrixFactory(), TRAINING_SET_SIZE, null, 0, TRAINING_SET_SIZE)
+				.withFeatureTransform(ImageAugmenter.forMnist(), AUGMENTATION_SEED);
+		MnistExamplesMiniBatchSource validationSource = new MnistExamplesMiniBatchSource(MnistData.getExamples(),
+				session.getMatrixFactory(), VALIDATION_SET_SIZE, null, TRAINING_SET_SIZE, TRAINING_SET_SIZE + VALIDATION_SET_SIZE);
 		
 		// Create a context for the neural network ( non-training, for classification/showcase purposes)
 		LayeredFeedForwardNeuralNetworkContext neuralNetworkContext = session.createLayeredSupervisedFeedForwardNeuralNetworkContext();
 
-
-		// Obtain the accuracy of the initial (untrained ) network, using the classification context.
-		float preTrainingAccuracy = neuralNetwork.getClassificationAccuracy(trainingDataActivations,
-				trainingLabelActivations, neuralNetworkContext);
-		
-		LOGGER.info("Pre-training training-set accuracy = {} %", preTrainingAccuracy);
-	 
 		// 3. TRAIN NETWORK
 		
 		// Create a training context
 		LayeredFeedForwardNeuralNetworkContext trainingNeuralNetworkContext = neuralNetworkContext.asTrainingContext();
 		
 		// Configure training properties
-		trainingNeuralNetworkContext.setTrainingEpochs(400);
 		trainingNeuralNetworkContext.setTrainingLearningRate(0.1f);
 			
 		// Optionally configure hyper-parameters, such as regularisation and dropout for a given layer.
@@ -97,15 +114,40 @@ public class SimpleTwoLayerNetworkMnistTrainingDemo {
 		AxonsContext secondLayerAxonsContext = secondLayer.getPrimaryAxonsContext(trainingNeuralNetworkContext.getDirectedComponentsContext());
 		secondLayerAxonsContext.withRegularisationLambda(0).withLeftHandInputDropoutKeepProbability(0.8f);
 				
-		// Train the neural network, using the training context.
-				
-		neuralNetwork.train(trainingDataActivations, trainingLabelActivations, trainingNeuralNetworkContext);
-
-		// Obtain the accuracy of the trained network on the training set, using the classification context.
-		float trainingSetAccuracy = neuralNetwork.getClassificationAccuracy(trainingDataActivations,
-				trainingLabelActivations, neuralNetworkContext);
-		
-		LOGGER.info("Post-training training-set accuracy = {} %", trainingSetAccuracy);
+		// Train the neural network for up to 400 epochs, reporting progress every 10 epochs and stopping early
+		// once the validation set accuracy stops improving. ( Training metrics are not enabled, as they would
+		// cost an extra forward pass over the training set every epoch - the validation set tracks progress ).
+		MiniBatchTrainer trainer = new MiniBatchTrainer(neuralNetwork, trainingSource)
+				.withEvaluationContext(neuralNetworkContext, session.getMatrixFactory())
+				.withValidation(validationSource, 10)
+				.withEarlyStopping(5, 0)
+				.addEpochListener(summary -> {
+					if (summary.isValidated()) {
+						LOGGER.info("Epoch {} : validation-set loss = {} , accuracy = {} %", summary.getEpoch() + 1,
+								summary.getValidationLoss(), summary.getValidationAccuracy() * 100);
+					}
+				});
+		
+		int epochsTrained;
+		if (checkpointDirectory == null) {
+			epochsTrained = trainer.train(trainingNeuralNetworkContext, 400);
+		} else {
+			// Checkpoint every 10 epochs, resuming from the latest checkpoint if a previous run was interrupted.
+			TrainingCheckpoint checkpoint = TrainingCheckpointer.loadLatest(checkpointDirectory);
+			if (checkpoint != null && checkpoint.isStopped()) {
+				LOGGER.info("Checkpointed run stopped early after epoch {} - restoring its parameters",
+						checkpoint.getCompletedEpochs());
+			} else if (checkpoint != null) {
+				LOGGER.info("Resuming from checkpoint after epoch {}", checkpoint.getCompletedEpochs());
+			}
+			try (TrainingCheckpointer checkpointer = new TrainingCheckpointer(checkpointDirectory)) {
+				epochsTrained = trainer.withCheckpointing(checkpointer, CHECKPOINT_INTERVAL, null)
+						.resumeFrom(checkpoint)
+						.train(trainingNeuralNetworkContext, 400);
+			}
+		}
+		
+		LOGGER.info("Trained for {} epochs", epochsTrained);
 		
 		// 4. USE NETWORK
 
@@ -0,0 +1,172 @@
+package org.ml4j.nn.demo.inference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.ml4j.nn.demo.util.MnistExamples;
+
+/**
+ * Tests micro-batch formation, the delay flush, rejection and failure handling of MicroBatchingClassifier,
+ * over a batch classifier which classifies each image as the digit in its first pixel.
+ *
+ */
+public class MicroBatchingClassifierTest {
+
+	private static final long LONG_DELAY_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+	private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+	@Test(timeout = 10000)
+	public void testFullBatchesAreClassifiedWithoutWaitingForTheDelay() throws Exception {
+		try (MicroBatchingClassifier classifier = new MicroBatchingClassifier(this::classify, 4, LONG_DELAY_MICROS,
+				1, 100)) {
+			List<CompletableFuture<Classification>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(classifier.classify(image(i)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(i, futures.get(i).get().getDigit());
+			}
+			assertEquals(2, batchSizes.size());
+			assertEquals(4, (int) batchSizes.get(0));
+			assertEquals(4, (int) batchSizes.get(1));
+			assertEquals(2, classifier.getBatchCount());
+			assertEquals(4, classifier.getAverageBatchSize(), 0);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testPartialBatchIsClassifiedAfterTheDelay() throws Exception {
+		long delayMillis = 50;
+		try (MicroBatchingClassifier classifier = new MicroBatchingClassifier(this::classify, 100,
+				TimeUnit.MILLISECONDS.toMicros(delayMillis), 1, 100)) {
+			long startTime = System.nanoTime();
+			List<CompletableFuture<Classification>> futures = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				futures.add(classifier.classify(image(i)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(i, futures.get(i).get().getDigit());
+			}
+			assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(delayMillis));
+			assertEquals(Collections.singletonList(3), batchSizes);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseFailsPendingRequests() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MicroBatchingClassifier classifier = new MicroBatchingClassifier(images -> {
+			started.countDown();
+			awaitUninterruptibly(release);
+			return classify(images);
+		}, 1, 0, 1, 100);
+		CompletableFuture<Classification> inProgress = classifier.classify(image(0));
+		started.await();
+		List<CompletableFuture<Classification>> pending = new ArrayList<>();
+		for (int i = 1; i < 4; i++) {
+			pending.add(classifier.classify(image(i)));
+		}
+		classifier.close();
+		for (CompletableFuture<Classification> future : pending) {
+			assertFailsWith(IllegalStateException.class, future);
+		}
+		assertFailsWith(IllegalStateException.class, classifier.classify(image(4)));
+		release.countDown();
+		assertEquals(0, inProgress.get().getDigit());
+	}
+
+	@Test(timeout = 10000)
+	public void testRequestsBeyondThePendingLimitAreRejected() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try (MicroBatchingClassifier classifier = new MicroBatchingClassifier(images -> {
+			started.countDown();
+			awaitUninterruptibly(release);
+			return classify(images);
+		}, 1, 0, 1, 2)) {
+			CompletableFuture<Classification> inProgress = classifier.classify(image(0));
+			started.await();
+			CompletableFuture<Classification> first = classifier.classify(image(1));
+			CompletableFuture<Classification> second = classifier.classify(image(2));
+			assertFailsWith(IllegalStateException.class, classifier.classify(image(3)));
+			release.countDown();
+			assertEquals(0, inProgress.get().getDigit());
+			assertEquals(1, first.get().getDigit());
+			assertEquals(2, second.get().getDigit());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testDispatcherSurvivesAFailingBatch() throws Exception {
+		OutOfMemoryError failure = new OutOfMemoryError("test");
+		try (MicroBatchingClassifier classifier = new MicroBatchingClassifier(images -> {
+			if (images[0][0] == 0) {
+				throw failure;
+			}
+			return classify(images);
+		}, 1, 0, 1, 100)) {
+			try {
+				classifier.classify(image(0)).get();
+				fail("Expected the batch to fail");
+			} catch (ExecutionException e) {
+				assertEquals(failure, e.getCause());
+			}
+			assertEquals(1, classifier.classify(image(1)).get().getDigit());
+		}
+	}
+
+	private Classification[] classify(float[][] images) {
+		batchSizes.add(images.length);
+		Classification[] classifications = new Classification[images.length];
+		for (int i = 0; i < images.length; i++) {
+			classifications[i] = new Classification((int) images[i][0], new float[MnistExamples.LABEL_COUNT]);
+		}
+		return classifications;
+	}
+
+	private static float[] image(int digit) {
+		float[] image = new float[MnistExamples.PIXEL_COUNT];
+		image[0] = digit;
+		return image;
+	}
+
+	private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<?> future)
+			throws InterruptedException {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected " + expected.getSimpleName());
+		} catch (ExecutionException e) {
+			assertTrue(expected.isInstance(e.getCause()));
+		} catch (TimeoutException e) {
+			fail("Expected " + expected.getSimpleName() + " but the request is still pending");
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.ml4j.nn.demo.inference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+
+/**
+ * Checks the thread-safety contract of MnistClassificationService: classifying the Mnist test set from
+ * many threads at once gives the same classifications as classifying it from a single thread.
+ *
+ */
+public class MnistClassificationServiceConcurrencyTest {
+
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_SIZE = 1000;
+	private static final int THREAD_COUNT = 16;
+
+	private static MnistClassificationService service;
+	private static ExecutorService executor;
+	private static List<float[]> images;
+	private static Classification[] referenceClassifications;
+
+	@BeforeClass
+	public static void setUp() {
+		service = MnistClassificationService
+				.forPretrainedFiveLayerNetwork(new QuickstartSessionFactory(new JBlasRowMajorMatrixFactoryOptimised(), false));
+		executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		MnistExamples examples = MnistData.getExamples();
+		images = new ArrayList<>();
+		for (int e = TEST_SET_START; e < TEST_SET_START + TEST_SET_SIZE; e++) {
+			float[] image = new float[MnistExamples.PIXEL_COUNT];
+			for (int p = 0; p < image.length; p++) {
+				image[p] = examples.isPixelSet(e, p) ? 1 : 0;
+			}
+			images.add(image);
+		}
+		referenceClassifications = new Classification[TEST_SET_SIZE];
+		for (int i = 0; i < TEST_SET_SIZE; i++) {
+			referenceClassifications[i] = service.classify(images.get(i));
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentSingleImageClassificationsMatchSingleThreaded() {
+		List<CompletableFuture<Classification>> futures = new ArrayList<>();
+		for (float[] image : images) {
+			futures.add(service.classifyAsync(image, executor));
+		}
+		for (int i = 0; i < TEST_SET_SIZE; i++) {
+			assertClassificationEquals(i, referenceClassifications[i], futures.get(i).join());
+		}
+	}
+
+	@Test
+	public void testConcurrentBatchClassificationsMatchSingleThreaded() {
+		int batchSize = TEST_SET_SIZE / THREAD_COUNT;
+		List<CompletableFuture<Classification[]>> futures = new ArrayList<>();
+		for (int start = 0; start < TEST_SET_SIZE; start += batchSize) {
+			List<float[]> batch = images.subList(start, Math.min(start + batchSize, TEST_SET_SIZE));
+			futures.add(CompletableFuture.supplyAsync(() -> service.classify(batch), executor));
+		}
+		int i = 0;
+		for (CompletableFuture<Classification[]> future : futures) {
+			for (Classification classification : future.join()) {
+				// Batched and single-image forward passes may sum in a different order
+				assertEquals("Image " + i, referenceClassifications[i].getDigit(), classification.getDigit());
+				assertArrayEquals("Image " + i, referenceClassifications[i].getProbabilities(),
+						classification.getProbabilities(), 1e-5f);
+				i++;
+			}
+		}
+		assertEquals(TEST_SET_SIZE, i);
+	}
+
+	private static void assertClassificationEquals(int index, Classification expected, Classification actual) {
+		assertEquals("Image " + index, expected.getDigit(), actual.getDigit());
+		assertArrayEquals("Image " + index, expected.getProbabilities(), actual.getProbabilities(), 0f);
+	}
+}
@@ -0,0 +1,67 @@
+package org.ml4j.nn.demo.kernels;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ml4j.nn.demo.util.MnistBinaryFormat;
+import org.ml4j.nn.demo.util.MnistExamples;
+
+/**
+ * Checks that BitPackedImages reads the same set pixels as MnistExamples, whether the examples hold one
+ * byte per pixel or are bit-packed.
+ *
+ */
+public class BitPackedImagesTest {
+
+	private static final int EXAMPLE_COUNT = 20;
+
+	@Test
+	public void testImagesOfUnpackedExamplesMatchExamples() {
+		assertImagesMatchExamples(createExamples());
+	}
+
+	@Test
+	public void testImagesOfBitPackedExamplesMatchExamples() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MnistBinaryFormat.write(createExamples(), out, true);
+		MnistExamples bitPackedExamples = MnistBinaryFormat.read(ByteBuffer.wrap(out.toByteArray()));
+
+		assertImagesMatchExamples(bitPackedExamples);
+	}
+
+	private static void assertImagesMatchExamples(MnistExamples examples) {
+		int start = 3;
+		BitPackedImages images = BitPackedImages.fromExamples(examples, start, EXAMPLE_COUNT);
+		assertEquals(EXAMPLE_COUNT - start, images.getExampleCount());
+		int[] setPixelIndices = new int[MnistExamples.PIXEL_COUNT];
+		for (int e = 0; e < images.getExampleCount(); e++) {
+			int setPixelCount = images.getSetPixelIndices(e, setPixelIndices);
+			int expectedIndex = 0;
+			for (int p = 0; p < MnistExamples.PIXEL_COUNT; p++) {
+				assertEquals(examples.isPixelSet(start + e, p), images.isPixelSet(e, p));
+				if (examples.isPixelSet(start + e, p)) {
+					assertEquals(p, setPixelIndices[expectedIndex++]);
+				}
+			}
+			assertEquals(expectedIndex, setPixelCount);
+		}
+	}
+
+	private static MnistExamples createExamples() {
+		Random random = new Random(42);
+		byte[] pixels = new byte[EXAMPLE_COUNT * MnistExamples.PIXEL_COUNT];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = random.nextInt(4) == 0 ? (byte) (1 + random.nextInt(255)) : 0;
+		}
+		byte[] labels = new byte[EXAMPLE_COUNT];
+		for (int e = 0; e < EXAMPLE_COUNT; e++) {
+			labels[e] = (byte) (e % MnistExamples.LABEL_COUNT);
+		}
+		return new MnistExamples(pixels, labels, EXAMPLE_COUNT);
+	}
+}
@@ -0,0 +1,104 @@
+package org.ml4j.nn.demo.kernels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ml4j.MatrixFactory;
+import org.ml4j.jblas.JBlasRowMajorMatrixFactoryOptimised;
+import org.ml4j.nn.demo.util.MnistData;
+import org.ml4j.nn.demo.util.MnistExamples;
+import org.ml4j.nn.demo.util.PretrainedMnistNetworks;
+import org.ml4j.nn.demo.util.PretrainedMnistWeights;
+import org.ml4j.nn.demo.util.WeightsBundle;
+import org.ml4j.nn.quickstart.sessions.factories.QuickstartSessionFactory;
+import org.ml4j.nn.sessions.DefaultSession;
+import org.ml4j.nn.supervised.LayeredSupervisedFeedForwardNeuralNetwork;
+
+/**
+ * Checks that the hand-written inference paths for the pretrained five-layer network agree with the
+ * network built by PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer on the Mnist test set.
+ *
+ */
+public class InferencePlanEquivalenceTest {
+
+	private static final int TEST_SET_START = 1000;
+	private static final int TEST_SET_SIZE = 1000;
+
+	// The plan and runner sum in a different order to the network's matrix operations
+	private static final float OUTPUT_TOLERANCE = 1e-4f;
+
+	private static MatrixFactory matrixFactory;
+	private static DefaultSession session;
+	private static WeightsBundle bundle;
+	private static LayeredSupervisedFeedForwardNeuralNetwork neuralNetwork;
+	private static float[] referenceOutputs;
+
+	@BeforeClass
+	public static void setUp() {
+		matrixFactory = new JBlasRowMajorMatrixFactoryOptimised();
+		session = new QuickstartSessionFactory(matrixFactory, false).createSession();
+		bundle = WeightsBundle.load(InferencePlanEquivalenceTest.class.getClassLoader(),
+				PretrainedMnistWeights.WEIGHTS_BUNDLE_RESOURCE);
+		neuralNetwork = PretrainedMnistNetworks.createFiveLayerNetworkWithConvLayer(session,
+				new PretrainedMnistWeights(matrixFactory, bundle));
+		referenceOutputs = neuralNetwork.forwardPropagate(MnistData.loadTestSetData(matrixFactory),
+				session.createLayeredSupervisedFeedForwardNeuralNetworkContext()).getOutput()
+				.getActivations(matrixFactory).getRowByRowArray();
+	}
+
+	@Test
+	public void testFloat32PlanMatchesNetwork() {
+		float[] outputs = forwardPropagate(InferencePlan.forPretrainedFiveLayerNetwork(WeightsPrecision.FLOAT32));
+
+		assertArrayEquals(referenceOutputs, outputs, OUTPUT_TOLERANCE);
+		assertArrayEquals(argmax(referenceOutputs), argmax(outputs));
+	}
+
+	@Test
+	public void testBinaryInputNetworkRunnerMatchesNetwork() {
+		BinaryInputNetworkRunner runner = BinaryInputNetworkRunner.forPretrainedFiveLayerNetwork(neuralNetwork,
+				matrixFactory);
+		float[] outputs = runner.forwardPropagate(
+				BitPackedImages.fromExamples(MnistData.getExamples(), TEST_SET_START, TEST_SET_START + TEST_SET_SIZE),
+				session.createLayeredSupervisedFeedForwardNeuralNetworkContext()).getActivations(matrixFactory)
+				.getRowByRowArray();
+
+		assertArrayEquals(referenceOutputs, outputs, OUTPUT_TOLERANCE);
+		assertArrayEquals(argmax(referenceOutputs), argmax(outputs));
+	}
+
+	@Test
+	public void testFusedPlanIsBitwiseIdenticalToUnfusedPlan() {
+		for (WeightsPrecision precision : WeightsPrecision.values()) {
+			float[] unfusedOutputs = forwardPropagate(
+					InferencePlan.forPretrainedFiveLayerNetwork(bundle, precision, false));
+			float[] fusedOutputs = forwardPropagate(InferencePlan.forPretrainedFiveLayerNetwork(bundle, precision, true));
+
+			assertEquals(unfusedOutputs.length, fusedOutputs.length);
+			for (int i = 0; i < unfusedOutputs.length; i++) {
+				assertEquals(precision + " output " + i, Float.floatToRawIntBits(unfusedOutputs[i]),
+						Float.floatToRawIntBits(fusedOutputs[i]));
+			}
+		}
+	}
+
+	private static float[] forwardPropagate(InferencePlan plan) {
+		InferenceWorkspace workspace = plan.createWorkspace(TEST_SET_SIZE);
+		workspace.setInputs(MnistData.getExamples(), TEST_SET_START, TEST_SET_SIZE);
+		return workspace.forwardPropagate(TEST_SET_SIZE).clone();
+	}
+
+	private static int[] argmax(float[] outputs) {
+		int[] predictions = new int[TEST_SET_SIZE];
+		for (int e = 0; e < TEST_SET_SIZE; e++) {
+			for (int c = 1; c < MnistExamples.LABEL_COUNT; c++) {
+				if (outputs[c * TEST_SET_SIZE + e] > outputs[predictions[e] * TEST_SET_SIZE + e]) {
+					predictions[e] = c;
+				}
+			}
+		}
+		return predictions;
+	}
+}
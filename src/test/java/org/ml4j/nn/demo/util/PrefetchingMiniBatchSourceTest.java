@@ -0,0 +1,185 @@
+package org.ml4j.nn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests ordering, backpressure, failure propagation and abandoned epochs of PrefetchingMiniBatchSource,
+ * over a delegate whose mini-batches carry their index as their example count.
+ *
+ */
+public class PrefetchingMiniBatchSourceTest {
+
+	private static final int BATCH_COUNT = 50;
+	private static final int QUEUE_CAPACITY = 4;
+
+	private final AtomicInteger batchesAhead = new AtomicInteger();
+	private final AtomicInteger maxBatchesAhead = new AtomicInteger();
+	private final AtomicInteger closedIterators = new AtomicInteger();
+
+	private PrefetchingMiniBatchSource source;
+
+	@Before
+	public void setUp() {
+		source = new PrefetchingMiniBatchSource(new TestSource(BATCH_COUNT, index -> () -> new MiniBatch(null, null, index)),
+				2, QUEUE_CAPACITY);
+	}
+
+	@After
+	public void tearDown() {
+		source.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testBatchesAreDeliveredInOrderWithinTheQueueCapacity() throws InterruptedException {
+		int count = 0;
+		try (CloseableIterator<MiniBatch> batches = source.iterator(0)) {
+			while (batches.hasNext()) {
+				assertEquals(count, batches.next().getExampleCount());
+				batchesAhead.decrementAndGet();
+				count++;
+				// A slow consumer, so the feeder runs into the bound of the queue
+				Thread.sleep(2);
+			}
+		}
+		assertEquals(BATCH_COUNT, count);
+		// Besides the queue, the consumer holds one batch and the feeder reads one before waiting for space
+		assertTrue("Batches ahead of the consumer:" + maxBatchesAhead.get(), maxBatchesAhead.get() <= QUEUE_CAPACITY + 2);
+		assertTrue(maxBatchesAhead.get() > QUEUE_CAPACITY);
+		assertEquals(BATCH_COUNT, source.getMetrics().getBatchesDelivered());
+		assertEquals(1, closedIterators.get());
+	}
+
+	@Test(timeout = 10000)
+	public void testDecodingExceptionReachesConsumer() {
+		RuntimeException failure = new RuntimeException("decoding failed");
+		assertFailureReachesConsumer(failure, index -> () -> {
+			if (index == 3) {
+				throw failure;
+			}
+			return new MiniBatch(null, null, index);
+		});
+	}
+
+	@Test(timeout = 10000)
+	public void testDecodingErrorReachesConsumer() {
+		Error failure = new OutOfMemoryError("decoding failed");
+		assertFailureReachesConsumer(failure, index -> () -> {
+			if (index == 3) {
+				throw failure;
+			}
+			return new MiniBatch(null, null, index);
+		});
+	}
+
+	@Test(timeout = 10000)
+	public void testDelegateErrorReachesConsumer() {
+		Error failure = new OutOfMemoryError("reading failed");
+		assertFailureReachesConsumer(failure, index -> {
+			if (index == 3) {
+				throw failure;
+			}
+			return () -> new MiniBatch(null, null, index);
+		});
+	}
+
+	@Test(timeout = 10000)
+	public void testAbandonedEpochDoesNotBlockNextEpoch() {
+		try (CloseableIterator<MiniBatch> batches = source.iterator(0)) {
+			assertEquals(0, batches.next().getExampleCount());
+		}
+		int count = 0;
+		try (CloseableIterator<MiniBatch> batches = source.iterator(1)) {
+			while (batches.hasNext()) {
+				assertEquals(count++, batches.next().getExampleCount());
+			}
+		}
+		assertEquals(BATCH_COUNT, count);
+		assertEquals(2, closedIterators.get());
+		assertEquals(0, source.getMetrics().getQueueDepth());
+	}
+
+	@Test(timeout = 10000)
+	public void testClosedIteratorHasNoMoreBatches() {
+		CloseableIterator<MiniBatch> batches = source.iterator(0);
+		batches.next();
+		batches.close();
+		assertFalse(batches.hasNext());
+		try {
+			batches.next();
+			fail("Expected NoSuchElementException");
+		} catch (NoSuchElementException e) {
+			// Expected
+		}
+	}
+
+	private void assertFailureReachesConsumer(Throwable failure, IntFunction<Supplier<MiniBatch>> batchFactory) {
+		try (PrefetchingMiniBatchSource failingSource = new PrefetchingMiniBatchSource(
+				new TestSource(BATCH_COUNT, batchFactory), 2, QUEUE_CAPACITY);
+				CloseableIterator<MiniBatch> batches = failingSource.iterator(0)) {
+			int count = 0;
+			try {
+				while (batches.hasNext()) {
+					assertEquals(count++, batches.next().getExampleCount());
+				}
+				fail("Expected the failure to reach the consumer");
+			} catch (IllegalStateException e) {
+				assertSame(failure, e.getCause());
+			}
+			assertTrue(count <= 3);
+		}
+	}
+
+	private class TestSource implements MiniBatchSource {
+
+		private final int batchCount;
+		private final IntFunction<Supplier<MiniBatch>> batchFactory;
+
+		TestSource(int batchCount, IntFunction<Supplier<MiniBatch>> batchFactory) {
+			this.batchCount = batchCount;
+			this.batchFactory = batchFactory;
+		}
+
+		@Override
+		public int getBatchSize() {
+			return 1;
+		}
+
+		@Override
+		public CloseableIterator<Supplier<MiniBatch>> deferredIterator(int epoch) {
+			return new CloseableIterator<Supplier<MiniBatch>>() {
+
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return index < batchCount;
+				}
+
+				@Override
+				public Supplier<MiniBatch> next() {
+					int ahead = batchesAhead.incrementAndGet();
+					maxBatchesAhead.accumulateAndGet(ahead, Math::max);
+					return batchFactory.apply(index++);
+				}
+
+				@Override
+				public void close() {
+					closedIterators.incrementAndGet();
+				}
+			};
+		}
+	}
+}